@@ -0,0 +1,34 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark with the GC profiler, so allocations show up next to the timings
+ * <p>
+ *     Any JMH command line options can be passed, for example a regex of the benchmarks to run, or {@code -rf json} to save the results.
+ * </p>
+ */
+public class Benchmarks {
+
+    /**
+     * Runs the benchmarks
+     * @param args JMH command line options
+     * @throws RunnerException If a benchmark fails
+     * @throws CommandLineOptionException If the options are invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+    }
+
+
+}
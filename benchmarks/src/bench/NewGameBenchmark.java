@@ -0,0 +1,46 @@
+package bench;
+
+import board.Board;
+import engine.GameEngine;
+import engine.GameState;
+import engine.StrategoEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks starting a new game, both the state alone and the whole board with its fields and pieces
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class NewGameBenchmark {
+
+    /**
+     * The rules the games are played by
+     */
+    private final GameEngine engine = new StrategoEngine();
+
+    /**
+     * Creates the state of a new game with the default layout
+     * @return The state
+     */
+    @Benchmark
+    public GameState newGame() {
+        return engine.newGame();
+    }
+
+    /**
+     * Creates the board of a new game, with all its fields and pieces
+     * @return The board
+     */
+    @Benchmark
+    public Board newBoard() {
+        return new Board(null);
+    }
+
+
+}
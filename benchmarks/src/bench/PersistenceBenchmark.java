@@ -0,0 +1,88 @@
+package bench;
+
+import engine.GameState;
+import helper.FileIO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks saving and loading games, both only the encoding and the whole round trip through the disk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    /**
+     * The game saved
+     */
+    private GameState state;
+
+    /**
+     * The directory the savefile is in
+     */
+    private File directory;
+
+    /**
+     * The savefile
+     */
+    private File file;
+
+    /**
+     * Sets up the game and a savefile in an empty temporary directory
+     * @throws IOException If it can't create the directory
+     */
+    @Setup
+    public void setup() throws IOException {
+
+        state = Positions.midgame(2);
+        directory = Files.createTempDirectory("stratego-bench").toFile();
+        file = new File(directory, "game.sav");
+
+    }
+
+    /**
+     * Deletes the savefile, its backup, and the directory
+     */
+    @TearDown
+    public void tearDown() {
+
+        FileIO.backupFor(file).delete();
+        file.delete();
+        directory.delete();
+
+    }
+
+    /**
+     * Encodes the game in the save format and decodes it again, without touching the disk
+     * @return The decoded game
+     * @throws IOException If the save turned out invalid
+     */
+    @Benchmark
+    public GameState encodeDecode() throws IOException {
+        return FileIO.decode(FileIO.encode(state));
+    }
+
+    /**
+     * Writes the game to the savefile, synced to disk and renamed over the old one, then reads it back
+     * @return The read game
+     * @throws IOException If it can't write or read
+     * @throws ClassNotFoundException Never, the savefile isn't an older one
+     */
+    @Benchmark
+    public GameState writeRead() throws IOException, ClassNotFoundException {
+
+        FileIO.write(file, state);
+        return FileIO.read(file);
+
+    }
+
+
+}
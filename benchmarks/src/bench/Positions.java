@@ -0,0 +1,47 @@
+package bench;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.PieceCode;
+import engine.StrategoEngine;
+
+/**
+ * The positions the benchmarks run on, always the same so results can be compared between runs
+ */
+final class Positions {
+
+    /**
+     * The square of the piece whose moves are benchmarked, in the middle of the board with free squares around it
+     */
+    static final int PIECE = GameState.index(4, 5);
+
+    /**
+     * The square of the enemy piece next to it
+     */
+    static final int ENEMY = GameState.index(4, 4);
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Positions() {}
+
+    /**
+     * Creates the default layout in the playing stage, with a Light piece in the middle of the board facing a Dark marshal
+     * @param strength The strength of the Light piece in the middle
+     * @return The position, Light to move
+     */
+    static GameState midgame(int strength) {
+
+        GameEngine engine = new StrategoEngine();
+        GameState s = engine.newGame();
+        engine.endSetup(s);
+        engine.endSetup(s);
+
+        s.set(PIECE, PieceCode.of(true, strength));
+        s.set(ENEMY, PieceCode.of(false, PieceCode.MARSHAL));
+        return s;
+
+    }
+
+
+}
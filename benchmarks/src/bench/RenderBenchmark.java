@@ -0,0 +1,71 @@
+package bench;
+
+import board.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks drawing the whole board into an offscreen image, which is what every repaint does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    /**
+     * The board, in the playing stage
+     */
+    private Board board;
+
+    /**
+     * The offscreen image drawn into
+     */
+    private BufferedImage image;
+
+    /**
+     * The graphics of the image
+     */
+    private Graphics2D g;
+
+    /**
+     * Sets up the board, and sizes it the way the window would
+     */
+    @Setup
+    public void setup() {
+
+        board = new Board(null, Positions.midgame(2));
+        board.setSize(board.getPreferredSize());
+
+        image = new BufferedImage(board.getWidth(), board.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+
+    }
+
+    /**
+     * Frees the graphics of the image
+     */
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    /**
+     * Draws the whole board
+     * @return The image, so the drawing isn't optimized away
+     */
+    @Benchmark
+    public Object paintComponent() {
+
+        board.paintComponent(g);
+        return image;
+
+    }
+
+
+}
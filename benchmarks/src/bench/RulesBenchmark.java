@@ -0,0 +1,199 @@
+package bench;
+
+import board.Board;
+import board.Field;
+import engine.Combat;
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.PieceCode;
+import pieces.Piece;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rules a player hits on every move: finding valid moves, resolving conflicts, and checking squares
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    /**
+     * The strength of the piece whose moves are found: flag, bomb, spy, scout, miner, and marshal
+     */
+    @Param({"-1", "0", "1", "2", "3", "10"})
+    public int strength;
+
+    /**
+     * The board, in the playing stage
+     */
+    private Board board;
+
+    /**
+     * The rules the board is played by
+     */
+    private GameEngine engine;
+
+    /**
+     * The piece whose moves are found
+     */
+    private Piece piece;
+
+    /**
+     * Every point on the board
+     */
+    private Point[] points;
+
+    /**
+     * Buffer for the valid moves
+     */
+    private int[] moves;
+
+    /**
+     * Sets up the board with the piece in the middle
+     */
+    @Setup
+    public void setup() {
+
+        board = new Board(null, Positions.midgame(strength));
+        engine = board.getEngine();
+
+        Field[][] fields = board.getBoard();
+        piece = fields[Positions.PIECE / GameState.SIZE][Positions.PIECE % GameState.SIZE].getPiece();
+
+        points = new Point[GameState.SQUARES];
+        for (int i = 0; i < GameState.SQUARES; i++) { points[i] = new Point(i % GameState.SIZE, i / GameState.SIZE); }
+
+        moves = new int[MoveGenerator.MAX_ALL_MOVES];
+
+    }
+
+    /**
+     * Finds the valid moves of the piece as fields, the way the board did for every frame of a drag
+     * @return The fields, so the work isn't optimized away
+     */
+    @Benchmark
+    public Object findValidMoves() {
+        return piece.findValidMoves(board);
+    }
+
+    /**
+     * Finds the valid moves of the piece into a buffer, the way the board does now once per pick-up
+     * @return The number of moves
+     */
+    @Benchmark
+    public int legalMoves() {
+        return engine.legalMoves(board.getState(), Positions.PIECE, moves);
+    }
+
+    /**
+     * Finds every valid move of Light, the way the computer players do at every node
+     * @return The number of moves
+     */
+    @Benchmark
+    public int allLegalMoves() {
+        return engine.allLegalMoves(board.getState(), moves);
+    }
+
+    /**
+     * Has the piece step on the marshal, on a board put back to the position before every call, as the attack is a whole move that passes the turn
+     * <p>
+     *     The flag and the bomb can't move, so for them this is the cost of finding the attack illegal.
+     * </p>
+     * @param attack The board to attack on, reset for every call
+     * @return The outcome
+     */
+    @Benchmark
+    public int steppedOn(Attack attack) {
+        return attack.enemy.steppedOn(attack.piece);
+    }
+
+    /**
+     * Looks up the outcome of every possible pair of ranks
+     * @param bh Consumes the outcomes
+     */
+    @Benchmark
+    public void combatTable(Blackhole bh) {
+
+        for (int a = PieceCode.FLAG; a <= PieceCode.MARSHAL; a++) {
+            for (int d = PieceCode.FLAG; d <= PieceCode.MARSHAL; d++) {
+                bh.consume(Combat.outcome(PieceCode.of(true, a), PieceCode.of(false, d)));
+            }
+        }
+
+    }
+
+    /**
+     * Checks every square of the board as a place for the piece to step
+     * @param bh Consumes the results
+     */
+    @Benchmark
+    public void canStepHere(Blackhole bh) {
+
+        boolean team = piece.isLightTeam();
+        for (Point p : points) { bh.consume(board.canStepHere(p, team)); }
+
+    }
+
+    /**
+     * A board of its own for the attacks, which changes them, so it's put back before every call, apart from the measured time
+     */
+    @State(Scope.Thread)
+    public static class Attack {
+
+        /**
+         * The board attacked on
+         */
+        private Board board;
+
+        /**
+         * The position every attack starts from
+         */
+        private GameState start;
+
+        /**
+         * The attacking piece
+         */
+        private Piece piece;
+
+        /**
+         * The Dark marshal it steps on
+         */
+        private Piece enemy;
+
+        /**
+         * Creates the board, with the position of the benchmark
+         * @param rules The benchmark, for the strength of the piece
+         */
+        @Setup(Level.Trial)
+        public void setup(RulesBenchmark rules) {
+
+            start = Positions.midgame(rules.strength);
+            board = new Board(null, new GameState(start));
+
+        }
+
+        /**
+         * Puts the board back to the position before the attack, which makes new pieces
+         */
+        @Setup(Level.Invocation)
+        public void reset() {
+
+            board.setState(new GameState(start));
+            Field[][] fields = board.getBoard();
+            piece = fields[Positions.PIECE / GameState.SIZE][Positions.PIECE % GameState.SIZE].getPiece();
+            enemy = fields[Positions.ENEMY / GameState.SIZE][Positions.ENEMY % GameState.SIZE].getPiece();
+
+        }
+
+    }
+
+
+}
@@ -1,16 +1,60 @@
+import ai.AlphaBetaPlayer;
+import ai.Beliefs;
+import ai.Determinizer;
+import ai.IsmctsPlayer;
+import ai.Player;
+import ai.RandomPlayer;
+import ai.SetupEvaluator;
+import ai.SetupGenerator;
 import board.Board;
 import board.Field;
+import engine.GameEngine;
+import engine.GameState;
+import engine.History;
+import engine.MoveGenerator;
+import engine.PieceCode;
+import engine.StrategoEngine;
+import engine.Zobrist;
+import helper.AutoSave;
+import helper.FileIO;
+import helper.Journal;
+import helper.Replay;
+import helper.Sprites;
+import net.GameClient;
+import net.GameServer;
+import net.Protocol;
 import pieces.Piece;
+import tools.Perft;
+import tools.Tournament;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serial;
+import java.io.Serializable;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
- * JUnit tests for the Board, Field, and Piece classes
+ * JUnit tests for the Board, Field, and Piece classes, and the engine behind them
  */
 class AllTests {
 
@@ -46,13 +90,21 @@ class AllTests {
     }
 
     /**
-     * Kills a piece and tests if it died
+     * Attacks a piece that's weaker, and tests if it died, and the attacker took its place
      */
     @Test
     void steppedOn() {
 
-        board.getBoard()[3][1].getPiece().steppedOn(board.getBoard()[6][1].getPiece());
-        assertTrue(board.getBoard()[3][1].isEmpty());
+        Field[][] f = board.getBoard();
+        f[6][1].getPiece().move(f[5][1]);
+        f[3][9].getPiece().move(f[4][9]);
+        f[5][1].getPiece().move(f[4][1]);
+        f[3][8].getPiece().move(f[4][8]);
+
+        Piece attacker = f[4][1].getPiece();
+        assertEquals(GameEngine.ATTACKER_WINS, f[3][1].getPiece().steppedOn(attacker));
+        assertSame(attacker, f[3][1].getPiece());
+        assertTrue(f[4][1].isEmpty());
 
     }
 
@@ -77,25 +129,59 @@ class AllTests {
 
     }
 
+    /**
+     * Tests if pieces of the same team and strength share their image
+     */
+    @Test
+    void sharedImg() {
+
+        assertSame(board.getBoard()[2][7].getPiece().getImg(), new Piece(false, 5).getImg());
+        assertNotSame(board.getBoard()[2][7].getPiece().getImg(), new Piece(true, 5).getImg());
+
+    }
+
+    /**
+     * Scales the images in the background, and tests if the scaled ones are given once they're ready, and shared
+     */
+    @Test
+    void scaledImg() throws InterruptedException {
+
+        Piece p = board.getBoard()[2][7].getPiece();
+        assertSame(p.getImg(), p.getImg(60));
+
+        CountDownLatch ready = new CountDownLatch(1);
+        Sprites.prepare(45, ready::countDown);
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+
+        assertEquals(45, p.getImg(45).getWidth());
+        assertSame(p.getImg(45), new Piece(false, 5).getImg(45));
+
+    }
+
 
     /**
-     * Adds a piece to a field which was empty, and tests if it still is
+     * Moves a piece in the state onto a field which was empty, and tests if the field mirrors it once the board is given the state
      */
     @Test
-    void accept() {
+    void mirrorsAddedPiece() {
 
-        board.getBoard()[4][4].accept(new Piece(false, 7));
+        GameState s = new GameState(board.getState());
+        s.set(GameState.index(4, 4), s.get(GameState.index(4, 3)));
+        s.clear(GameState.index(4, 3));
+        board.setState(s);
         assertFalse(board.getBoard()[4][4].isEmpty());
 
     }
 
     /**
-     * Removes a piece from a field, and tests if it's now empty
+     * Removes a piece from the state, and tests if its field mirrors that once the board is given the state
      */
     @Test
-    void remove() {
+    void mirrorsRemovedPiece() {
 
-        board.getBoard()[0][0].remove();
+        GameState s = new GameState(board.getState());
+        s.clear(GameState.index(0, 0));
+        board.setState(s);
         assertTrue(board.getBoard()[0][0].isEmpty());
 
     }
@@ -145,5 +231,1066 @@ class AllTests {
 
     }
 
+    /**
+     * Finds the fields under some points, at two sizes of the board, the second one with the fields centered, and tests if they're the ones drawn there
+     */
+    @Test
+    void fieldAt() {
+
+        board.setSize(600, 600);
+        assertSame(board.getBoard()[2][1], board.fieldAt(65, 130));
+        assertNull(board.fieldAt(600, 10));
+
+        board.setSize(300, 400);
+        assertSame(board.getBoard()[2][2], board.fieldAt(65, 130));
+        assertNull(board.fieldAt(10, 30));
+
+    }
+
+    /**
+     * Plays a move on a state without any board, and tests if the turn passed on
+     */
+    @Test
+    void applyMove() {
+
+        GameEngine engine = new StrategoEngine();
+        GameState state = engine.newGame();
+        engine.endSetup(state);
+        engine.endSetup(state);
+
+        int outcome = engine.applyMove(state, GameState.index(0, 6), GameState.index(0, 5));
+        assertEquals(GameEngine.MOVED, outcome);
+        assertEquals(PieceCode.MARSHAL, PieceCode.strength(state.get(GameState.index(0, 5))));
+        assertFalse(state.isLightTurn());
+
+        // it's Dark's turn now, so Light can't move again
+        assertEquals(GameEngine.ILLEGAL, engine.applyMove(state, GameState.index(0, 5), GameState.index(0, 4)));
+
+    }
+
+    /**
+     * Tests the special cases of conflicts
+     */
+    @Test
+    void combat() {
+
+        GameEngine engine = new StrategoEngine();
+
+        assertEquals(GameEngine.ATTACKER_WINS, engine.combat(PieceCode.of(true, PieceCode.SPY), PieceCode.of(false, PieceCode.MARSHAL)));
+        assertEquals(GameEngine.ATTACKER_WINS, engine.combat(PieceCode.of(true, PieceCode.MINER), PieceCode.of(false, PieceCode.BOMB)));
+        assertEquals(GameEngine.BOTH_REMOVED, engine.combat(PieceCode.of(true, 9), PieceCode.of(false, PieceCode.BOMB)));
+        assertEquals(GameEngine.FLAG_CAPTURED, engine.combat(PieceCode.of(true, PieceCode.SCOUT), PieceCode.of(false, PieceCode.FLAG)));
+        assertEquals(GameEngine.DEFENDER_WINS, engine.combat(PieceCode.of(true, PieceCode.SPY), PieceCode.of(false, PieceCode.SCOUT)));
+        assertEquals(GameEngine.BOTH_REMOVED, engine.combat(PieceCode.of(true, 6), PieceCode.of(false, 6)));
+
+        // being revealed doesn't change the outcome
+        assertEquals(GameEngine.DEFENDER_WINS, engine.combat(PieceCode.withRevealed(PieceCode.of(true, 4), true), PieceCode.of(false, 7)));
+
+    }
+
+    /**
+     * Tests the moves of a scout standing next to a pond, into a reused buffer
+     */
+    @Test
+    void legalMoves() {
+
+        GameEngine engine = new StrategoEngine();
+        GameState state = new GameState();
+        state.set(GameState.index(4, 4), PieceCode.of(true, PieceCode.SCOUT));
+        state.set(GameState.index(4, 0), PieceCode.of(false, 5));
+        state.set(GameState.index(4, 8), PieceCode.of(true, 5));
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = engine.legalMoves(state, GameState.index(4, 4), moves);
+
+        // right and left until the ponds, down until the teammate, and up onto the enemy
+        assertEquals(1 + 0 + 3 + 4, count);
+        assertTrue(engine.isLegalMove(state, GameState.index(4, 4), GameState.index(4, 0)));
+        assertFalse(engine.isLegalMove(state, GameState.index(4, 4), GameState.index(4, 8)));
+        assertFalse(engine.isLegalMove(state, GameState.index(4, 4), GameState.index(3, 4)));
+
+    }
+
+    /**
+     * Encodes the game in the save format, decodes it, and tests if it's the same, then tests if a broken save is refused, and if an older serialized save keeps its revealed pieces
+     */
+    @Test
+    void saveFormat() throws IOException {
+
+        board.getBoard()[6][0].getPiece().move(board.getBoard()[5][0]);
+        byte[] data = FileIO.encode(board.getState());
+        assertEquals(FileIO.SIZE, data.length);
+
+        GameState read = FileIO.decode(data);
+        assertArrayEquals(data, FileIO.encode(read));
+        assertFalse(read.isLightTurn());
+
+        data[10] = (byte) 0xFF;
+        assertThrows(IOException.class, () -> FileIO.decode(data));
+
+
+        // an older save, which is a serialized board, keeps which of its pieces were revealed
+        LegacyBoard legacy = new LegacyBoard();
+        legacy.board[6][0].piece = new LegacyPiece(true, PieceCode.MARSHAL, true);
+        legacy.board[3][0].piece = new LegacyPiece(false, PieceCode.BOMB, false);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new LegacyOutputStream(bytes)) { out.writeObject(legacy); }
+        GameState imported;
+        try {
+            imported = FileIO.importSerialized(bytes.toByteArray());
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+
+        assertEquals(PieceCode.MARSHAL, PieceCode.strength(imported.get(GameState.index(0, 6))));
+        assertTrue(imported.isRevealed(GameState.index(0, 6)));
+        assertEquals(PieceCode.BOMB, PieceCode.strength(imported.get(GameState.index(0, 3))));
+        assertFalse(imported.isRevealed(GameState.index(0, 3)));
+        assertFalse(imported.isLightTurn());
+    }
+
+    /**
+     * Records a move, and tests if recovering the game replays it from the journal, even though the savefile only has the game from before it
+     */
+    @Test
+    void journal() throws IOException, ClassNotFoundException {
+
+        File file = File.createTempFile("stratego", ".sav");
+        file.deleteOnExit();
+        Journal.fileFor(file).deleteOnExit();
+
+        AutoSave autoSave = new AutoSave(file, 1000, 50);
+        autoSave.start(board.getState(), false);
+        byte[] before = FileIO.encode(board.getState());
+
+        int outcome = board.move(board.getBoard()[6][0], board.getBoard()[5][0]);
+        autoSave.record(outcome, GameState.index(0, 6), GameState.index(0, 5), board.getState());
+        autoSave.flush();
+
+        assertArrayEquals(before, FileIO.encode(FileIO.read(file)));
+        assertArrayEquals(FileIO.encode(board.getState()), FileIO.encode(Journal.recover(file)));
+
+    }
+
+    /**
+     * Records a move while the journal can't be opened, and tests if the savefile is left alone, then if everything is written once it can be
+     */
+    @Test
+    void journalRetry() throws IOException, ClassNotFoundException, InterruptedException {
+
+        File file = File.createTempFile("stratego", ".sav");
+        file.deleteOnExit();
+        File journalFile = Journal.fileFor(file);
+        journalFile.deleteOnExit();
+
+        // a directory in the way of the journal keeps it from being opened
+        assertTrue(journalFile.mkdir());
+        AutoSave autoSave = new AutoSave(file, 10, 50);
+        autoSave.start(board.getState(), false);
+
+        int outcome = board.move(board.getBoard()[6][0], board.getBoard()[5][0]);
+        autoSave.record(outcome, GameState.index(0, 6), GameState.index(0, 5), board.getState());
+        autoSave.request(board.getState());
+        Thread.sleep(200);
+        assertEquals(0, file.length());
+
+        assertTrue(journalFile.delete());
+        board.startTurn();
+        autoSave.record(Journal.START_TURN, 0, 0, board.getState());
+        autoSave.flush();
+
+        assertArrayEquals(FileIO.encode(board.getState()), FileIO.encode(Journal.recover(file)));
+        assertTrue(file.length() > 0);
+
+    }
+
+    /**
+     * Journals a record that doesn't replay, then a snapshot and a move after it, and tests if recovering starts from that snapshot,
+     * and continuing the journal keeps everything in it
+     */
+    @Test
+    void journalGap() throws IOException, ClassNotFoundException {
+
+        File file = File.createTempFile("stratego", ".sav");
+        file.deleteOnExit();
+        File journalFile = Journal.fileFor(file);
+        journalFile.deleteOnExit();
+
+        GameState s = board.getState();
+        Journal journal = Journal.create(file, FileIO.encode(s));
+        journal.append(new byte[] {GameEngine.MOVED, (byte) GameState.index(0, 5), (byte) GameState.index(0, 4)}, Journal.RECORD);
+
+        int from = GameState.index(0, 6);
+        int to = GameState.index(0, 5);
+        journal.appendSnapshot(FileIO.encode(s));
+        int outcome = new StrategoEngine().applyMove(s, from, to);
+        journal.append(new byte[] {(byte) outcome, (byte) from, (byte) to}, Journal.RECORD);
+        journal.close();
+
+        assertArrayEquals(FileIO.encode(s), FileIO.encode(Journal.recover(file)));
+
+        long length = journalFile.length();
+        Journal.open(file, FileIO.encode(s)).close();
+        assertTrue(journalFile.length() > length);
+        assertArrayEquals(FileIO.encode(s), FileIO.encode(Journal.recover(file)));
+
+    }
+
+    /**
+     * Journals a long random game, with turn starts and a snapshot in between, and tests if the replay of it has every step right, with a bounded gap between its keyframes
+     */
+    @Test
+    void replay() throws IOException, ClassNotFoundException {
+
+        File file = File.createTempFile("stratego", ".sav");
+        file.deleteOnExit();
+        Journal.fileFor(file).deleteOnExit();
+
+        GameEngine engine = new StrategoEngine();
+        GameState s = engine.newGame();
+        Journal journal = Journal.create(file, FileIO.encode(s));
+        Vector<GameState> steps = new Vector<>();
+        steps.add(new GameState(s));
+
+        // swaps two pieces, and finishes both setups
+        engine.swap(s, GameState.index(0, 6), GameState.index(1, 6));
+        journal.append(new byte[] {Journal.SWAP, (byte) GameState.index(0, 6), (byte) GameState.index(1, 6)}, Journal.RECORD);
+        steps.add(new GameState(s));
+        for (int i = 0; i < 2; i++) {
+            engine.endSetup(s);
+            journal.append(new byte[] {Journal.END_SETUP, 0, 0}, Journal.RECORD);
+            steps.add(new GameState(s));
+        }
+
+        // then plays random moves, starting every turn
+        Random random = new java.util.Random(3);
+        int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        for (int ply = 0; ply < 300 && s.getGameStage() == 0; ply++) {
+
+            engine.startTurn(s);
+            journal.append(new byte[] {Journal.START_TURN, 0, 0}, Journal.RECORD);
+
+            int move = moves[random.nextInt(engine.allLegalMoves(s, moves))];
+            int outcome = engine.applyMove(s, move >> 8, move & 0xFF);
+            journal.append(new byte[] {(byte) outcome, (byte) (move >> 8), (byte) (move & 0xFF)}, Journal.RECORD);
+            steps.add(new GameState(s));
+
+            if (ply == 100) { journal.appendSnapshot(FileIO.encode(s)); }
+
+        }
+        journal.close();
+
+        Replay replay = Replay.read(file);
+        assertEquals(steps.size() - 1, replay.length());
+        assertTrue(replay.keyframes() > replay.length() / Replay.KEYFRAME_INTERVAL);
+        for (int step = replay.length(); step >= 0; step--) {
+            assertArrayEquals(FileIO.encode(steps.get(step)), FileIO.encode(replay.stateAt(step)));
+        }
+        assertEquals(Journal.SWAP, replay.kindOf(1));
+
+    }
+
+    /**
+     * Journals a game that's played, undone, redone, played on, and then replaced by another, like the board does, and tests if the replay goes through
+     * every position in order, and if recovering gets the last one
+     */
+    @Test
+    void replayUndo() throws IOException, ClassNotFoundException {
+
+        File file = File.createTempFile("stratego", ".sav");
+        file.deleteOnExit();
+        Journal.fileFor(file).deleteOnExit();
+
+        GameEngine engine = new StrategoEngine();
+        History history = new History(engine);
+        GameState s = engine.newGame();
+        Journal journal = Journal.create(file, FileIO.encode(s));
+        Vector<GameState> steps = new Vector<>();
+        steps.add(new GameState(s));
+
+        for (int i = 0; i < 2; i++) {
+            history.endSetup(s);
+            journal.append(new byte[] {Journal.END_SETUP, 0, 0}, Journal.RECORD);
+            steps.add(new GameState(s));
+        }
+
+        // plays a few random moves, undoes some of them, and redoes one, saving after each like the board does
+        Random random = new java.util.Random(7);
+        int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        for (int ply = 0; ply < 12; ply++) {
+
+            if (ply == 8) {
+                for (int kind : new int[] {Journal.UNDO, Journal.UNDO, Journal.UNDO, Journal.REDO}) {
+                    assertTrue(kind == Journal.UNDO ? history.undo(s) : history.redo(s));
+                    journal.append(new byte[] {(byte) kind, 0, 0}, Journal.RECORD);
+                    journal.appendSnapshot(FileIO.encode(s));
+                    steps.add(new GameState(s));
+                }
+            }
+
+            engine.startTurn(s);
+            journal.append(new byte[] {Journal.START_TURN, 0, 0}, Journal.RECORD);
+            int move = moves[random.nextInt(engine.allLegalMoves(s, moves))];
+            int outcome = history.applyMove(s, move >> 8, move & 0xFF);
+            journal.append(new byte[] {(byte) outcome, (byte) (move >> 8), (byte) (move & 0xFF)}, Journal.RECORD);
+            steps.add(new GameState(s));
+
+        }
+
+        // then another game is loaded, and set up a bit
+        s = engine.newGame();
+        journal.appendSnapshot(FileIO.encode(s));
+        steps.add(new GameState(s));
+        engine.swap(s, GameState.index(0, 6), GameState.index(1, 6));
+        journal.append(new byte[] {Journal.SWAP, (byte) GameState.index(0, 6), (byte) GameState.index(1, 6)}, Journal.RECORD);
+        steps.add(new GameState(s));
+        journal.close();
+
+        Replay replay = Replay.read(file);
+        assertEquals(steps.size() - 1, replay.length());
+        for (int step = 0; step <= replay.length(); step++) {
+            assertArrayEquals(FileIO.encode(steps.get(step)), FileIO.encode(replay.stateAt(step)));
+        }
+        assertEquals(Journal.UNDO, replay.kindOf(11));
+        assertEquals(Journal.REDO, replay.kindOf(14));
+        assertEquals(Journal.SNAPSHOT, replay.kindOf(replay.length() - 1));
+        assertArrayEquals(FileIO.encode(s), FileIO.encode(Journal.recover(file)));
+
+    }
+
+    /**
+     * Swaps, sets up, and plays a random game through a history, and tests if undoing and redoing goes through exactly the same positions,
+     * then if undoing taking a flag hides what winning revealed, and if doing something new forgets what could be redone
+     */
+    @Test
+    void history() {
+
+        GameEngine engine = new StrategoEngine();
+        History history = new History(engine);
+        GameState s = engine.newGame();
+        Vector<byte[]> positions = new Vector<>();
+        positions.add(FileIO.encode(s));
+
+        assertTrue(history.swap(s, GameState.index(0, 6), GameState.index(1, 6)));
+        positions.add(FileIO.encode(s));
+        assertFalse(history.swap(s, GameState.index(0, 6), GameState.index(0, 3)));
+        for (int i = 0; i < 2; i++) {
+            history.endSetup(s);
+            positions.add(FileIO.encode(s));
+        }
+
+        Random random = new Random(5);
+        int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        for (int ply = 0; ply < 200 && s.getGameStage() == 0; ply++) {
+            int move = moves[random.nextInt(engine.allLegalMoves(s, moves))];
+            history.applyMove(s, move >> 8, move & 0xFF);
+            positions.add(FileIO.encode(s));
+        }
+
+        assertEquals(positions.size() - 1, history.size());
+        for (int i = positions.size() - 2; i >= 0; i--) {
+            assertTrue(history.undo(s));
+            assertArrayEquals(positions.get(i), FileIO.encode(s));
+        }
+        assertFalse(history.undo(s));
+        for (int i = 1; i < positions.size(); i++) {
+            assertTrue(history.redo(s));
+            assertArrayEquals(positions.get(i), FileIO.encode(s));
+        }
+        assertFalse(history.redo(s));
+        assertEquals(Zobrist.hash(s), s.getHash());
+
+        // taking the flag reveals everything, which undoing hides again
+        GameState small = new GameState();
+        small.set(GameState.index(0, 0), PieceCode.of(false, PieceCode.FLAG));
+        small.set(GameState.index(0, 1), PieceCode.of(true, 9));
+        small.set(GameState.index(5, 5), PieceCode.of(false, PieceCode.MARSHAL));
+        small.setGameStage(0);
+        byte[] before = FileIO.encode(small);
+
+        history.clear();
+        assertEquals(GameEngine.FLAG_CAPTURED, history.applyMove(small, GameState.index(0, 1), GameState.index(0, 0)));
+        assertTrue(small.isRevealed(GameState.index(5, 5)));
+        history.undo(small);
+        assertArrayEquals(before, FileIO.encode(small));
+
+        // and moving elsewhere forgets the flag being taken
+        assertTrue(history.canRedo());
+        history.applyMove(small, GameState.index(0, 1), GameState.index(1, 1));
+        assertFalse(history.canRedo());
+
+    }
+
+    /**
+     * Saves twice, damages the savefile, and tests if the previous save is read instead
+     */
+    @Test
+    void backupSave() throws IOException, ClassNotFoundException {
+
+        File file = File.createTempFile("stratego", ".sav");
+        file.deleteOnExit();
+        FileIO.backupFor(file).deleteOnExit();
+
+        byte[] first = FileIO.encode(board.getState());
+        FileIO.write(file, first);
+        board.getBoard()[6][0].getPiece().move(board.getBoard()[5][0]);
+        FileIO.write(file, board.getState());
+
+        try (RandomAccessFile damaged = new RandomAccessFile(file, "rw")) {
+            damaged.seek(FileIO.SIZE - 1);
+            damaged.write(0x7F);
+        }
+
+        assertArrayEquals(first, FileIO.encode(FileIO.read(file)));
+
+    }
+
+    /**
+     * Plays a few moves including a conflict, and tests if the incremental hash matches one computed from scratch,
+     * and if reaching the same position in a different order gives the same hash
+     */
+    @Test
+    void zobrist() {
+
+        GameEngine engine = new StrategoEngine();
+        GameState a = engine.newGame();
+        engine.endSetup(a);
+        engine.endSetup(a);
+        GameState b = new GameState(a);
+
+        engine.applyMove(a, GameState.index(0, 6), GameState.index(0, 5));
+        engine.applyMove(a, GameState.index(9, 3), GameState.index(9, 4));
+        engine.applyMove(a, GameState.index(1, 6), GameState.index(1, 5));
+        engine.applyMove(a, GameState.index(9, 4), GameState.index(9, 5));
+        engine.applyMove(a, GameState.index(0, 5), GameState.index(0, 4));
+        assertEquals(Zobrist.hash(a), a.getHash());
+
+        engine.applyMove(b, GameState.index(1, 6), GameState.index(1, 5));
+        engine.applyMove(b, GameState.index(9, 3), GameState.index(9, 4));
+        engine.applyMove(b, GameState.index(0, 6), GameState.index(0, 5));
+        engine.applyMove(b, GameState.index(9, 4), GameState.index(9, 5));
+        engine.applyMove(b, GameState.index(0, 5), GameState.index(0, 4));
+        assertEquals(a.getHash(), b.getHash());
+
+        // a conflict reveals the pieces, which changes the hash
+        assertEquals(GameEngine.ATTACKER_WINS, engine.applyMove(a, GameState.index(9, 5), GameState.index(9, 6)));
+        assertEquals(Zobrist.hash(a), a.getHash());
+
+    }
+
+    /**
+     * Lets the computer search a small position, and tests if it takes an undefended general with its marshal,
+     * then if it takes a revealed flag when it can, and if searching leaves the game as it was
+     */
+    @Test
+    void computer() {
+
+        GameState s = new GameState();
+        s.set(GameState.index(0, 0), PieceCode.of(false, PieceCode.FLAG));
+        s.set(GameState.index(5, 5), PieceCode.of(false, PieceCode.MARSHAL));
+        s.set(GameState.index(5, 6), PieceCode.withRevealed(PieceCode.of(true, 9), true));
+        s.set(GameState.index(0, 9), PieceCode.of(true, PieceCode.FLAG));
+        s.set(GameState.index(9, 9), PieceCode.of(true, PieceCode.BOMB));
+        s.setGameStage(0);
+        s.setLightTurn(false);
+
+        long hash = s.getHash();
+        AlphaBetaPlayer computer = new AlphaBetaPlayer(10_000, 3, 4, 2, 16, 1);
+        assertEquals(GameState.index(5, 5) << 8 | GameState.index(5, 6), computer.chooseMove(s));
+        assertEquals(hash, s.getHash());
+
+        s.set(GameState.index(5, 4), PieceCode.withRevealed(PieceCode.of(true, PieceCode.FLAG), true));
+        s.clear(GameState.index(0, 9));
+        assertEquals(GameState.index(5, 5) << 8 | GameState.index(5, 4), computer.chooseMove(s));
+
+    }
+
+    /**
+     * Runs a fixed number of playouts on a small position on two threads, and tests if the tree search also takes the undefended general,
+     * and if running the playouts leaves the game as it was
+     */
+    @Test
+    void ismcts() {
+
+        GameState s = new GameState();
+        s.set(GameState.index(0, 0), PieceCode.of(false, PieceCode.FLAG));
+        s.set(GameState.index(5, 5), PieceCode.of(false, PieceCode.MARSHAL));
+        s.set(GameState.index(5, 6), PieceCode.withRevealed(PieceCode.of(true, 9), true));
+        s.set(GameState.index(0, 9), PieceCode.of(true, PieceCode.FLAG));
+        s.set(GameState.index(9, 9), PieceCode.of(true, PieceCode.BOMB));
+        s.setGameStage(0);
+        s.setLightTurn(false);
+
+        long hash = s.getHash();
+        IsmctsPlayer computer = new IsmctsPlayer(10_000, 5000, 2, 1);
+        assertEquals(GameState.index(5, 5) << 8 | GameState.index(5, 6), computer.chooseMove(s));
+        assertEquals(5000, computer.getLastPlayouts());
+        assertEquals(hash, s.getHash());
+
+    }
+
+    /**
+     * Plays a short tournament between the random and the heuristic player on two threads, and tests if every game got counted,
+     * and if playing it again on a single thread gives the same results
+     */
+    @Test
+    void tournament() throws InterruptedException {
+
+        Tournament t = new Tournament(Tournament.player("heuristic"), Tournament.player("random"), 20, 2, 500, 1, true);
+        t.run();
+
+        long[] outcomes = t.getOutcomes();
+        assertEquals(20, outcomes[0] + outcomes[1] + outcomes[2]);
+        assertTrue(outcomes[0] > outcomes[1]);
+
+        // the same seed plays the same games on any number of threads
+        Tournament single = new Tournament(Tournament.player("heuristic"), Tournament.player("random"), 20, 1, 500, 1, true);
+        single.run();
+        assertArrayEquals(outcomes, single.getOutcomes());
+
+    }
+
+    /**
+     * Counts the move sequences from the default layout, where only the six front pieces not facing a pond can move at first,
+     * and tests if splitting the count among threads gives the same result, the deeper counts having been checked against a plain square by square walk
+     */
+    @Test
+    void perft() {
+
+        GameEngine engine = new StrategoEngine();
+        GameState s = engine.newGame();
+        engine.endSetup(s);
+        engine.endSetup(s);
+
+        assertEquals(6, Perft.count(s, 1, 1));
+        assertEquals(36, Perft.count(s, 2, 1));
+        assertEquals(384, Perft.count(s, 3, 1));
+        assertEquals(4084, Perft.count(s, 4, 1));
+        assertEquals(4084, Perft.count(s, 4, 3));
+        assertEquals(Zobrist.hash(s), s.getHash());
+
+    }
+
+    /**
+     * Plays the start of a game on a local server, and tests if the rules are checked there, and if each player only sees what they should
+     */
+    @Test
+    void server() throws IOException {
+
+        GameServer server = new GameServer(0);
+        new Thread(server, "server").start();
+
+        try (GameClient light = new GameClient("localhost", server.getPort()); GameClient dark = new GameClient("localhost", server.getPort())) {
+
+            // the first player to join plays Light, and both are told once the second one joins
+            light.join(7);
+            assertEquals(Protocol.JOINED, light.read());
+            assertEquals(Protocol.STATE, light.read());
+            dark.join(7);
+            assertEquals(Protocol.JOINED, dark.read());
+            assertEquals(Protocol.STATE, dark.read());
+            assertEquals(Protocol.STATE, light.read());
+            assertTrue(light.isLight() && !dark.isLight() && light.isFull());
+
+            // Light sets up first
+            dark.endSetup();
+            assertEquals(Protocol.REJECTED, dark.read());
+            light.endSetup();
+            assertEquals(Protocol.STATE, light.read());
+            assertEquals(Protocol.STATE, dark.read());
+            dark.endSetup();
+            assertEquals(Protocol.STATE, light.read());
+            assertEquals(Protocol.STATE, dark.read());
+
+            // Light's marshal moves, which Dark only sees as an unknown piece
+            light.move(GameState.index(0, 6), GameState.index(0, 5));
+            assertEquals(Protocol.DELTA, light.read());
+            assertEquals(PieceCode.MARSHAL, PieceCode.strength(light.getState().get(GameState.index(0, 5))));
+            assertEquals(Protocol.DELTA, dark.read());
+            assertEquals(PieceCode.UNKNOWN, PieceCode.strength(dark.getState().get(GameState.index(0, 5))));
+            assertFalse(dark.getState().isLightTurn());
+
+        } finally {
+            server.close();
+        }
+
+    }
+
+    /**
+     * Watches a game on a local server from two views, and tests if moves only come as deltas, which leave every view as projecting the whole game would
+     */
+    @Test
+    void spectators() throws IOException {
+
+        GameServer server = new GameServer(0);
+        new Thread(server, "server").start();
+        int port = server.getPort();
+
+        try (GameClient light = new GameClient("localhost", port); GameClient dark = new GameClient("localhost", port);
+             GameClient neutral = new GameClient("localhost", port)) {
+
+            // a game that isn't there can't be watched
+            neutral.watch(3, Protocol.VIEW_ALL);
+            assertEquals(Protocol.REJECTED, neutral.read());
+
+            // the first to join plays Light
+            light.join(3);
+            assertEquals(Protocol.JOINED, light.read());
+            dark.join(3);
+            assertEquals(Protocol.JOINED, dark.read());
+            for (GameClient c : new GameClient[] {light, dark}) {
+                while (!c.isFull()) { assertEquals(Protocol.STATE, c.read()); }
+            }
+
+            // the coach only watches for a while, and leaves before the game is over
+            try (GameClient coach = new GameClient("localhost", port)) {
+
+                // spectators get the state once, and can't play
+                neutral.watch(3, Protocol.VIEW_ALL);
+                coach.watch(3, Protocol.VIEW_LIGHT);
+                for (GameClient c : new GameClient[] {neutral, coach}) {
+                    assertEquals(Protocol.JOINED, c.read());
+                    assertEquals(Protocol.STATE, c.read());
+                }
+                neutral.endSetup();
+                assertEquals(Protocol.REJECTED, neutral.read());
+
+                for (GameClient player : new GameClient[] {light, dark}) {
+                    player.endSetup();
+                    for (GameClient c : new GameClient[] {light, dark, neutral, coach}) { assertEquals(Protocol.STATE, c.read()); }
+                }
+
+                // a move is only its two squares, projected for every view
+                int from = GameState.index(0, 6);
+                int to = GameState.index(0, 5);
+                light.move(from, to);
+                for (GameClient c : new GameClient[] {light, dark, neutral, coach}) { assertEquals(Protocol.DELTA, c.read()); }
+                assertEquals(PieceCode.MARSHAL, PieceCode.strength(coach.getState().get(to)));
+                assertEquals(PieceCode.UNKNOWN, PieceCode.strength(neutral.getState().get(to)));
+                assertEquals(PieceCode.EMPTY, neutral.getState().get(from));
+                assertFalse(neutral.getState().isLightTurn());
+
+                // and the views never differ from projecting the whole state
+                byte[] expected = new byte[Protocol.STATE_LENGTH];
+                GameState truth = new GameState(light.getState());
+                for (int square = 0; square < GameState.SQUARES; square++) {
+                    if (PieceCode.strength(truth.get(square)) == PieceCode.UNKNOWN) { truth.set(square, dark.getState().get(square)); }
+                }
+                Protocol.writeState(truth, Protocol.VIEW_ALL, true, expected, 0);
+                for (int square = 0; square < GameState.SQUARES; square++) { assertEquals(expected[2 + square], neutral.getState().get(square)); }
+
+            }
+
+            // a spectator leaving doesn't end the game
+            dark.move(GameState.index(0, 3), GameState.index(0, 4));
+            for (GameClient c : new GameClient[] {light, dark, neutral}) { assertEquals(Protocol.DELTA, c.read()); }
+
+        } finally {
+            server.close();
+        }
+
+    }
+
+    /**
+     * Sends a local server what only a server may send, and asks it for a game by an id it gives out itself, and tests if it turns both down
+     */
+    @Test
+    void serverCommands() throws IOException {
+
+        GameServer server = new GameServer(0);
+        new Thread(server, "server").start();
+        int port = server.getPort();
+
+        try (GameClient player = new GameClient("localhost", port); Socket raw = new Socket("localhost", port)) {
+
+            // the ids from FIRST_AUTO_ID up are only given out by the server
+            player.join(GameServer.FIRST_AUTO_ID);
+            assertEquals(Protocol.REJECTED, player.read());
+            player.join(-1);
+            assertEquals(Protocol.JOINED, player.read());
+            assertEquals(GameServer.FIRST_AUTO_ID, player.getGameId());
+
+            // a state is only sent by a server, so a client sending one is dropped, and none of it is taken for the commands it looks like
+            byte[] state = new byte[Protocol.STATE_LENGTH];
+            Arrays.fill(state, Protocol.END_SETUP);
+            state[0] = Protocol.STATE;
+            raw.setSoTimeout(5000);
+            raw.getOutputStream().write(state);
+            assertEquals(-1, raw.getInputStream().read());
+
+        } finally {
+            server.close();
+        }
+
+    }
+
+    /**
+     * Makes setups, and tests if they have the right pieces with the flag in the back row, and can be put on a game by swaps, or written and read back
+     */
+    @Test
+    void setups() {
+
+        GameEngine engine = new StrategoEngine();
+        SetupGenerator generator = new SetupGenerator(5);
+        byte[] expected = SetupGenerator.defaultSetup();
+        Arrays.sort(expected);
+
+        for (int i = 0; i < 20; i++) {
+
+            byte[] setup = i % 2 == 0 ? generator.biased() : generator.mutate(generator.random());
+            byte[] sorted = setup.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(expected, sorted);
+            if (i % 2 == 0) {
+                int flag = 0;
+                while (setup[flag] != PieceCode.FLAG) { flag++; }
+                assertTrue(flag < GameState.SIZE);
+            }
+
+            // swapping on a board gives the same as putting the pieces there, Dark setting up after Light
+            boolean light = i % 4 < 2;
+            GameState s = engine.newGame();
+            if (!light) { engine.endSetup(s); }
+            for (int swap : SetupGenerator.swapsTo(s, light, setup)) { assertTrue(engine.swap(s, swap >> 8, swap & 0xFF)); }
+            assertArrayEquals(setup, SetupGenerator.read(s, light));
+            assertArrayEquals(setup, SetupGenerator.parse(SetupGenerator.format(setup)));
+
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> SetupGenerator.parse("FFFFFFFFFF/BBBBBBBBBB/BBBBBBBBBB/BBBBBBBBBB"));
+
+    }
+
+    /**
+     * Scores setups with a few games between random players, and tests if every candidate got a share of the points
+     */
+    @Test
+    void setupEvaluator() throws InterruptedException {
+
+        SetupGenerator generator = new SetupGenerator(6);
+        List<byte[]> candidates = List.of(generator.biased(), generator.random(), SetupGenerator.defaultSetup());
+        List<byte[]> pool = List.of(generator.biased(), generator.biased());
+
+        double[] scores = new SetupEvaluator(Tournament.player("random"), 3, 300, 2, 1).evaluate(candidates, pool);
+        assertEquals(3, scores.length);
+        for (double score : scores) { assertTrue(score >= 0 && score <= 1); }
+
+    }
+
+
+    /**
+     * Follows both teams through random games, and tests if the actual kind of every piece is always still possible, every piece adds up to 1,
+     * the pieces that moved are never bombs, and guesses drawn from the beliefs have the hidden pieces there are
+     */
+    @Test
+    void beliefs() {
+
+        GameEngine engine = new StrategoEngine();
+        RandomPlayer player = new RandomPlayer(7);
+        SplittableRandom random = new SplittableRandom(7);
+
+        for (int game = 0; game < 5; game++) {
+
+            GameState s = engine.newGame();
+            SetupGenerator setups = new SetupGenerator(game);
+            SetupGenerator.apply(s, true, setups.biased());
+            SetupGenerator.apply(s, false, setups.biased());
+            engine.endSetup(s);
+            engine.endSetup(s);
+
+            Beliefs[] beliefs = {new Beliefs(s, false), new Beliefs(s, true)};
+            for (int ply = 0; ply < 300 && s.getGameStage() == 0; ply++) {
+
+                int move = player.chooseMove(s);
+                if (move < 0) { break; }
+                int from = move >> 8;
+                int to = move & 0xFF;
+
+                byte attacker = s.get(from);
+                byte defender = s.get(to);
+                int outcome = engine.applyMove(s, from, to);
+                for (Beliefs b : beliefs) { b.observe(from, to, attacker, defender, outcome); }
+                if (s.getGameStage() != 0) { break; }
+
+                // a piece that moved further than next door is known to be a scout
+                if (s.get(to) != PieceCode.EMPTY && PieceCode.isLightTeam(s.get(to)) == PieceCode.isLightTeam(attacker)) {
+                    Beliefs b = beliefs[PieceCode.isLightTeam(attacker) ? 1 : 0];
+                    assertFalse(b.isPossible(to, PieceCode.BOMB));
+                    if (Math.abs(from - to) != 1 && Math.abs(from - to) != GameState.SIZE) { assertEquals(1, b.probability(to, PieceCode.SCOUT), 1e-9); }
+                }
+
+                for (int square = 0; square < GameState.SQUARES; square++) {
+
+                    byte code = s.get(square);
+                    if (code == PieceCode.EMPTY) { continue; }
+                    Beliefs b = beliefs[PieceCode.isLightTeam(code) ? 1 : 0];
+
+                    double sum = 0;
+                    for (int strength = PieceCode.FLAG; strength <= PieceCode.MARSHAL; strength++) { sum += b.probability(square, strength); }
+                    assertEquals(1, sum, 1e-9);
+                    assertTrue(b.isPossible(square, PieceCode.strength(code)));
+                    assertTrue(b.probability(square, PieceCode.strength(code)) > 0);
+
+                }
+
+            }
+
+            // the guesses keep the hidden pieces the game has
+            GameState guess = Determinizer.sample(s, true, beliefs[0], random);
+            int[] kinds = new int[PieceCode.RANKS];
+            for (int square = 0; square < GameState.SQUARES; square++) {
+                if (s.get(square) != PieceCode.EMPTY && !PieceCode.isLightTeam(s.get(square))) { kinds[PieceCode.rank(s.get(square))]++; }
+                if (guess.get(square) != PieceCode.EMPTY && !PieceCode.isLightTeam(guess.get(square))) { kinds[PieceCode.rank(guess.get(square))]--; }
+            }
+            assertArrayEquals(new int[PieceCode.RANKS], kinds);
+
+        }
+
+        // a game made up with an extra piece can be followed too
+        GameState extra = engine.newGame();
+        engine.endSetup(extra);
+        engine.endSetup(extra);
+        extra.set(GameState.index(4, 4), PieceCode.of(false, PieceCode.MARSHAL));
+        Beliefs b = new Beliefs(extra, false);
+        double sum = 0;
+        for (int strength = PieceCode.FLAG; strength <= PieceCode.MARSHAL; strength++) { sum += b.probability(GameState.index(4, 4), strength); }
+        assertEquals(1, sum, 1e-9);
+
+    }
+
+    /**
+     * Moves on the board, then undoes and redoes, and tests if the beliefs still know what the moves gave away, then plays a game out,
+     * and tests if both players are shown every move of it
+     */
+    @Test
+    void followedBeliefs() {
+
+        Field[][] f = board.getBoard();
+        board.toggleBeliefs();
+        f[6][1].getPiece().move(f[5][1]);
+        f[3][9].getPiece().move(f[4][9]);
+        assertFalse(board.getBeliefs(true).isPossible(GameState.index(1, 5), PieceCode.BOMB));
+
+        // undoing Dark's move keeps what Light's gave away, and only undoing that one forgets it
+        assertTrue(board.undo());
+        assertFalse(board.getBeliefs(true).isPossible(GameState.index(1, 5), PieceCode.BOMB));
+        assertTrue(board.getBeliefs(false).isPossible(GameState.index(9, 3), PieceCode.BOMB));
+        assertTrue(board.undo());
+        assertTrue(board.getBeliefs(true).isPossible(GameState.index(1, 6), PieceCode.BOMB));
+        assertTrue(board.redo());
+        assertTrue(board.redo());
+        assertFalse(board.getBeliefs(true).isPossible(GameState.index(1, 5), PieceCode.BOMB));
+        assertFalse(board.getBeliefs(false).isPossible(GameState.index(9, 4), PieceCode.BOMB));
+
+        // players are shown the moves of both teams
+        GameEngine engine = new StrategoEngine();
+        int[] seen = new int[2];
+        Player[] players = new Player[2];
+        for (int i = 0; i < 2; i++) {
+
+            int player = i;
+            RandomPlayer random = new RandomPlayer(i);
+            players[i] = new Player() {
+
+                @Override
+                public int chooseMove(GameState state) {
+                    return random.chooseMove(state);
+                }
+
+                @Override
+                public void observe(int from, int to, byte attacker, byte defender, int outcome) {
+                    seen[player]++;
+                }
+
+            };
+
+        }
+        GameState s = engine.newGame();
+        engine.endSetup(s);
+        engine.endSetup(s);
+        int plies = Player.playOut(engine, s, players[0], players[1], 100);
+        assertEquals(plies, seen[0]);
+        assertEquals(plies, seen[1]);
+
+    }
+
+
+    /**
+     * Stands in for a board as older versions serialized it, with only the fields importing reads
+     */
+    private static class LegacyBoard implements Serializable {
+
+        /**
+         * Matches the board of older saves
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Whether it's Light's turn
+         */
+        private final boolean lightTurn = false;
+
+        /**
+         * The stage of the game
+         */
+        private final int gameStage = 0;
+
+        /**
+         * Whether the turn was started
+         */
+        private final boolean startedTurn = false;
+
+        /**
+         * The fields, all of them empty at first
+         */
+        private final LegacyField[][] board = new LegacyField[10][10];
+
+        /**
+         * Creates the empty fields
+         */
+        LegacyBoard() {
+            for (int y = 0; y < 10; y++) {
+                for (int x = 0; x < 10; x++) { board[y][x] = new LegacyField(new Point(x, y)); }
+            }
+        }
+
+    }
+
+    /**
+     * Stands in for a field as older versions serialized it
+     */
+    private static class LegacyField implements Serializable {
+
+        /**
+         * Matches the fields of older saves
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The position of the field
+         */
+        private final Point pos;
+
+        /**
+         * The piece on the field, if any
+         */
+        private LegacyPiece piece;
+
+        /**
+         * Creates an empty field
+         * @param pos The position of the field
+         */
+        LegacyField(Point pos) {
+            this.pos = pos;
+        }
+
+    }
+
+    /**
+     * Stands in for a piece as older versions serialized it, when it stored whether it was revealed
+     */
+    private static class LegacyPiece implements Serializable {
+
+        /**
+         * Matches the pieces of older saves
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The team of the piece
+         */
+        private final boolean isLightTeam;
+
+        /**
+         * The strength of the piece
+         */
+        private final int strength;
+
+        /**
+         * How far the piece moves
+         */
+        private final int maxMovement = 1;
+
+        /**
+         * Whether the piece is revealed
+         */
+        private final boolean revealed;
+
+        /**
+         * Creates a piece
+         * @param isLightTeam The team of the piece
+         * @param strength The strength of the piece
+         * @param revealed Whether the piece is revealed
+         */
+        LegacyPiece(boolean isLightTeam, int strength, boolean revealed) {
+            this.isLightTeam = isLightTeam;
+            this.strength = strength;
+            this.revealed = revealed;
+        }
+
+    }
+
+    /**
+     * Writes the stand-ins under the names of the classes they stand in for, the way an older version would have written them
+     */
+    private static class LegacyOutputStream extends ObjectOutputStream {
+
+        /**
+         * The class each stand-in stands in for
+         */
+        private static final Map<String, String> NAMES = Map.of(
+                "AllTests$LegacyBoard", "board.Board", "AllTests$LegacyField", "board.Field", "AllTests$LegacyPiece", "pieces.Piece");
+
+        /**
+         * Constructs the stream
+         * @param out Where to write to
+         * @throws IOException If it can't write the stream header
+         */
+        LegacyOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        /**
+         * Renames the stand-ins in a class name or a type signature
+         * @param name The name
+         * @return The name with the stand-ins renamed
+         */
+        private static String rename(String name) {
+
+            for (Map.Entry<String, String> e : NAMES.entrySet()) { name = name.replace(e.getKey(), e.getValue()); }
+            return name;
+
+        }
+
+        /**
+         * Writes the descriptor of a stand-in under the legacy name, with its fields' types renamed too
+         * @param desc The descriptor of the class
+         * @throws IOException If it can't write
+         */
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+
+            if (!desc.getName().contains("AllTests$Legacy")) { super.writeClassDescriptor(desc); return; }
+
+            writeUTF(rename(desc.getName()));
+            writeLong(desc.getSerialVersionUID());
+            writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+
+            ObjectStreamField[] fields = desc.getFields();
+            writeShort(fields.length);
+            for (ObjectStreamField f : fields) {
+                writeByte(f.getTypeCode());
+                writeUTF(f.getName());
+                if (!f.isPrimitive()) { writeObject(rename(f.getTypeString()).replace('.', '/')); }
+            }
+
+        }
+
+    }
+
 
-}
\ No newline at end of file
+}
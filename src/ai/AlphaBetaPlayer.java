@@ -0,0 +1,533 @@
+package ai;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.PieceCode;
+import engine.StrategoEngine;
+
+import java.io.Serial;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A computer opponent searching ahead with alpha-beta pruning over guesses of the hidden enemy pieces
+ * <p>
+ *     As the enemy pieces aren't known, a number of guesses are made of them with {@link Determinizer}, each of which is a game where everything is known.
+ *     The guesses are drawn by the {@link Beliefs} of what the enemy pieces gave away so far, so every guess is about as likely as any other, and the move
+ *     with the best score on average over all of them is chosen, which is its expected score.
+ * </p>
+ * <p>
+ *     The search deepens one move at a time until the time budget runs out, and the result of the deepest search that finished is used.
+ *     The pairs of guesses and moves are split among all the cores with fork-join, and every thread shares a {@link TranspositionTable},
+ *     so deeper searches can reuse and order by what the earlier ones found.
+ * </p>
+ */
+public class AlphaBetaPlayer implements Player {
+
+    /**
+     * The deepest the search can go, in moves
+     */
+    public static final int MAX_DEPTH = 32;
+
+    /**
+     * The size of the transposition table of a player on its own, 2 to the power of this many entries, 16 bytes each
+     */
+    public static final int TABLE_BITS = 20;
+
+    /**
+     * A score worse than any possible one
+     */
+    private static final int INFINITY = Evaluation.WIN + 1;
+
+    /**
+     * The score of taking a hidden flag below the first move, on top of the position
+     */
+    private static final int GUESSED_FLAG = 1000;
+
+    /**
+     * How many nodes to search between two checks of the time
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * The rules the game is played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * How long to search for a move, in milliseconds
+     */
+    private final long timeBudget;
+
+    /**
+     * How deep to search at most, in moves
+     */
+    private final int maxDepth;
+
+    /**
+     * How many guesses to make of the hidden enemy pieces
+     */
+    private final int determinizations;
+
+    /**
+     * The threads doing the search
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The results of positions searched so far, shared by every thread
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The buffers of every thread
+     */
+    private final ThreadLocal<Searcher> searchers;
+
+    /**
+     * The source of randomness for the guesses
+     */
+    private SplittableRandom random;
+
+    /**
+     * What either team can tell about the other's pieces, Light's at 1, or null until the game is started or the first move is asked for
+     */
+    private Beliefs[] beliefs;
+
+    /**
+     * Constructs a computer opponent using every core
+     * @param timeBudget How long to search for a move, in milliseconds
+     */
+    public AlphaBetaPlayer(long timeBudget) {
+        this(timeBudget, MAX_DEPTH, 8, Runtime.getRuntime().availableProcessors(), TABLE_BITS, System.nanoTime());
+    }
+
+    /**
+     * Constructs a computer opponent
+     * @param timeBudget How long to search for a move, in milliseconds, the first move deep search always finishes though
+     * @param maxDepth How deep to search at most, in moves, at most {@link #MAX_DEPTH}
+     * @param determinizations How many guesses to make of the hidden enemy pieces
+     * @param threads How many threads to search with
+     * @param tableBits The transposition table has 2 to the power of this many entries, 16 bytes each, so many players at once can use smaller ones
+     * @param seed The seed of the guesses, the same seed and budget give the same moves as long as the search isn't cut off by time
+     */
+    public AlphaBetaPlayer(long timeBudget, int maxDepth, int determinizations, int threads, int tableBits, long seed) {
+
+        this.engine = new StrategoEngine();
+        this.timeBudget = timeBudget;
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+        this.determinizations = Math.max(1, determinizations);
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.table = new TranspositionTable(tableBits);
+        this.searchers = ThreadLocal.withInitial(Searcher::new);
+        this.random = new SplittableRandom(seed);
+
+    }
+
+    /**
+     * Chooses a move for the player whose turn it is, searching until the time budget runs out
+     * @param state The game in the playing stage, which isn't changed
+     * @return The chosen move as (from &lt;&lt; 8 | to), or -1 if there's no valid move
+     */
+    @Override
+    public synchronized int chooseMove(GameState state) {
+
+        int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        int count = engine.allLegalMoves(state, moves);
+        if (count == 0) { return -1; }
+        if (count == 1) { return moves[0]; }
+
+        // takes a revealed flag right away
+        int win = Evaluation.takeFlag(state, moves, count);
+        if (win >= 0) { return win; }
+
+        // makes the guesses of the hidden enemy pieces, by what they gave away, starting to follow the game now if it wasn't started
+        if (beliefs == null) { beliefs = Beliefs.ofBoth(state); }
+        Beliefs enemy = beliefs[state.isLightTurn() ? 0 : 1];
+        GameState[] guesses = new GameState[determinizations];
+        for (int g = 0; g < determinizations; g++) { guesses[g] = Determinizer.sample(state, state.isLightTurn(), enemy, random); }
+
+        long deadline = System.nanoTime() + timeBudget * 1_000_000;
+        int best = moves[0];
+
+        // deepens the search until running out of time, the first depth always finishing
+        for (int depth = 1; depth <= maxDepth; depth++) {
+
+            Search search = new Search(guesses, moves, count, depth, depth == 1 ? Long.MAX_VALUE : deadline);
+            pool.invoke(new RootSearch(search, 0, determinizations * count));
+            if (search.stopped) { break; }
+
+            // adds up the scores of every move over the guesses, picking one of the best moves with the same chance each
+            long bestTotal = Long.MIN_VALUE;
+            int ties = 0;
+            for (int i = 0; i < count; i++) {
+
+                long total = 0;
+                for (int g = 0; g < determinizations; g++) { total += search.scores[g * count + i]; }
+                if (total > bestTotal) { bestTotal = total; best = moves[i]; ties = 1; }
+                else if (total == bestTotal && random.nextInt(++ties) == 0) { best = moves[i]; }
+
+            }
+
+            // no need to go deeper once a win is certain, or out of time
+            if (bestTotal / determinizations >= Evaluation.WIN_THRESHOLD || System.nanoTime() >= deadline) { break; }
+
+        }
+
+        return best;
+
+    }
+
+    /**
+     * Starts the randomness over from a seed, and forgets the game it followed, and the positions searched so far, which would change the moves
+     * @param seed The seed of the game
+     */
+    @Override
+    public synchronized void newGame(long seed) {
+
+        this.random = new SplittableRandom(seed);
+        this.beliefs = null;
+        table.clear();
+
+    }
+
+    /**
+     * Starts following a game, forgetting what was learned of any other game
+     * @param start The game where its playing stage started, only read during this call
+     */
+    @Override
+    public synchronized void startPlay(GameState start) {
+        this.beliefs = Beliefs.ofBoth(start);
+    }
+
+    /**
+     * Learns from a move made by either team, after it's made
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    @Override
+    public synchronized void observe(int from, int to, byte attacker, byte defender, int outcome) {
+        if (beliefs != null) { for (Beliefs b : beliefs) { b.observe(from, to, attacker, defender, outcome); } }
+    }
+
+    /**
+     * A search of every move in every guess to a given depth
+     */
+    private static class Search {
+
+        /**
+         * The guesses of the hidden enemy pieces
+         */
+        final GameState[] guesses;
+
+        /**
+         * The moves to search
+         */
+        final int[] moves;
+
+        /**
+         * The number of moves
+         */
+        final int count;
+
+        /**
+         * How deep to search every move
+         */
+        final int depth;
+
+        /**
+         * When to stop searching, as given by System.nanoTime()
+         */
+        final long deadline;
+
+        /**
+         * The score of every move in every guess, indexed as guess * count + move
+         */
+        final int[] scores;
+
+        /**
+         * Whether the search ran out of time, so the scores aren't complete
+         */
+        volatile boolean stopped;
+
+        /**
+         * Constructs a search
+         * @param guesses The guesses of the hidden enemy pieces
+         * @param moves The moves to search
+         * @param count The number of moves
+         * @param depth How deep to search every move
+         * @param deadline When to stop searching, as given by System.nanoTime()
+         */
+        Search(GameState[] guesses, int[] moves, int count, int depth, long deadline) {
+
+            this.guesses = guesses;
+            this.moves = moves;
+            this.count = count;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.scores = new int[guesses.length * count];
+
+        }
+
+    }
+
+    /**
+     * Searches a range of the pairs of guesses and moves, splitting it in half until there's only one
+     */
+    private class RootSearch extends RecursiveAction {
+
+        /**
+         * Makes sure serialization doesn't break
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The search this is part of
+         */
+        private final Search search;
+
+        /**
+         * The first pair, as guess * count + move
+         */
+        private final int from;
+
+        /**
+         * The pair after the last one
+         */
+        private final int to;
+
+        /**
+         * Constructs the search of a range of pairs
+         * @param search The search this is part of
+         * @param from The first pair
+         * @param to The pair after the last one
+         */
+        RootSearch(Search search, int from, int to) {
+
+            this.search = search;
+            this.from = from;
+            this.to = to;
+
+        }
+
+        /**
+         * Searches the pairs, the scores of which are written into the search
+         */
+        @Override
+        protected void compute() {
+
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RootSearch(search, from, middle), new RootSearch(search, middle, to));
+                return;
+            }
+
+            if (search.stopped) { return; }
+
+            GameState guess = search.guesses[from / search.count];
+            search.scores[from] = searchers.get().searchRoot(new GameState(guess), search.moves[from % search.count], search);
+
+        }
+
+    }
+
+    /**
+     * The alpha-beta search itself, one for every thread so the buffers can be reused without allocating
+     */
+    private class Searcher {
+
+        /**
+         * The moves of every ply
+         */
+        private final int[][] moves = new int[MAX_DEPTH + 1][MoveGenerator.MAX_ALL_MOVES];
+
+        /**
+         * The ordering keys of the moves of every ply
+         */
+        private final int[][] keys = new int[MAX_DEPTH + 1][MoveGenerator.MAX_ALL_MOVES];
+
+        /**
+         * The number of nodes searched, used to check the time every so often
+         */
+        private long nodes;
+
+        /**
+         * Searches a single move at the root of a guess
+         * @param s The guess, which can be changed
+         * @param move The move
+         * @param search The search this is part of
+         * @return The score of the move for the player making it
+         */
+        int searchRoot(GameState s, int move, Search search) {
+
+            int from = move >> 8;
+            int to = move & 0xFF;
+
+            byte defender = s.get(to);
+            if (defender != PieceCode.EMPTY && PieceCode.strength(defender) == PieceCode.FLAG) { return Evaluation.WIN - 1; }
+
+            engine.applyMove(s, from, to);
+            return -search(s, search.depth - 1, 1, -INFINITY, INFINITY, search);
+
+        }
+
+        /**
+         * Searches a position with alpha-beta pruning, from the point of view of the player whose turn it is
+         * @param s The position, which is changed while searching but restored by the end
+         * @param depth How many more moves to search
+         * @param ply How many moves deep the position is from the root
+         * @param alpha The score the player is already sure to get
+         * @param beta The score the enemy is already sure to hold the player to
+         * @param search The search this is part of
+         * @return The score of the position, 0 if the search ran out of time
+         */
+        private int search(GameState s, int depth, int ply, int alpha, int beta, Search search) {
+
+            // checks the time every so often
+            if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() >= search.deadline) { search.stopped = true; }
+            if (search.stopped) { return 0; }
+
+            if (depth == 0) { return Evaluation.score(s, s.isLightTurn()); }
+
+            // uses what's known of the position already
+            long hash = s.getHash();
+            long entry = table.probe(hash);
+            int tableMove = 0;
+            if (entry != 0) {
+
+                tableMove = TranspositionTable.move(entry);
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                if (TranspositionTable.depth(entry) >= depth) {
+
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) { return score; }
+
+                }
+
+            }
+
+            // a player who can't move loses
+            int[] moves = this.moves[ply];
+            int count = engine.allLegalMoves(s, moves);
+            if (count == 0) { return -(Evaluation.WIN - ply); }
+            order(s, moves, keys[ply], count, tableMove);
+
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestMove = 0;
+            for (int i = 0; i < count; i++) {
+
+                int from = moves[i] >> 8;
+                int to = moves[i] & 0xFF;
+                byte attacker = s.get(from);
+                byte defender = s.get(to);
+
+                int score;
+                if (defender != PieceCode.EMPTY && PieceCode.strength(defender) == PieceCode.FLAG) {
+
+                    // taking the flag ends the game, so there's nothing more to search, but a hidden flag is only where it is in this guess,
+                    // and the moves leading there couldn't actually depend on the guess, so it's worth less than a sure win
+                    score = PieceCode.isRevealed(defender) ? Evaluation.WIN - ply - 1 : Evaluation.score(s, s.isLightTurn()) + GUESSED_FLAG;
+
+                } else {
+
+                    // makes the move, searches it, and takes it back
+                    boolean lightTurn = s.isLightTurn();
+                    boolean startedTurn = s.hasStartedTurn();
+                    engine.applyMove(s, from, to);
+                    score = -search(s, depth - 1, ply + 1, -beta, -alpha, search);
+                    s.set(from, attacker);
+                    s.set(to, defender);
+                    s.setLightTurn(lightTurn);
+                    s.setStartedTurn(startedTurn);
+
+                }
+
+                if (search.stopped) { return 0; }
+
+                if (score > best) { best = score; bestMove = moves[i]; }
+                if (score > alpha) { alpha = score; }
+                if (alpha >= beta) { break; }
+
+            }
+
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER : (best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT);
+            table.store(hash, depth, bound, toTable(best, ply), bestMove);
+            return best;
+
+        }
+
+        /**
+         * Sorts the moves so the likely best ones come first: the best move found earlier, then attacks on the most valuable pieces, then the rest
+         * @param s The position
+         * @param moves The moves, sorted in place
+         * @param keys A buffer for the ordering keys
+         * @param count The number of moves
+         * @param tableMove The best move found earlier, 0 if there's none
+         */
+        private void order(GameState s, int[] moves, int[] keys, int count, int tableMove) {
+
+            for (int i = 0; i < count; i++) {
+
+                byte attacker = s.get(moves[i] >> 8);
+                byte defender = s.get(moves[i] & 0xFF);
+
+                int key = 0;
+                if (moves[i] == tableMove) { key = Integer.MAX_VALUE; }
+                else if (defender != PieceCode.EMPTY) { key = 1 + Evaluation.value(defender) * 16 - Evaluation.value(attacker) / 32; }
+
+                // insertion sort, as there are only a few dozen moves
+                int move = moves[i];
+                int j = i;
+                while (j > 0 && keys[j - 1] < key) {
+                    keys[j] = keys[j - 1];
+                    moves[j] = moves[j - 1];
+                    j--;
+                }
+                keys[j] = key;
+                moves[j] = move;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Converts a score to be stored in the table, wins being counted from the stored position instead of the root
+     * @param score The score
+     * @param ply How many moves deep the position is from the root
+     * @return The score to store
+     */
+    private static int toTable(int score, int ply) {
+
+        if (score >= Evaluation.WIN_THRESHOLD) { return score + ply; }
+        if (score <= -Evaluation.WIN_THRESHOLD) { return score - ply; }
+        return score;
+
+    }
+
+    /**
+     * Converts a score read from the table back, wins being counted from the root again
+     * @param score The stored score
+     * @param ply How many moves deep the position is from the root
+     * @return The score
+     */
+    private static int fromTable(int score, int ply) {
+
+        if (score >= Evaluation.WIN_THRESHOLD) { return score - ply; }
+        if (score <= -Evaluation.WIN_THRESHOLD) { return score + ply; }
+        return score;
+
+    }
+
+
+}
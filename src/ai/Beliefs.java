@@ -0,0 +1,418 @@
+package ai;
+
+import engine.Combat;
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveObserver;
+import engine.PieceCode;
+
+import java.util.Arrays;
+
+/**
+ * What the other player can tell about the pieces of a team: how likely every one of them is to be of every kind, kept up to date move by move
+ * <p>
+ *     Every piece has a set of kinds it can still be, which only ever shrinks: a piece that moved isn't a bomb or the flag, a piece that moved more
+ *     than one square is a scout, a piece revealed by a fight is what it is, and the outcome of a fight rules out the kinds that would have ended it
+ *     differently. Along with how many pieces of every kind are left, this gives a table of probabilities, a row of {@value PieceCode#RANKS} per piece,
+ *     where every row adds up to 1 and every column to the number of pieces of that kind left.
+ * </p>
+ * <p>
+ *     That table is found by scaling the rows and the columns in turn until they add up (Sinkhorn's iteration), starting from how likely every kind
+ *     is to be set up in the row the piece started in, see {@link SetupGenerator}. Scaling never changes the ratios between the entries, so after a move
+ *     it goes on from the table it had, with only the ruled out kinds taken out, and a few rounds of scaling are enough, which takes microseconds.
+ * </p>
+ * <p>
+ *     Pieces are followed as they move, so it has to see every move made after it's made, with {@link #observe}. Only what fights reveal is read from
+ *     the codes of the pieces, so it can be given the actual game, and learns no more than the other player does.
+ * </p>
+ */
+public class Beliefs implements MoveObserver {
+
+    /**
+     * How many rounds of scaling are done after every change
+     */
+    private static final int ITERATIONS = 8;
+
+    /**
+     * The kinds a piece that moved can be, as a mask by rank
+     */
+    private static final int MOVERS = ~(1 << PieceCode.FLAG + 1 | 1 << PieceCode.BOMB + 1) & (1 << PieceCode.RANKS) - 1;
+
+    /**
+     * The team whose pieces are followed
+     */
+    private final boolean lightTeam;
+
+    /**
+     * The piece on every square, or -1 if there's none of the team
+     */
+    private final byte[] pieceAt;
+
+    /**
+     * The square of every piece, or -1 once it's gone
+     */
+    private final byte[] squareOf;
+
+    /**
+     * The kinds every piece can still be, as a mask by rank
+     */
+    private final short[] possible;
+
+    /**
+     * How likely every kind is to be set up where every piece started, a row of ranks per piece
+     */
+    private final double[] prior;
+
+    /**
+     * How likely every piece is to be of every kind, a row of ranks per piece, rows of the pieces that are gone being all 0
+     */
+    private final double[] beliefs;
+
+    /**
+     * How many pieces of every kind are expected to be left, by rank
+     */
+    private final double[] left;
+
+    /**
+     * Buffer for the column sums while scaling
+     */
+    private final double[] sums;
+
+    /**
+     * Starts following the pieces of a team from a game, knowing only what's revealed in it
+     * <p>
+     *     At the start of the game, everything is exact. Later on, like after loading, the kinds of the pieces that are gone aren't known,
+     *     so they're taken to be in proportion to what's left of every kind.
+     * </p>
+     * @param s The game, which isn't changed
+     * @param lightTeam The team whose pieces are followed
+     */
+    public Beliefs(GameState s, boolean lightTeam) {
+
+        // a team normally has 40 pieces, but a game made up by hand can have any number of them
+        int pieces = 0;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+            byte code = s.get(square);
+            if (code != PieceCode.EMPTY && PieceCode.isLightTeam(code) == lightTeam) { pieces++; }
+        }
+
+        this.lightTeam = lightTeam;
+        this.pieceAt = new byte[GameState.SQUARES];
+        this.squareOf = new byte[pieces];
+        this.possible = new short[pieces];
+        this.prior = new double[pieces * PieceCode.RANKS];
+        this.beliefs = new double[pieces * PieceCode.RANKS];
+        this.left = new double[PieceCode.RANKS];
+        this.sums = new double[PieceCode.RANKS];
+
+        Arrays.fill(pieceAt, (byte) -1);
+        Arrays.fill(squareOf, (byte) -1);
+
+        // every kind of piece the team started with
+        double[] hidden = new double[PieceCode.RANKS];
+        for (byte strength : SetupGenerator.defaultSetup()) { hidden[strength + 1]++; }
+
+        int count = 0;
+        int hiddenCount = 0;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+
+            byte code = s.get(square);
+            if (code == PieceCode.EMPTY || PieceCode.isLightTeam(code) != lightTeam) { continue; }
+
+            pieceAt[square] = (byte) count;
+            squareOf[count] = (byte) square;
+
+            // a revealed piece is known, and a hidden one is as likely as it would be to be set up in its row
+            if (PieceCode.isRevealed(code)) {
+
+                possible[count] = (short) (1 << PieceCode.rank(code));
+                prior[count * PieceCode.RANKS + PieceCode.rank(code)] = 1;
+                hidden[PieceCode.rank(code)]--;
+                left[PieceCode.rank(code)]++;
+
+            } else {
+
+                possible[count] = (1 << PieceCode.RANKS) - 1;
+                int row = lightTeam ? GameState.SIZE - 1 - square / GameState.SIZE : square / GameState.SIZE;
+                for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+                    prior[count * PieceCode.RANKS + rank] = row < SetupGenerator.ROWS ? SetupGenerator.rowWeight(rank - 1, row) : 1;
+                }
+                hiddenCount++;
+
+            }
+            count++;
+
+        }
+
+        // the hidden pieces are what's left of every kind, scaled to how many there are if some are gone, or added
+        double total = 0;
+        for (int rank = 0; rank < PieceCode.RANKS; rank++) { total += Math.max(0, hidden[rank]); }
+        for (int rank = 0; rank < PieceCode.RANKS && total > 0; rank++) { left[rank] += Math.max(0, hidden[rank]) * hiddenCount / total; }
+
+        System.arraycopy(prior, 0, beliefs, 0, prior.length);
+        settle();
+
+    }
+
+    /**
+     * Starts following the pieces of both teams of a game, knowing only what's revealed in it
+     * @param s The game, which isn't changed
+     * @return What Light can tell about Dark's pieces, then what Dark can tell about Light's
+     */
+    public static Beliefs[] ofBoth(GameState s) {
+        return new Beliefs[] {new Beliefs(s, false), new Beliefs(s, true)};
+    }
+
+    /**
+     * Learns from a move made by either team, after it's made
+     * <p>
+     *     The codes are only read for what a fight reveals, so they can be the actual ones, or as the other player sees them,
+     *     with {@link PieceCode#UNKNOWN} pieces, in which case the kinds are only narrowed down by the outcome of the fight.
+     * </p>
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    @Override
+    public void observe(int from, int to, byte attacker, byte defender, int outcome) {
+
+        if (outcome == GameEngine.ILLEGAL) { return; }
+
+        int moving = pieceAt[from];
+        int standing = pieceAt[to];
+
+        // a piece of the team moved, so it can move, and if it went further than next door, it's a scout
+        if (moving >= 0) {
+
+            int distance = Math.abs(from - to);
+            restrict(moving, (distance == 1 || distance == GameState.SIZE) ? MOVERS : 1 << PieceCode.SCOUT + 1);
+            if (outcome != GameEngine.MOVED) { restrict(moving, fought(attacker, defender, outcome, true)); }
+
+            // it stays where it was if the defender held, and is gone if both were removed
+            if (outcome == GameEngine.MOVED || outcome == GameEngine.ATTACKER_WINS || outcome == GameEngine.FLAG_CAPTURED) {
+                pieceAt[from] = -1;
+                pieceAt[to] = (byte) moving;
+                squareOf[moving] = (byte) to;
+            } else if (outcome == GameEngine.BOTH_REMOVED) {
+                pieceAt[from] = -1;
+                remove(moving);
+            }
+
+        // or one of its pieces was attacked
+        } else if (standing >= 0) {
+
+            restrict(standing, fought(attacker, defender, outcome, false));
+            if (outcome != GameEngine.DEFENDER_WINS) {
+                pieceAt[to] = -1;
+                remove(standing);
+            }
+
+        } else {
+            return;
+        }
+
+        settle();
+
+    }
+
+    /**
+     * Finds the kinds a piece of the team can be after a fight
+     * @param attacker The code of the attacker
+     * @param defender The code of the defender
+     * @param outcome The outcome of the fight
+     * @param attacking Whether the piece of the team is the attacker
+     * @return The kinds as a mask by rank
+     */
+    private int fought(byte attacker, byte defender, int outcome, boolean attacking) {
+
+        byte own = attacking ? attacker : defender;
+        byte other = attacking ? defender : attacker;
+
+        // the fight revealed the piece
+        if (PieceCode.strength(own) != PieceCode.UNKNOWN) { return 1 << PieceCode.rank(own); }
+        if (PieceCode.strength(other) == PieceCode.UNKNOWN) { return (1 << PieceCode.RANKS) - 1; }
+
+        // or it's one of the kinds that would have ended the fight this way
+        int mask = 0;
+        for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+            byte code = PieceCode.of(lightTeam, rank - 1);
+            if ((attacking ? Combat.outcome(code, other) : Combat.outcome(other, code)) == outcome) { mask |= 1 << rank; }
+        }
+        return mask;
+
+    }
+
+    /**
+     * Rules out kinds of a piece, trusting what's learned last if it doesn't agree with what was known
+     * @param piece The piece
+     * @param mask The kinds it can be, as a mask by rank
+     */
+    private void restrict(int piece, int mask) {
+
+        int narrowed = possible[piece] & mask;
+        if (narrowed == 0) { narrowed = mask; }
+        possible[piece] = (short) narrowed;
+
+        int row = piece * PieceCode.RANKS;
+        double sum = 0;
+        for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+            if ((narrowed >> rank & 1) == 0) { beliefs[row + rank] = 0; }
+            sum += beliefs[row + rank];
+        }
+
+        // starts over from the prior if all that was likely is ruled out
+        if (sum == 0) {
+            for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+                beliefs[row + rank] = (narrowed >> rank & 1) != 0 ? Math.max(prior[row + rank], Double.MIN_NORMAL) : 0;
+            }
+        }
+
+    }
+
+    /**
+     * Takes a piece that's gone out of the table, along with how likely it was to be of every kind
+     * @param piece The piece
+     */
+    private void remove(int piece) {
+
+        int row = piece * PieceCode.RANKS;
+        double sum = rowSum(row);
+
+        for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+            if (sum > 0) { left[rank] = Math.max(0, left[rank] - beliefs[row + rank] / sum); }
+            beliefs[row + rank] = 0;
+        }
+        squareOf[piece] = -1;
+
+    }
+
+    /**
+     * Scales the rows of the pieces that are left to add up to 1, and the columns to the number of pieces of every kind left, a few times over
+     */
+    private void settle() {
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+
+            Arrays.fill(sums, 0);
+            normalizeRows(sums);
+
+            for (int rank = 0; rank < PieceCode.RANKS; rank++) { sums[rank] = sums[rank] > 0 ? left[rank] / sums[rank] : 0; }
+            for (int piece = 0; piece < squareOf.length; piece++) {
+                if (squareOf[piece] < 0) { continue; }
+                int row = piece * PieceCode.RANKS;
+                for (int rank = 0; rank < PieceCode.RANKS; rank++) { beliefs[row + rank] *= sums[rank]; }
+            }
+
+        }
+
+        // the rows are what's read, so they're left adding up to 1
+        normalizeRows(null);
+
+    }
+
+    /**
+     * Scales the rows of the pieces that are left to add up to 1
+     * @param columns Where to add up the scaled columns, or null
+     */
+    private void normalizeRows(double[] columns) {
+
+        for (int piece = 0; piece < squareOf.length; piece++) {
+
+            if (squareOf[piece] < 0) { continue; }
+            int row = piece * PieceCode.RANKS;
+
+            // a row that scaled down to nothing starts over from its possible kinds
+            double sum = rowSum(row);
+            if (sum == 0) {
+                restrict(piece, possible[piece]);
+                sum = rowSum(row);
+            }
+
+            for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+                beliefs[row + rank] /= sum;
+                if (columns != null) { columns[rank] += beliefs[row + rank]; }
+            }
+
+        }
+
+    }
+
+    /**
+     * Adds up a row of the table
+     * @param row Where the row starts
+     * @return The sum
+     */
+    private double rowSum(int row) {
+
+        double sum = 0;
+        for (int rank = 0; rank < PieceCode.RANKS; rank++) { sum += beliefs[row + rank]; }
+        return sum;
+
+    }
+
+    /**
+     * Gets how likely the piece on a square is to be of a kind
+     * @param square The square
+     * @param strength The strength of the kind
+     * @return The probability, 0 if there's no piece of the team there
+     */
+    public double probability(int square, int strength) {
+
+        int piece = pieceAt[square];
+        return piece < 0 ? 0 : beliefs[piece * PieceCode.RANKS + strength + 1];
+
+    }
+
+    /**
+     * Gets the most likely kind of the piece on a square
+     * @param square The square
+     * @return The strength, or {@link PieceCode#UNKNOWN} if there's no piece of the team there
+     */
+    public int likeliest(int square) {
+
+        int piece = pieceAt[square];
+        if (piece < 0) { return PieceCode.UNKNOWN; }
+
+        int best = 0;
+        int row = piece * PieceCode.RANKS;
+        for (int rank = 1; rank < PieceCode.RANKS; rank++) {
+            if (beliefs[row + rank] > beliefs[row + best]) { best = rank; }
+        }
+        return best - 1;
+
+    }
+
+    /**
+     * Gets whether the piece on a square can be of a kind, as far as what it did goes
+     * @param square The square
+     * @param strength The strength of the kind
+     * @return false if there's no piece of the team there, or it can't be of that kind
+     */
+    public boolean isPossible(int square, int strength) {
+
+        int piece = pieceAt[square];
+        return piece >= 0 && (possible[piece] >> strength + 1 & 1) != 0;
+
+    }
+
+    /**
+     * Gets how many pieces of a kind the team is expected to have left
+     * @param strength The strength of the kind
+     * @return The number, only a whole one if every piece that's gone was revealed
+     */
+    public double expectedLeft(int strength) {
+        return left[strength + 1];
+    }
+
+    /**
+     * Getter for lightTeam
+     * @return Whether the pieces of Light are followed
+     */
+    public boolean isLightTeam() {
+        return lightTeam;
+    }
+
+
+}
@@ -0,0 +1,126 @@
+package ai;
+
+import engine.GameState;
+import engine.PieceCode;
+
+import java.util.SplittableRandom;
+
+/**
+ * Guesses the hidden enemy pieces, turning the game into one where everything is known
+ * <p>
+ *     The enemy pieces that haven't been revealed yet are shuffled among the squares of the hidden enemy pieces,
+ *     so every guess has exactly the pieces the enemy could still have hidden, and the revealed ones stay where they are.
+ *     Searching many such guesses and combining the results approximates playing without knowing the enemy pieces.
+ * </p>
+ * <p>
+ *     With the {@link Beliefs} of the enemy pieces, every hidden piece is drawn by how likely it is to be of every kind that's still left to draw,
+ *     so the guesses agree with what the pieces have given away.
+ * </p>
+ */
+public final class Determinizer {
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Determinizer() {}
+
+    /**
+     * Makes a guess of the hidden enemy pieces
+     * @param state The actual game, which isn't changed
+     * @param lightTeam The player doing the guessing, whose pieces stay as they are
+     * @param random The source of randomness
+     * @return A copy of the game with the hidden enemy pieces shuffled
+     */
+    public static GameState sample(GameState state, boolean lightTeam, SplittableRandom random) {
+
+        GameState guess = new GameState(state);
+
+        // finds the hidden enemy pieces
+        int[] squares = new int[GameState.SQUARES];
+        byte[] codes = new byte[GameState.SQUARES];
+        int count = 0;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+
+            byte code = state.get(square);
+            if (code != PieceCode.EMPTY && PieceCode.isLightTeam(code) != lightTeam && !PieceCode.isRevealed(code)) {
+                squares[count] = square;
+                codes[count++] = code;
+            }
+
+        }
+
+        // and puts them back in a random order
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte swap = codes[i];
+            codes[i] = codes[j];
+            codes[j] = swap;
+        }
+        for (int i = 0; i < count; i++) { guess.set(squares[i], codes[i]); }
+
+        return guess;
+
+    }
+
+
+    /**
+     * Makes a guess of the hidden enemy pieces, by how likely they are to be of every kind
+     * @param state The actual game, which isn't changed
+     * @param lightTeam The player doing the guessing, whose pieces stay as they are
+     * @param beliefs What the player can tell about the enemy pieces, following the same game
+     * @param random The source of randomness
+     * @return A copy of the game with the hidden enemy pieces drawn
+     */
+    public static GameState sample(GameState state, boolean lightTeam, Beliefs beliefs, SplittableRandom random) {
+
+        GameState guess = new GameState(state);
+
+        // finds the hidden enemy pieces, and how many of every kind there are among them
+        int[] squares = new int[GameState.SQUARES];
+        int[] left = new int[PieceCode.RANKS];
+        int count = 0;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+
+            byte code = state.get(square);
+            if (code != PieceCode.EMPTY && PieceCode.isLightTeam(code) != lightTeam && !PieceCode.isRevealed(code)) {
+                squares[count++] = square;
+                left[PieceCode.rank(code)]++;
+            }
+
+        }
+
+        // draws them in a random order, so none of them gets first pick every time
+        double[] weights = new double[PieceCode.RANKS];
+        for (int i = count - 1; i >= 0; i--) {
+
+            int j = random.nextInt(i + 1);
+            int square = squares[j];
+            squares[j] = squares[i];
+
+            // by how likely the piece is to be of every kind left, or by how many there are if it can't be any of them
+            double total = 0;
+            for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+                weights[rank] = left[rank] > 0 ? beliefs.probability(square, rank - 1) : 0;
+                total += weights[rank];
+            }
+            if (total == 0) {
+                for (int rank = 0; rank < PieceCode.RANKS; rank++) { weights[rank] = left[rank]; total += left[rank]; }
+            }
+
+            double pick = random.nextDouble() * total;
+            int rank = -1;
+            for (int k = 0; k < PieceCode.RANKS && pick >= 0; k++) {
+                if (weights[k] > 0) { rank = k; pick -= weights[k]; }
+            }
+
+            left[rank]--;
+            guess.set(square, PieceCode.of(!lightTeam, rank - 1));
+
+        }
+
+        return guess;
+
+    }
+
+
+}
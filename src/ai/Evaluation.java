@@ -0,0 +1,133 @@
+package ai;
+
+import engine.GameState;
+import engine.PieceCode;
+
+/**
+ * Scores positions for the computer opponent, without looking ahead
+ * <p>
+ *     A position is worth the value of the pieces of a player minus that of the enemy's, and movable pieces are worth slightly more the further they got towards the enemy.
+ *     Enemy pieces getting within a few steps of the flag make it worth less, so the flag gets defended before it's too late.
+ * </p>
+ */
+public final class Evaluation {
+
+    /**
+     * The score of taking the enemy flag, higher than any material score could be
+     */
+    public static final int WIN = 1_000_000;
+
+    /**
+     * Scores closer to {@link #WIN} than this are wins in a known number of moves
+     */
+    public static final int WIN_THRESHOLD = WIN - 1000;
+
+    /**
+     * The value of every rank, from the flag to the marshal
+     */
+    private static final int[] VALUES = {0, 30, 100, 10, 40, 20, 30, 50, 80, 140, 250, 400};
+
+    /**
+     * How close an enemy has to get to a flag to count as a danger, in steps
+     */
+    private static final int DANGER_DISTANCE = 5;
+
+    /**
+     * How much worse every step closer to the flag makes the position for its owner
+     */
+    private static final int DANGER = 40;
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Evaluation() {}
+
+    /**
+     * Gets the value of a piece
+     * @param code The code of the piece
+     * @return Its value, 0 for empty squares
+     */
+    public static int value(byte code) {
+        return code == PieceCode.EMPTY ? 0 : VALUES[PieceCode.rank(code)];
+    }
+
+    /**
+     * Finds a move taking a revealed enemy flag, which wins right away
+     * @param state The position
+     * @param moves The valid moves of the player whose turn it is, as (from &lt;&lt; 8 | to)
+     * @param count The number of moves
+     * @return The move taking the flag, or -1 if there's none
+     */
+    public static int takeFlag(GameState state, int[] moves, int count) {
+
+        for (int i = 0; i < count; i++) {
+            byte target = state.get(moves[i] & 0xFF);
+            if (target != PieceCode.EMPTY && PieceCode.isRevealed(target) && PieceCode.strength(target) == PieceCode.FLAG) { return moves[i]; }
+        }
+        return -1;
+
+    }
+
+    /**
+     * Scores a position for one of the players
+     * @param state The position
+     * @param lightTeam Which player to score it for
+     * @return The score, positive if the player is better off
+     */
+    public static int score(GameState state, boolean lightTeam) {
+
+        int score = 0;
+        int lightFlag = -1;
+        int darkFlag = -1;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+
+            byte code = state.get(square);
+            if (code == PieceCode.EMPTY) { continue; }
+
+            // Light starts at the bottom and goes up, Dark the other way around
+            boolean light = PieceCode.isLightTeam(code);
+            int row = square / GameState.SIZE;
+            int advanced = PieceCode.maxMovement(PieceCode.strength(code)) == 0 ? 0 : (light ? GameState.SIZE - 1 - row : row);
+
+            int worth = VALUES[PieceCode.rank(code)] + advanced;
+            score += (light == lightTeam) ? worth : -worth;
+
+            if (PieceCode.strength(code) == PieceCode.FLAG) {
+                if (light) { lightFlag = square; } else { darkFlag = square; }
+            }
+
+        }
+
+        // an enemy getting close to the flag is a danger even before it could take it
+        int danger = danger(state, lightFlag, false) - danger(state, darkFlag, true);
+        return lightTeam ? score - danger : score + danger;
+
+    }
+
+    /**
+     * Scores how close the enemy pieces that can move are to a flag
+     * @param state The position
+     * @param flag The square of the flag, -1 if there's none
+     * @param lightEnemy Whether the enemy of the flag is Light
+     * @return How much worse the position is for the owner of the flag, 0 if no enemy is within a few squares
+     */
+    private static int danger(GameState state, int flag, boolean lightEnemy) {
+
+        if (flag < 0) { return 0; }
+
+        int nearest = DANGER_DISTANCE;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+
+            byte code = state.get(square);
+            if (code == PieceCode.EMPTY || PieceCode.isLightTeam(code) != lightEnemy || PieceCode.maxMovement(PieceCode.strength(code)) == 0) { continue; }
+
+            int distance = Math.abs(square / GameState.SIZE - flag / GameState.SIZE) + Math.abs(square % GameState.SIZE - flag % GameState.SIZE);
+            nearest = Math.min(nearest, distance);
+
+        }
+        return (DANGER_DISTANCE - nearest) * DANGER;
+
+    }
+
+
+}
@@ -0,0 +1,126 @@
+package ai;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.StrategoEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * A player that doesn't look ahead, making the move that leaves the best position right away
+ * <p>
+ *     The hidden enemy pieces are guessed with {@link Determinizer} every turn, by the {@link Beliefs} of what they gave away, and every move is scored in that guess with {@link Evaluation},
+ *     picking randomly among the best ones.
+ * </p>
+ */
+public class HeuristicPlayer implements Player {
+
+    /**
+     * The rules the game is played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * Buffer for the valid moves
+     */
+    private final int[] moves;
+
+    /**
+     * The source of randomness
+     */
+    private SplittableRandom random;
+
+    /**
+     * What either team can tell about the other's pieces, Light's at 1, or null until the game is started or the first move is asked for
+     */
+    private Beliefs[] beliefs;
+
+    /**
+     * Constructs a heuristic player
+     * @param seed The seed of the guesses and of breaking ties
+     */
+    public HeuristicPlayer(long seed) {
+
+        this.engine = new StrategoEngine();
+        this.moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        this.random = new SplittableRandom(seed);
+
+    }
+
+    /**
+     * Chooses the move scoring the best right away for the player whose turn it is
+     * @param state The game in the playing stage, which isn't changed
+     * @return The chosen move as (from &lt;&lt; 8 | to), or -1 if there's no valid move
+     */
+    @Override
+    public synchronized int chooseMove(GameState state) {
+
+        int count = engine.allLegalMoves(state, moves);
+        if (count == 0) { return -1; }
+
+        // takes a revealed flag right away
+        int win = Evaluation.takeFlag(state, moves, count);
+        if (win >= 0) { return win; }
+
+        // guesses by what the enemy pieces gave away, starting to follow the game now if it wasn't started
+        boolean lightTeam = state.isLightTurn();
+        if (beliefs == null) { beliefs = Beliefs.ofBoth(state); }
+        GameState guess = Determinizer.sample(state, lightTeam, beliefs[lightTeam ? 0 : 1], random);
+
+        int best = -1;
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+        for (int i = 0; i < count; i++) {
+
+            // scores the position after the move, taking the flag being the best there is
+            GameState after = new GameState(guess);
+            int outcome = engine.applyMove(after, moves[i] >> 8, moves[i] & 0xFF);
+            int score = outcome == GameEngine.FLAG_CAPTURED ? Evaluation.WIN : Evaluation.score(after, lightTeam);
+
+            // picks one of the best moves with the same chance each
+            if (score > bestScore) { best = moves[i]; bestScore = score; ties = 1; }
+            else if (score == bestScore && random.nextInt(++ties) == 0) { best = moves[i]; }
+
+        }
+
+        return best;
+
+    }
+
+    /**
+     * Starts the randomness over from a seed, and forgets the game it followed
+     * @param seed The seed of the game
+     */
+    @Override
+    public synchronized void newGame(long seed) {
+
+        this.random = new SplittableRandom(seed);
+        this.beliefs = null;
+
+    }
+
+    /**
+     * Starts following a game, forgetting what was learned of any other game
+     * @param start The game where its playing stage started, only read during this call
+     */
+    @Override
+    public synchronized void startPlay(GameState start) {
+        this.beliefs = Beliefs.ofBoth(start);
+    }
+
+    /**
+     * Learns from a move made by either team, after it's made
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    @Override
+    public synchronized void observe(int from, int to, byte attacker, byte defender, int outcome) {
+        if (beliefs != null) { for (Beliefs b : beliefs) { b.observe(from, to, attacker, defender, outcome); } }
+    }
+
+
+}
@@ -0,0 +1,564 @@
+package ai;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.StrategoEngine;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A computer opponent using information set Monte Carlo tree search
+ * <p>
+ *     Every playout starts by guessing the hidden enemy pieces with {@link Determinizer}, by the {@link Beliefs} of what they gave away, then walks down a single tree of moves shared by all the guesses,
+ *     only considering the moves that are valid in the current guess. Moves are picked by how well they did so far, counted against how often they were
+ *     available at all, and the first time the walk reaches a move not yet in the tree, it's added. From there the game is played on with random moves
+ *     for a while, and the result is added to every move on the way. The move played the most in the end is chosen.
+ * </p>
+ * <p>
+ *     Playouts only work on a {@link GameState}, and run on every core of a work-stealing pool at once. The statistics of the tree are only ever
+ *     changed with atomic operations, and new moves are added with compare-and-set, so no thread ever waits for another.
+ *     A move is counted as played as soon as a thread walks through it, before its result is known, which steers the other threads towards different moves.
+ * </p>
+ */
+public class IsmctsPlayer implements Player {
+
+    /**
+     * How strongly to favor moves that were tried fewer times
+     */
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * How many random moves a playout makes at most before the position is scored as it is
+     */
+    private static final int PLAYOUT_LENGTH = 50;
+
+    /**
+     * How big a score difference makes a player about three times as likely to win as to lose
+     */
+    private static final double SCORE_SCALE = 200;
+
+    /**
+     * The highest move code, as (from &lt;&lt; 8 | to)
+     */
+    private static final int MOVE_CODES = GameState.SQUARES << 8;
+
+    /**
+     * The rules the game is played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * How long to search for a move, in milliseconds
+     */
+    private final long timeBudget;
+
+    /**
+     * How many playouts to run at most for a move
+     */
+    private final long maxPlayouts;
+
+    /**
+     * How many threads run playouts
+     */
+    private final int threads;
+
+    /**
+     * The threads running the playouts
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The source of randomness, split for every thread of every search
+     */
+    private SplittableRandom random;
+
+    /**
+     * What either team can tell about the other's pieces, Light's at 1, or null until the game is started or the first move is asked for
+     */
+    private Beliefs[] beliefs;
+
+    /**
+     * The number of playouts run while choosing the last move
+     */
+    private volatile long lastPlayouts;
+
+    /**
+     * How long choosing the last move took, in nanoseconds
+     */
+    private volatile long lastTime;
+
+    /**
+     * Constructs a computer opponent using every core
+     * @param timeBudget How long to search for a move, in milliseconds
+     */
+    public IsmctsPlayer(long timeBudget) {
+        this(timeBudget, Long.MAX_VALUE, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * Constructs a computer opponent
+     * @param timeBudget How long to search for a move, in milliseconds
+     * @param maxPlayouts How many playouts to run at most for a move, whichever limit is reached first stops the search
+     * @param threads How many threads to run playouts on
+     * @param seed The seed of the guesses and random moves
+     */
+    public IsmctsPlayer(long timeBudget, long maxPlayouts, int threads, long seed) {
+
+        this.engine = new StrategoEngine();
+        this.timeBudget = timeBudget;
+        this.maxPlayouts = maxPlayouts;
+        this.threads = Math.max(1, threads);
+        this.pool = new ForkJoinPool(this.threads);
+        this.random = new SplittableRandom(seed);
+
+    }
+
+    /**
+     * Chooses a move for the player whose turn it is, running playouts until the time budget or the playout limit runs out
+     * @param state The game in the playing stage, which isn't changed
+     * @return The chosen move as (from &lt;&lt; 8 | to), or -1 if there's no valid move
+     */
+    @Override
+    public synchronized int chooseMove(GameState state) {
+
+        int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        int count = engine.allLegalMoves(state, moves);
+        if (count == 0) { return -1; }
+        if (count == 1) { return moves[0]; }
+
+        // takes a revealed flag right away
+        int win = Evaluation.takeFlag(state, moves, count);
+        if (win >= 0) { return win; }
+
+        // the guesses go by what the enemy pieces gave away, starting to follow the game now if it wasn't started
+        if (beliefs == null) { beliefs = Beliefs.ofBoth(state); }
+
+        long start = System.nanoTime();
+        Search search = new Search(state, beliefs[state.isLightTurn() ? 0 : 1], start + timeBudget * 1_000_000);
+
+        // every thread runs playouts on the same tree until the search is over
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) { workers[i] = new Worker(search, random.split()); }
+        pool.invoke(new RecursiveAction() {
+
+            @Serial
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(workers);
+            }
+
+        });
+
+        long playouts = 0;
+        for (Worker worker : workers) { playouts += worker.playouts; }
+        lastPlayouts = playouts;
+        lastTime = System.nanoTime() - start;
+
+        // chooses the move played the most
+        Node best = null;
+        for (Node child = search.root.child; child != null; child = child.sibling) {
+            if (best == null || child.visits > best.visits) { best = child; }
+        }
+        return best != null ? best.move : moves[0];
+
+    }
+
+    /**
+     * Starts the randomness over from a seed, and forgets the game it followed
+     * @param seed The seed of the game
+     */
+    @Override
+    public synchronized void newGame(long seed) {
+
+        this.random = new SplittableRandom(seed);
+        this.beliefs = null;
+
+    }
+
+    /**
+     * Starts following a game, forgetting what was learned of any other game
+     * @param start The game where its playing stage started, only read during this call
+     */
+    @Override
+    public synchronized void startPlay(GameState start) {
+        this.beliefs = Beliefs.ofBoth(start);
+    }
+
+    /**
+     * Learns from a move made by either team, after it's made
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    @Override
+    public synchronized void observe(int from, int to, byte attacker, byte defender, int outcome) {
+        if (beliefs != null) { for (Beliefs b : beliefs) { b.observe(from, to, attacker, defender, outcome); } }
+    }
+
+    /**
+     * Getter for lastPlayouts
+     * @return The number of playouts run while choosing the last move
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * Gets how many playouts were run every second while choosing the last move
+     * @return The playouts per second, 0 if no move was chosen yet
+     */
+    public double getPlayoutsPerSecond() {
+        return lastTime == 0 ? 0 : lastPlayouts * 1e9 / lastTime;
+    }
+
+    /**
+     * A search for a single move, shared by every thread
+     */
+    private class Search {
+
+        /**
+         * The actual game, which isn't changed
+         */
+        final GameState state;
+
+        /**
+         * What the player can tell about the enemy pieces, which isn't changed during the search
+         */
+        final Beliefs beliefs;
+
+        /**
+         * When to stop searching, as given by System.nanoTime()
+         */
+        final long deadline;
+
+        /**
+         * The tree, its root being the current position
+         */
+        final Node root;
+
+        /**
+         * The number of playouts started so far
+         */
+        final AtomicLong playouts;
+
+        /**
+         * Constructs a search
+         * @param state The actual game, which isn't changed
+         * @param beliefs What the player can tell about the enemy pieces, which isn't changed
+         * @param deadline When to stop searching, as given by System.nanoTime()
+         */
+        Search(GameState state, Beliefs beliefs, long deadline) {
+
+            this.state = state;
+            this.beliefs = beliefs;
+            this.deadline = deadline;
+            this.root = new Node(0, !state.isLightTurn(), null);
+            this.playouts = new AtomicLong();
+
+        }
+
+        /**
+         * Claims the next playout, if the search isn't over yet
+         * @return true if a playout should be run
+         */
+        boolean next() {
+            return playouts.getAndIncrement() < maxPlayouts && System.nanoTime() < deadline;
+        }
+
+    }
+
+    /**
+     * A move in the tree, along with how well it did
+     * <p>
+     *     The children of a node are a linked list, new ones being put in front with compare-and-set, so the list can be read at any time without locking.
+     * </p>
+     */
+    private static final class Node {
+
+        /**
+         * Atomically updates the first child
+         */
+        private static final AtomicReferenceFieldUpdater<Node, Node> CHILD = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "child");
+
+        /**
+         * Atomically updates the number of visits
+         */
+        private static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+
+        /**
+         * Atomically updates how many times the move was available
+         */
+        private static final AtomicIntegerFieldUpdater<Node> AVAILABLE = AtomicIntegerFieldUpdater.newUpdater(Node.class, "available");
+
+        /**
+         * Atomically updates the total reward
+         */
+        private static final AtomicLongFieldUpdater<Node> REWARD = AtomicLongFieldUpdater.newUpdater(Node.class, "reward");
+
+        /**
+         * The reward of a win, rewards are stored as fixed point numbers with this as 1
+         */
+        static final long ONE = 1 << 16;
+
+        /**
+         * The move as (from &lt;&lt; 8 | to)
+         */
+        final int move;
+
+        /**
+         * Whether it was Light who made the move, the rewards being from their point of view
+         */
+        final boolean lightMoved;
+
+        /**
+         * The next child of the parent
+         */
+        final Node sibling;
+
+        /**
+         * The first child, null if there's none yet
+         */
+        volatile Node child;
+
+        /**
+         * How many playouts went through the move
+         */
+        volatile int visits;
+
+        /**
+         * How many playouts could have gone through the move, as it was valid in their guess
+         */
+        volatile int available;
+
+        /**
+         * The total reward of the playouts that went through the move
+         */
+        volatile long reward;
+
+        /**
+         * Constructs a node
+         * @param move The move as (from &lt;&lt; 8 | to)
+         * @param lightMoved Whether it was Light who made the move
+         * @param sibling The next child of the parent
+         */
+        Node(int move, boolean lightMoved, Node sibling) {
+
+            this.move = move;
+            this.lightMoved = lightMoved;
+            this.sibling = sibling;
+
+        }
+
+        /**
+         * Gets the child of a move, adding it if it isn't in the tree yet
+         * @param move The move
+         * @param lightMoved Whether it's Light who makes the move
+         * @return The child
+         */
+        Node child(int move, boolean lightMoved) {
+
+            while (true) {
+
+                Node first = child;
+                for (Node n = first; n != null; n = n.sibling) {
+                    if (n.move == move) { return n; }
+                }
+
+                // if another thread added a child meanwhile, looks again
+                Node added = new Node(move, lightMoved, first);
+                if (CHILD.compareAndSet(this, first, added)) { return added; }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Runs playouts on one thread until the search is over
+     */
+    private class Worker extends RecursiveAction {
+
+        /**
+         * Makes sure serialization doesn't break
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The search this is part of
+         */
+        private final Search search;
+
+        /**
+         * The source of randomness of this thread
+         */
+        private final SplittableRandom random;
+
+        /**
+         * Buffer for the valid moves
+         */
+        private final int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+
+        /**
+         * Which moves are valid at the current node, marked with the current stamp, negated if they're already in the tree
+         */
+        private final int[] marks = new int[MOVE_CODES];
+
+        /**
+         * The stamp of the current node, so the marks never have to be cleared
+         */
+        private int stamp;
+
+        /**
+         * The number of playouts this thread ran
+         */
+        private long playouts;
+
+        /**
+         * The nodes walked through in the current playout
+         */
+        private final Node[] path = new Node[1024];
+
+        /**
+         * Constructs a worker
+         * @param search The search this is part of
+         * @param random The source of randomness of this thread
+         */
+        Worker(Search search, SplittableRandom random) {
+
+            this.search = search;
+            this.random = random;
+
+        }
+
+        /**
+         * Runs playouts until the search is over
+         */
+        @Override
+        protected void compute() {
+
+            boolean rootLight = search.state.isLightTurn();
+            while (search.next()) {
+
+                GameState s = Determinizer.sample(search.state, rootLight, search.beliefs, random);
+                int length = 0;
+                Node node = search.root;
+
+                // walks down the tree, until adding a new move or reaching the end of the game
+                boolean added = false;
+                while (!added && s.getGameStage() == 0 && length < path.length) {
+
+                    int count = engine.allLegalMoves(s, moves);
+                    if (count == 0) { break; }
+
+                    Node next = select(node, s, count);
+                    added = next.visits == 0;
+
+                    // counts the visit right away, so other threads look elsewhere until the result comes in
+                    Node.VISITS.incrementAndGet(next);
+                    path[length++] = next;
+                    engine.applyMove(s, next.move >> 8, next.move & 0xFF);
+                    node = next;
+
+                }
+
+                // plays on randomly, and adds the result to every move on the way
+                double light = playout(s);
+                for (int i = 0; i < length; i++) {
+                    double r = path[i].lightMoved ? light : 1 - light;
+                    Node.REWARD.addAndGet(path[i], (long) (r * Node.ONE));
+                }
+                playouts++;
+
+            }
+
+        }
+
+        /**
+         * Picks the move to walk through at a node: a valid move not yet in the tree if there's one, otherwise the best of the valid ones
+         * @param node The node
+         * @param s The guess, at the position of the node
+         * @param count The number of valid moves in the buffer
+         * @return The child of the picked move
+         */
+        private Node select(Node node, GameState s, int count) {
+
+            // starts over once the stamps run out
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+
+            boolean lightTurn = s.isLightTurn();
+            for (int i = 0; i < count; i++) { marks[moves[i]] = stamp; }
+
+            // goes through the moves already in the tree which are valid in this guess
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child = node.child; child != null; child = child.sibling) {
+
+                if (marks[child.move] != stamp) { continue; }
+                marks[child.move] = -stamp;
+
+                int available = Node.AVAILABLE.incrementAndGet(child);
+                int visits = child.visits;
+                if (visits == 0) { continue; }
+
+                double value = (double) child.reward / Node.ONE / visits + EXPLORATION * Math.sqrt(Math.log(available) / visits);
+                if (value > bestValue) { bestValue = value; best = child; }
+
+            }
+
+            // adds a random valid move not yet in the tree, if there's one
+            int untried = 0;
+            for (int i = 0; i < count; i++) {
+                if (marks[moves[i]] == stamp) { moves[untried++] = moves[i]; }
+            }
+            if (untried > 0) { return node.child(moves[random.nextInt(untried)], lightTurn); }
+
+            return best != null ? best : node.child(moves[random.nextInt(count)], lightTurn);
+
+        }
+
+        /**
+         * Plays random moves from a position for a while, then scores the position
+         * @param s The guess to play on
+         * @return How likely Light is to win, 1 if they won, 0 if they lost
+         */
+        private double playout(GameState s) {
+
+            for (int i = 0; i < PLAYOUT_LENGTH && s.getGameStage() == 0; i++) {
+
+                // a player who can't move loses
+                int count = engine.allLegalMoves(s, moves);
+                if (count == 0) { return s.isLightTurn() ? 0 : 1; }
+
+                int move = moves[random.nextInt(count)];
+                engine.applyMove(s, move >> 8, move & 0xFF);
+
+            }
+
+            if (s.getGameStage() == 1) { return s.hasLightWon() ? 1 : 0; }
+
+            return 1 / (1 + Math.exp(-Evaluation.score(s, true) / SCORE_SCALE));
+
+        }
+
+    }
+
+
+}
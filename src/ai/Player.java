@@ -0,0 +1,95 @@
+package ai;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveObserver;
+
+/**
+ * Something that can choose moves in the playing stage, like the computer opponent
+ * <p>
+ *     Players get the whole state, but they should only use what the player whose turn it is could see, that is their own pieces and the revealed enemy ones.
+ * </p>
+ * <p>
+ *     Players that guess the hidden enemy pieces also follow what those gave away with {@link Beliefs}, so they're told where the playing stage
+ *     started with {@link #startPlay}, and then shown every move made by either team with {@link #observe}.
+ * </p>
+ */
+public interface Player extends MoveObserver {
+
+    /**
+     * Chooses a move for the player whose turn it is
+     * @param state The game in the playing stage, which isn't changed
+     * @return The chosen move as (from &lt;&lt; 8 | to), or -1 if there's no valid move
+     */
+    int chooseMove(GameState state);
+
+    /**
+     * Gets ready for a new game, starting its randomness over from a seed, so a game plays the same whatever games the player played before it
+     * @param seed The seed of the game
+     */
+    default void newGame(long seed) {}
+
+    /**
+     * Starts following a game from where its playing stage started, or from where it was picked up, forgetting what was learned of any other game
+     * @param start The game at that point, only read during this call
+     */
+    default void startPlay(GameState start) {}
+
+    /**
+     * Learns from a move made by either team, after it's made, which players that don't follow the game ignore
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    @Override
+    default void observe(int from, int to, byte attacker, byte defender, int outcome) {}
+
+    /**
+     * Plays a game out between two players, from the playing stage until someone wins or it reaches a number of moves
+     * <p>
+     *     A player who can't move, or tries something invalid, loses. Both players follow the game from the start, seeing every move.
+     * </p>
+     * @param engine The rules the game is played by
+     * @param s The game in the playing stage, changed in place
+     * @param light The player of Light
+     * @param dark The player of Dark
+     * @param maxPlies How many moves the game can last, after which it's left unfinished
+     * @return The number of moves made
+     */
+    static int playOut(GameEngine engine, GameState s, Player light, Player dark, int maxPlies) {
+
+        light.startPlay(s);
+        if (dark != light) { dark.startPlay(s); }
+
+        int plies = 0;
+        while (s.getGameStage() == 0 && plies < maxPlies) {
+
+            int move = (s.isLightTurn() ? light : dark).chooseMove(s);
+            int from = move >> 8;
+            int to = move & 0xFF;
+            if (move < 0 || from >= GameState.SQUARES || to >= GameState.SQUARES) {
+                engine.win(s, !s.isLightTurn());
+                break;
+            }
+
+            byte attacker = s.get(from);
+            byte defender = s.get(to);
+            int outcome = engine.applyMove(s, from, to);
+            if (outcome == GameEngine.ILLEGAL) {
+                engine.win(s, !s.isLightTurn());
+                break;
+            }
+
+            light.observe(from, to, attacker, defender, outcome);
+            if (dark != light) { dark.observe(from, to, attacker, defender, outcome); }
+            plies++;
+
+        }
+        return plies;
+
+    }
+
+
+}
@@ -0,0 +1,65 @@
+package ai;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.StrategoEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * A player making a random valid move every turn, mostly useful as a baseline for the other players
+ */
+public class RandomPlayer implements Player {
+
+    /**
+     * The rules the game is played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * Buffer for the valid moves
+     */
+    private final int[] moves;
+
+    /**
+     * The source of randomness
+     */
+    private SplittableRandom random;
+
+    /**
+     * Constructs a random player
+     * @param seed The seed of the moves
+     */
+    public RandomPlayer(long seed) {
+
+        this.engine = new StrategoEngine();
+        this.moves = new int[MoveGenerator.MAX_ALL_MOVES];
+        this.random = new SplittableRandom(seed);
+
+    }
+
+    /**
+     * Chooses a random valid move for the player whose turn it is
+     * @param state The game in the playing stage, which isn't changed
+     * @return The chosen move as (from &lt;&lt; 8 | to), or -1 if there's no valid move
+     */
+    @Override
+    public synchronized int chooseMove(GameState state) {
+
+        int count = engine.allLegalMoves(state, moves);
+        return count == 0 ? -1 : moves[random.nextInt(count)];
+
+    }
+
+    /**
+     * Starts the randomness over from a seed
+     * @param seed The seed of the game
+     */
+    @Override
+    public synchronized void newGame(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+
+}
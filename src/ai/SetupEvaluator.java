@@ -0,0 +1,148 @@
+package ai;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.StrategoEngine;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+
+/**
+ * Scores setups by how well they do in games against a pool of other setups, played out by computer players on every core
+ * <p>
+ *     Every candidate plays a number of games against every setup of the pool, as Light in half of them and as Dark in the other half, so moving first
+ *     doesn't favor anyone. Both sides are played by the same kind of player, so only the setups differ. A win counts 1, a draw, which is a game that
+ *     reaches the move limit, counts half, and the score of a candidate is the share of the points it got.
+ * </p>
+ * <p>
+ *     The games are handed out one at a time to the threads, each of which has its own players, reused for all of its games, like in a
+ *     {@link tools.Tournament}, and started over from a seed of their own for every game, so the scores don't depend on the number of threads.
+ * </p>
+ */
+public class SetupEvaluator {
+
+    /**
+     * The rules the games are played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * Makes the player of both sides, given a seed
+     */
+    private final LongFunction<Player> player;
+
+    /**
+     * How many games every candidate plays against every setup of the pool
+     */
+    private final int games;
+
+    /**
+     * How many moves a game can last before it's a draw
+     */
+    private final int maxPlies;
+
+    /**
+     * How many threads to play on
+     */
+    private final int threads;
+
+    /**
+     * The seed of the games
+     */
+    private final long seed;
+
+    /**
+     * Constructs an evaluator
+     * @param player Makes the player of both sides, given a seed
+     * @param games How many games every candidate plays against every setup of the pool, rounded up to an even number
+     * @param maxPlies How many moves a game can last before it's a draw
+     * @param threads How many threads to play on
+     * @param seed The seed of the games
+     */
+    public SetupEvaluator(LongFunction<Player> player, int games, int maxPlies, int threads, long seed) {
+
+        this.engine = new StrategoEngine();
+        this.player = player;
+        this.games = games + games % 2;
+        this.maxPlies = maxPlies;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+
+    }
+
+    /**
+     * Scores setups against a pool, and waits for all the games to finish
+     * @param candidates The setups to score
+     * @param pool The setups they play against
+     * @return The score of every candidate, 0..1
+     * @throws InterruptedException If interrupted while waiting for the games
+     */
+    public double[] evaluate(List<byte[]> candidates, List<byte[]> pool) throws InterruptedException {
+
+        int perCandidate = pool.size() * games;
+        int total = candidates.size() * perCandidate;
+
+        // the points are counted in halves, so a draw is a whole one
+        AtomicLongArray halfPoints = new AtomicLongArray(candidates.size());
+        AtomicInteger next = new AtomicInteger();
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+
+            long workerSeed = seed + i;
+            workers[i] = new Thread(() -> {
+
+                Player a = player.apply(workerSeed * 2);
+                Player b = player.apply(workerSeed * 2 + 1);
+
+                for (int game = next.getAndIncrement(); game < total; game = next.getAndIncrement()) {
+
+                    int candidate = game / perCandidate;
+                    int opponent = (game % perCandidate) / games;
+                    boolean light = game % 2 == 0;
+                    long gameSeed = seed ^ (game * 0x9E3779B97F4A7C15L);
+                    a.newGame(gameSeed + 1);
+                    b.newGame(gameSeed + 2);
+                    halfPoints.addAndGet(candidate, play(candidates.get(candidate), pool.get(opponent), light, a, b));
+
+                }
+
+            }, "setups-" + i);
+            workers[i].start();
+
+        }
+        for (Thread worker : workers) { worker.join(); }
+
+        double[] scores = new double[candidates.size()];
+        for (int i = 0; i < scores.length; i++) { scores[i] = halfPoints.get(i) / (2.0 * perCandidate); }
+        return scores;
+
+    }
+
+    /**
+     * Plays a single game between two setups
+     * @param candidate The setup being scored
+     * @param opponent The setup it plays against
+     * @param light Whether the candidate plays Light
+     * @param a The player of the candidate
+     * @param b The player of the opponent
+     * @return The half points of the candidate: 2 for a win, 1 for a draw, and 0 for a loss
+     */
+    private int play(byte[] candidate, byte[] opponent, boolean light, Player a, Player b) {
+
+        GameState s = new GameState();
+        SetupGenerator.apply(s, light, candidate);
+        SetupGenerator.apply(s, !light, opponent);
+        engine.endSetup(s);
+        engine.endSetup(s);
+
+        Player.playOut(engine, s, light ? a : b, light ? b : a, maxPlies);
+        if (s.getGameStage() != 1) { return 1; }
+        return s.hasLightWon() == light ? 2 : 0;
+
+    }
+
+
+}
@@ -0,0 +1,338 @@
+package ai;
+
+import engine.GameState;
+import engine.PieceCode;
+import engine.StrategoEngine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Makes setups, the arrangements of a player's 40 pieces in the four rows on their side, either at random or the way players tend to set up
+ * <p>
+ *     A setup is kept as the strengths of the pieces from the player's own point of view, 10 per row from the back row to the front one, so the same setup
+ *     can be used by either team. Any arrangement of the pieces of the default layout in those rows is valid.
+ * </p>
+ * <p>
+ *     The biased setups put the flag in the back row, most likely with bombs next to it, the other bombs and the miners towards the back, and the scouts
+ *     and the strong pieces towards the front, each drawn at random by how much its kind likes every row.
+ * </p>
+ * <p>
+ *     As text, a setup is written row by row from the back, separated by slashes, with F for the flag, B for bombs, S for the spy, M for the marshal,
+ *     and the strength for everyone else.
+ * </p>
+ */
+public class SetupGenerator {
+
+    /**
+     * The number of rows of a setup
+     */
+    public static final int ROWS = 4;
+
+    /**
+     * The number of pieces of a setup
+     */
+    public static final int PIECES = ROWS * GameState.SIZE;
+
+    /**
+     * The pieces of the default layout of Dark, which is also the setup of either team in it
+     */
+    private static final byte[] DEFAULT = read(new StrategoEngine().newGame(), false);
+
+    /**
+     * How much every kind of piece likes every row, from the back, by rank, for the biased setups
+     */
+    private static final double[][] ROW_WEIGHTS = {
+            {1, 0, 0, 0},           // flag
+            {4, 3, 1, 0.5},         // bomb
+            {1, 2, 3, 2},           // spy
+            {1, 1, 2, 4},           // scout
+            {3, 3, 1, 1},           // miner
+            {1, 2, 3, 3},           // sergeant
+            {1, 2, 3, 3},           // lieutenant
+            {1, 2, 3, 3},           // captain
+            {1, 2, 3, 3},           // major
+            {1, 2, 3, 2},           // colonel
+            {1, 2, 3, 2},           // general
+            {1, 2, 3, 2},           // marshal
+    };
+
+    /**
+     * How much more a bomb likes a square next to the flag, for the biased setups
+     */
+    private static final double NEXT_TO_FLAG = 6;
+
+    /**
+     * The source of randomness
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a generator
+     * @param seed The seed of the setups
+     */
+    public SetupGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Gets the setup of the default layout
+     * @return A new setup
+     */
+    public static byte[] defaultSetup() {
+        return DEFAULT.clone();
+    }
+
+    /**
+     * Makes a setup with the pieces in random places
+     * @return A new setup
+     */
+    public byte[] random() {
+
+        byte[] setup = defaultSetup();
+        for (int i = PIECES - 1; i > 0; i--) {
+
+            int j = random.nextInt(i + 1);
+            byte swap = setup[i];
+            setup[i] = setup[j];
+            setup[j] = swap;
+
+        }
+        return setup;
+
+    }
+
+    /**
+     * Makes a setup the way players tend to set up, see the class description
+     * @return A new setup
+     */
+    public byte[] biased() {
+
+        // the pieces are placed by kind, from the flag up, so the bombs know where the flag is
+        byte[] pieces = defaultSetup();
+        Arrays.sort(pieces);
+
+        byte[] setup = new byte[PIECES];
+        boolean[] taken = new boolean[PIECES];
+        double[] weights = new double[PIECES];
+        int flag = -1;
+
+        for (byte strength : pieces) {
+
+            double total = 0;
+            for (int i = 0; i < PIECES; i++) {
+
+                double w = taken[i] ? 0 : ROW_WEIGHTS[strength + 1][i / GameState.SIZE];
+                if (strength == PieceCode.BOMB && isNextTo(i, flag)) { w *= NEXT_TO_FLAG; }
+                weights[i] = w;
+                total += w;
+
+            }
+
+            // draws a square by its weight
+            double pick = random.nextDouble() * total;
+            int square = -1;
+            for (int i = 0; i < PIECES && pick >= 0; i++) {
+                if (weights[i] > 0) { square = i; pick -= weights[i]; }
+            }
+
+            setup[square] = strength;
+            taken[square] = true;
+            if (strength == PieceCode.FLAG) { flag = square; }
+
+        }
+
+        return setup;
+
+    }
+
+    /**
+     * Makes a setup like another one, with two of its pieces swapped, used for searching around a good setup
+     * @param setup The setup, which isn't changed
+     * @return A new setup
+     */
+    public byte[] mutate(byte[] setup) {
+
+        byte[] mutated = setup.clone();
+
+        // only swaps pieces of different kinds, so the setup really changes
+        int a = random.nextInt(PIECES);
+        int b;
+        do { b = random.nextInt(PIECES); } while (mutated[a] == mutated[b]);
+
+        mutated[a] = setup[b];
+        mutated[b] = setup[a];
+        return mutated;
+
+    }
+
+    /**
+     * Gets how much a kind of piece likes a row, which is also how likely it is to be set up there, see the class description
+     * @param strength The strength of the piece
+     * @param row The row, 0 for the back one
+     * @return The weight, relative to the other rows and kinds
+     */
+    static double rowWeight(int strength, int row) {
+        return ROW_WEIGHTS[strength + 1][row];
+    }
+
+    /**
+     * Gets whether two squares of a setup are next to each other
+     * @param a One square, or -1
+     * @param b The other square, or -1
+     * @return true if they're side by side or one behind the other
+     */
+    private static boolean isNextTo(int a, int b) {
+
+        if (a < 0 || b < 0) { return false; }
+
+        int dx = Math.abs(a % GameState.SIZE - b % GameState.SIZE);
+        int dy = Math.abs(a / GameState.SIZE - b / GameState.SIZE);
+        return dx + dy == 1;
+
+    }
+
+    /**
+     * Gets the square of the game a piece of a setup goes to
+     * @param lightTeam Whether it's the setup of Light, who sets up in the bottom rows
+     * @param i The index of the piece in the setup
+     * @return The square
+     */
+    public static int squareOf(boolean lightTeam, int i) {
+
+        int row = i / GameState.SIZE;
+        return GameState.index(i % GameState.SIZE, lightTeam ? GameState.SIZE - 1 - row : row);
+
+    }
+
+    /**
+     * Reads the setup of a team from a game
+     * @param s The game in the setup stage
+     * @param lightTeam The team
+     * @return A new setup
+     */
+    public static byte[] read(GameState s, boolean lightTeam) {
+
+        byte[] setup = new byte[PIECES];
+        for (int i = 0; i < PIECES; i++) { setup[i] = (byte) PieceCode.strength(s.get(squareOf(lightTeam, i))); }
+        return setup;
+
+    }
+
+    /**
+     * Puts the pieces of a setup in a game, replacing what's in the rows of the team
+     * @param s The game in the setup stage
+     * @param lightTeam The team
+     * @param setup The setup
+     */
+    public static void apply(GameState s, boolean lightTeam, byte[] setup) {
+        for (int i = 0; i < PIECES; i++) { s.set(squareOf(lightTeam, i), PieceCode.of(lightTeam, setup[i])); }
+    }
+
+    /**
+     * Finds the swaps that turn the setup of a team in a game into another one, for when the pieces can only be swapped, like on a board or a server
+     * @param s The game in the setup stage, which isn't changed
+     * @param lightTeam The team
+     * @param setup The setup to turn it into, with the same pieces
+     * @return The swaps as (a &lt;&lt; 8 | b), at most one per piece, in order
+     */
+    public static int[] swapsTo(GameState s, boolean lightTeam, byte[] setup) {
+
+        byte[] current = read(s, lightTeam);
+        int[] swaps = new int[PIECES];
+        int count = 0;
+
+        // puts the right piece on every square in turn, taking it from further on
+        for (int i = 0; i < PIECES; i++) {
+
+            if (current[i] == setup[i]) { continue; }
+
+            int j = i + 1;
+            while (current[j] != setup[i]) { j++; }
+
+            current[j] = current[i];
+            current[i] = setup[i];
+            swaps[count++] = squareOf(lightTeam, i) << 8 | squareOf(lightTeam, j);
+
+        }
+
+        return Arrays.copyOf(swaps, count);
+
+    }
+
+    /**
+     * Gets the letter or digit a kind of piece is written as
+     * @param strength The strength of the piece
+     * @return F for the flag, B for bombs, S for the spy, M for the marshal, and the strength for everyone else
+     */
+    public static char symbol(int strength) {
+
+        return switch (strength) {
+            case PieceCode.FLAG -> 'F';
+            case PieceCode.BOMB -> 'B';
+            case PieceCode.SPY -> 'S';
+            case PieceCode.MARSHAL -> 'M';
+            default -> (char) ('0' + strength);
+        };
+
+    }
+
+    /**
+     * Writes a setup as text
+     * @param setup The setup
+     * @return The text, see the class description
+     */
+    public static String format(byte[] setup) {
+
+        StringBuilder text = new StringBuilder(PIECES + ROWS);
+        for (int i = 0; i < PIECES; i++) {
+
+            if (i > 0 && i % GameState.SIZE == 0) { text.append('/'); }
+            text.append(symbol(setup[i]));
+
+        }
+        return text.toString();
+
+    }
+
+    /**
+     * Reads a setup written as text
+     * @param text The text, see the class description
+     * @return The setup
+     * @throws IllegalArgumentException If it isn't a setup, or it doesn't have the pieces of the default layout
+     */
+    public static byte[] parse(String text) {
+
+        String pieces = text.trim().replace("/", "");
+        if (pieces.length() != PIECES) { throw new IllegalArgumentException("Not a setup: " + text); }
+
+        byte[] setup = new byte[PIECES];
+        for (int i = 0; i < PIECES; i++) {
+
+            char c = pieces.charAt(i);
+            setup[i] = switch (c) {
+                case 'F' -> PieceCode.FLAG;
+                case 'B' -> PieceCode.BOMB;
+                case 'S' -> PieceCode.SPY;
+                case 'M' -> PieceCode.MARSHAL;
+                default -> {
+                    if (c < '2' || c > '9') { throw new IllegalArgumentException("Not a piece: " + c); }
+                    yield (byte) (c - '0');
+                }
+            };
+
+        }
+
+        // the pieces have to be the same as in the default layout
+        byte[] sorted = setup.clone();
+        byte[] expected = defaultSetup();
+        Arrays.sort(sorted);
+        Arrays.sort(expected);
+        if (!Arrays.equals(sorted, expected)) { throw new IllegalArgumentException("Not the pieces of a setup: " + text); }
+
+        return setup;
+
+    }
+
+
+}
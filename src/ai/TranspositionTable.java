@@ -0,0 +1,136 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the results of searched positions by their Zobrist hash, shared by all the threads of a search without any locking
+ * <p>
+ *     Every entry is two longs: the packed result, and the hash XORed with the result. Threads can overwrite each other's entries halfway,
+ *     but then the hash won't match anymore when read back, so a torn entry is just a miss.
+ * </p>
+ * <p>
+ *     A result holds the score in the lowest 32 bits, then 8 bits of depth, 2 bits of the kind of bound, and 16 bits of the best move.
+ * </p>
+ */
+class TranspositionTable {
+
+    /**
+     * The kind of bound of a score that is exact
+     */
+    static final int EXACT = 0;
+
+    /**
+     * The kind of bound of a score that is at least as good as stored, the search stopped after finding a good enough move
+     */
+    static final int LOWER = 1;
+
+    /**
+     * The kind of bound of a score that is at most as good as stored, no move reached the lower end of the window
+     */
+    static final int UPPER = 2;
+
+    /**
+     * The hashes of the entries, XORed with their results
+     */
+    private final long[] keys;
+
+    /**
+     * The packed results of the entries, 0 if there's no entry
+     */
+    private final long[] results;
+
+    /**
+     * The number of entries minus one, used to find the entry of a hash
+     */
+    private final int mask;
+
+    /**
+     * Constructs an empty table
+     * @param bits The table has 2 to the power of this many entries
+     */
+    TranspositionTable(int bits) {
+
+        this.keys = new long[1 << bits];
+        this.results = new long[1 << bits];
+        this.mask = (1 << bits) - 1;
+
+    }
+
+    /**
+     * Empties the table
+     */
+    void clear() {
+
+        Arrays.fill(keys, 0);
+        Arrays.fill(results, 0);
+
+    }
+
+    /**
+     * Looks up the result of a position
+     * @param hash The hash of the position
+     * @return The packed result, 0 if the position isn't in the table
+     */
+    long probe(long hash) {
+
+        int i = (int) hash & mask;
+        long result = results[i];
+        return (keys[i] ^ result) == hash ? result : 0;
+
+    }
+
+    /**
+     * Stores the result of a position, replacing whatever was in its entry
+     * @param hash The hash of the position
+     * @param depth How deep the position was searched, at least 1
+     * @param bound The kind of bound the score is
+     * @param score The score
+     * @param move The best move found, 0 if there's none
+     */
+    void store(long hash, int depth, int bound, int score, int move) {
+
+        int i = (int) hash & mask;
+        long result = (score & 0xFFFFFFFFL) | (long) depth << 32 | (long) bound << 40 | (long) move << 42;
+        results[i] = result;
+        keys[i] = hash ^ result;
+
+    }
+
+    /**
+     * Gets the score of a result
+     * @param result The packed result
+     * @return The score
+     */
+    static int score(long result) {
+        return (int) result;
+    }
+
+    /**
+     * Gets the depth of a result
+     * @param result The packed result
+     * @return How deep the position was searched
+     */
+    static int depth(long result) {
+        return (int) (result >>> 32) & 0xFF;
+    }
+
+    /**
+     * Gets the kind of bound of a result
+     * @param result The packed result
+     * @return {@link #EXACT}, {@link #LOWER}, or {@link #UPPER}
+     */
+    static int bound(long result) {
+        return (int) (result >>> 40) & 3;
+    }
+
+    /**
+     * Gets the best move of a result
+     * @param result The packed result
+     * @return The move as (from &lt;&lt; 8 | to), 0 if there's none
+     */
+    static int move(long result) {
+        return (int) (result >>> 42) & 0xFFFF;
+    }
+
+
+}
@@ -1,6 +1,15 @@
 package board;
 
+import ai.Beliefs;
+import engine.GameEngine;
+import engine.GameState;
+import engine.History;
+import engine.MoveGenerator;
+import engine.PieceCode;
+import engine.StrategoEngine;
 import gui.GameWindow;
+import helper.Journal;
+import net.Protocol;
 import pieces.*;
 
 import javax.swing.*;
@@ -8,14 +17,29 @@ import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.Vector;
+
+import static board.legacy.Field.copyPieces;
 
 /**
  * Implements the board as an extension to a JPanel
  * <p>
- *     Houses the fields on which the pieces stand
+ *     Houses the fields on which the pieces stand. The game itself lives in a {@link GameState}, and all the rules are left to a {@link GameEngine},
+ *     the fields and pieces only mirror that state so it can be drawn and dragged around.
+ * </p>
+ * <p>
+ *     The board is a single canvas, a {@link BoardRenderer} draws all the fields on it, and finds the field under the cursor.
+ * </p>
+ * <p>
+ *     Everything done on the board goes through a {@link History}, so it can be undone and redone any number of times.
+ * </p>
+ * <p>
+ *     While the game is played here, each team's {@link Beliefs} follow what the other can tell about its pieces, and can be shown over the hidden ones.
+ *     They can only follow moves forwards, so undoing or redoing follows the moves still done again from where the playing stage started,
+ *     and replacing the game starts them over from what's revealed in it.
  * </p>
  * <p>
  *     Also handles mouse events and all that :)
@@ -40,9 +64,14 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
     private GameWindow gameWindow;
 
     /**
-     * Whether it is Light's turn
+     * The state of the game, which the fields mirror
      */
-    private boolean lightTurn;
+    private GameState state;
+
+    /**
+     * The rules the game is played by
+     */
+    private final GameEngine engine;
 
     /**
      * The piece that's "picked up" by the cursor
@@ -55,121 +84,206 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
     private Point currPos;
 
     /**
-     * The current game stage, -1 if players are setting up, 0 if playing, and 1 if somebody has won
+     * The squares the "picked up" piece can move to, as a 100-bit mask: squares 0..63 in the first long, and 64..99 in the second
+     */
+    private final long[] highlighted;
+
+    /**
+     * Buffer reused for finding the valid moves of the "picked up" piece
+     */
+    private final int[] moves;
+
+    /**
+     * The inverses of everything done in the game, for undoing and redoing
+     */
+    private final transient History history;
+
+    /**
+     * What the other team can tell about the pieces of every team, Light's at 1, or null outside of the playing stage
+     */
+    private final transient Beliefs[] beliefs;
+
+    /**
+     * Whether the beliefs are shown over the hidden pieces
      */
-    private int gameStage;
+    private transient boolean showingBeliefs;
 
     /**
-     * Whether the current player has started their turn by clicking on either pond
+     * Draws the fields and the pieces on them
      */
-    private boolean startedTurn;
+    private final transient BoardRenderer renderer;
 
     /**
-     * Constructs the board, places the fields and pieces, and sets some values
+     * Draws the "picked up" piece over a snapshot of the window while dragging, if the board is in a window
+     */
+    private final transient DragLayer dragLayer;
+
+    /**
+     * Constructs the board with a new game, places the fields and pieces, and sets some values
      * @param g The window in which the board will be
      */
     public Board(GameWindow g) {
+        this(g, null);
+    }
+
+    /**
+     * Constructs the board for a given game, places the fields and pieces, and sets some values
+     * @param g The window in which the board will be
+     * @param s The state of the game, for example loaded from file, or null to start a new game
+     */
+    public Board(GameWindow g, GameState s) {
 
         this.gameWindow = g;
         this.board = new Field[10][10];
-        this.gameStage = -1;
-        this.startedTurn = true;
+        this.engine = new StrategoEngine();
+        this.state = (s != null) ? s : engine.newGame();
+        this.highlighted = new long[2];
+        this.moves = new int[MoveGenerator.MAX_MOVES];
+        this.history = new History(engine);
+        this.beliefs = new Beliefs[2];
+        this.renderer = new BoardRenderer(this);
+        this.dragLayer = new DragLayer();
 
-        setLayout(new GridLayout(10, 10, 0, 0));
+        setLayout(null);
 
         this.addMouseListener(this);
         this.addMouseMotionListener(this);
 
-        // creates all the fields and adds them to the right location
+        // creates all the fields, which are drawn in place by the renderer
         for (int y = 0; y <= 9; y++) {
             for (int x = 0; x <= 9; x++) {
                 boolean color = ((x + y) % 2) == 0;
                 board[y][x] = new Field(this, new Point(x,y), color);
-                this.add(board[y][x]);
             }
         }
 
         this.setPreferredSize(new Dimension(600,600));
-        this.setMinimumSize(this.getPreferredSize());
-        this.setMaximumSize(this.getPreferredSize());
+        this.setMinimumSize(new Dimension(300,300));
         this.setSize(this.getPreferredSize());
 
-        lightTurn = true;
-
         placePieces();
+        rebuildBeliefs();
 
-        // after loading, sets everything correctly
-        if (gameStage == 0) {
-            startedTurn = false;
-            if (gameWindow != null) gameWindow.setTitle("Stratego! - " + (lightTurn ? "Light" : "Dark") + "'s turn, click either pond to start");
-            repaint();
+    }
+
+    /**
+     * Places a piece on every field that has one in the state, and clears the others, as part of the board initialization
+     */
+    private void placePieces() {
+
+        for (int y = 0; y <= 9; y++) {
+            for (int x = 0; x <= 9; x++) {
+                byte code = state.get(GameState.index(x, y));
+                board[y][x].place(code != PieceCode.EMPTY ? Piece.of(code) : null);
+                board[y][x].setDisplay(true);
+            }
         }
 
     }
 
     /**
-     * Places all the pieces on their default fields as part of the board initialization
+     * Replaces the whole game, like when a server sends its new state, dropping any "picked up" piece
+     * @param s The new state of the game
      */
-    private void placePieces() {
+    public void setState(GameState s) {
 
-        // -1 flags x1
-        board[0][0].accept(new Flag(false));
-        board[9][9].accept(new Flag(true));
+        this.state = s;
+        history.clear();
+        dragLayer.stop();
+        currPiece = null;
+        clearHighlighted();
 
-        // 0 bombs x6
-        for (int i = 1; i <= 6; i++) { board[0][i].accept(new Bomb(false)); }
-        for (int i = 8; i >= 3; i--) { board[9][i].accept(new Bomb(true)); }
+        placePieces();
+        rebuildBeliefs();
+        repaint();
 
-        // 1 spies x1
-        board[0][7].accept(new Spy(false));
-        board[9][2].accept(new Spy(true));
+    }
 
-        // 2 scouts x8
-        board[0][8].accept(new Scout(false));
-        board[0][9].accept(new Scout(false));
-        board[9][1].accept(new Scout(true));
-        board[9][0].accept(new Scout(true));
-        for (int i = 0; i <= 5; i++) { board[1][i].accept(new Scout(false)); }
-        for (int i = 9; i >= 4; i--) { board[8][i].accept(new Scout(true)); }
+    /**
+     * Finds what every team can tell about the other's pieces, if the game is being played, by following the moves still done since the playing stage started
+     * <p>
+     *     The computer opponent, if there's one, follows the game the same way, so it learns everything again after undoing, redoing, or loading.
+     * </p>
+     */
+    private void rebuildBeliefs() {
 
-        // 3 miners x5
-        for (int i = 6; i <= 9; i++) { board[1][i].accept(new Miner(false)); }
-        for (int i = 3; i >= 0; i--) { board[8][i].accept(new Miner(true)); }
-        board[2][0].accept(new Miner(false));
-        board[7][9].accept(new Miner(true));
+        if (state.getGameStage() != 0) {
+            beliefs[0] = null;
+            beliefs[1] = null;
+            return;
+        }
 
-        // 4 sergeants x4
-        for (int i = 1; i <= 4; i++) { board[2][i].accept(new Piece(false, 4)); }
-        for (int i = 8; i >= 5; i--) { board[7][i].accept(new Piece(true, 4)); }
+        GameState start = history.startOfPlay(state);
+        beliefs[0] = new Beliefs(start, false);
+        beliefs[1] = new Beliefs(start, true);
+        for (Beliefs b : beliefs) { history.forEachMove(b); }
 
-        // 5 lieutenants x4
-        for (int i = 5; i <= 8; i++) { board[2][i].accept(new Piece(false, 5)); }
-        for (int i = 4; i >= 1; i--) { board[7][i].accept(new Piece(true, 5)); }
+        if (gameWindow != null) {
+            gameWindow.startPlay(start);
+            history.forEachMove(gameWindow::observe);
+        }
+
+    }
+
+    /**
+     * Shows or hides the beliefs over the hidden pieces
+     */
+    public void toggleBeliefs() {
 
-        // 6 captains x4
-        board[2][9].accept(new Piece(false, 6));
-        board[7][0].accept(new Piece(true, 6));
-        for (int i = 0; i <= 2; i++) { board[3][i].accept(new Piece(false, 6)); }
-        for (int i = 9; i >= 7; i--) { board[6][i].accept(new Piece(true, 6)); }
+        showingBeliefs = !showingBeliefs;
+        repaint();
 
-        // 7 majors x3
-        for (int i = 3; i <= 5; i++) { board[3][i].accept(new Piece(false, 7)); }
-        for (int i = 6; i >= 4; i--) { board[6][i].accept(new Piece(true, 7)); }
+    }
 
-        // 8 colonels x2
-        for (int i = 6; i <= 7; i++) { board[3][i].accept(new Piece(false, 8)); }
-        for (int i = 3; i >= 2; i--) { board[6][i].accept(new Piece(true, 8)); }
+    /**
+     * Gets what the other team can tell about the pieces of a team, if it's shown
+     * @param lightTeam The team
+     * @return The beliefs, or null if they aren't shown, or the game isn't being played
+     */
+    public Beliefs getBeliefs(boolean lightTeam) {
+        return showingBeliefs ? beliefs[lightTeam ? 1 : 0] : null;
+    }
 
-        // 9 generals x1
-        board[3][8].accept(new Piece(false, 9));
-        board[6][1].accept(new Piece(true, 9));
+    /**
+     * Reads a board serialized as a whole, which is how games used to be saved
+     * <p>
+     *     Older versions kept the turn and stage in the board itself, and the pieces only on the fields, so if there's no state in the stream, it's rebuilt from those.
+     *     Which pieces were revealed is read from the pieces, which used to store that themselves.
+     *     The fields were components back then, so they're read as {@link board.legacy.Field legacy fields}, see {@link helper.FileIO#importSerialized}.
+     * </p>
+     * @param in The ObjectInputStream serialized reading uses
+     * @throws IOException If it can't read the board for some reason
+     * @throws ClassNotFoundException If it can't find the class of something on the board
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
 
-        // 10 marshals x1
-        board[3][9].accept(new Piece(false, 10));
-        board[6][0].accept(new Piece(true, 10));
+        ObjectInputStream.GetField fields = in.readFields();
+        this.state = (GameState) fields.get("state", null);
+
+        // rebuilds the state of an older save
+        if (state == null) {
+
+            state = new GameState();
+            state.setLightTurn(fields.get("lightTurn", true));
+            state.setGameStage(fields.get("gameStage", -1));
+            state.setStartedTurn(fields.get("startedTurn", true));
+
+            copyPieces(fields.get("board", null), state);
+
+        }
 
     }
 
+    /**
+     * Replaces a deserialized board with a properly constructed one, as reading only restores the state
+     * @return A new board for the read state, without a window yet
+     */
+    @Serial
+    private Object readResolve() {
+        return new Board(null, state);
+    }
+
     /**
      * Checks whether a piece could move to a given point.
      * <p>
@@ -180,35 +294,267 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
      * @return true if valid, false otherwise
      */
     public boolean canStepHere(Point p, boolean team) {
+        return engine.canStepHere(state, p.x, p.y, team);
+    }
+
+    /**
+     * Moves the piece on a field to another, resolving any conflict, and mirrors the result on the fields
+     * <p>
+     *     In a game on a server, the move is only sent there, so it's always taken as {@link GameEngine#MOVED} here, and the fields change once the server answers.
+     * </p>
+     * @param from The field of the moving piece
+     * @param to The chosen field to move to
+     * @return The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    public int move(Field from, Field to) {
+
+        clearHighlighted();
+
+        // in a game on a server, the server makes the move, and sends back the new state
+        if (isRemote()) {
+            gameWindow.send(Protocol.MOVE, from.getIndex(), to.getIndex());
+            return GameEngine.MOVED;
+        }
+
+        Piece moving = from.getPiece();
+        byte attacker = state.get(from.getIndex());
+        byte defender = state.get(to.getIndex());
+        int outcome = history.applyMove(state, from.getIndex(), to.getIndex());
+
+        // both teams learn from the move
+        for (Beliefs b : beliefs) { if (b != null) { b.observe(from.getIndex(), to.getIndex(), attacker, defender, outcome); } }
+
+        switch (outcome) {
+
+            case GameEngine.MOVED, GameEngine.ATTACKER_WINS, GameEngine.FLAG_CAPTURED -> { from.place(null); to.place(moving); }
+
+            case GameEngine.BOTH_REMOVED -> { from.place(null); to.place(null); }
+
+        }
+
+        if (outcome == GameEngine.ILLEGAL || gameWindow == null) { return outcome; }
+
+        // records the move along with its outcome, and lets the computer opponent learn from it too
+        gameWindow.record(outcome, from.getIndex(), to.getIndex());
+        gameWindow.observe(from.getIndex(), to.getIndex(), attacker, defender, outcome);
+
+        // shows who won, or whose turn it is now, and lets the computer move if it's its turn
+        if (state.getGameStage() == 1) {
+            gameWindow.setTitle("Stratego! - " + (state.hasLightWon() ? "Light" : "Dark") + " Wins!");
+        } else {
+            gameWindow.setTitle("Stratego! - " + (isLightTurn() ? "Light" : "Dark") + "'s turn, click either pond to start");
+            gameWindow.nextTurn();
+        }
+
+        return outcome;
+
+    }
 
-        int x = p.x;
-        int y = p.y;
+    /**
+     * Plays a move of the computer: starts its turn, and makes the move
+     * <p>
+     *     If it can't move at all, the other player wins.
+     * </p>
+     * @param move The move as (from &lt;&lt; 8 | to), or -1 if there's no valid move
+     * @return The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    public int play(int move) {
+
+        if (state.getGameStage() != 0) { return GameEngine.ILLEGAL; }
 
-        boolean onMap = (x >= 0 && x <= 9 && y >= 0 && y <= 9);
-        boolean notInPonds = !(x >= 2 && x <= 3 && y >= 4 && y <= 5) && !(x >= 6 && x <= 7 && y >= 4 && y <= 5);
+        startTurn();
 
-        boolean noTeammateHere = true;
-        if (onMap && !(board[y][x].isEmpty())) { noTeammateHere = (team != board[y][x].getPiece().isLightTeam()); }
+        // a player who can't move loses
+        if (move < 0) {
 
-        return onMap && notInPonds && noTeammateHere;
+            history.win(state, !state.isLightTurn());
+            if (gameWindow != null) {
+                gameWindow.record(Journal.WIN, state.hasLightWon() ? 1 : 0, 0);
+                gameWindow.setTitle("Stratego! - " + (state.hasLightWon() ? "Light" : "Dark") + " Wins!");
+                gameWindow.save();
+            }
+            repaint();
+            return GameEngine.ILLEGAL;
+
+        }
+
+        int outcome = move(board[(move >> 8) / 10][(move >> 8) % 10], board[(move & 0xFF) / 10][(move & 0xFF) % 10]);
+        repaint();
+        return outcome;
 
     }
 
+    /**
+     * Finishes the current player's setup, and lets the computer set up if it's its turn
+     */
+    public void endSetup() {
+
+        if (state.getGameStage() != -1) { return; }
+        if (isRemote()) { gameWindow.send(Protocol.END_SETUP, 0, 0); return; }
+
+        // which pieces are shown changes, so everything is repainted
+        history.endSetup(state);
+        rebuildBeliefs();
+        repaint();
+        if (gameWindow == null) { return; }
+        gameWindow.record(Journal.END_SETUP, 0, 0);
+
+        // if finished the first time, it's Dark's setup turn, and if finished the second time, it's Light's first normal turn
+        gameWindow.setTitle(state.getGameStage() == -1 ? "Stratego! - Dark sets up, A for auto-setup, click either pond when finished" : "Stratego! - Light's turn, click either pond to start");
+        gameWindow.nextTurn();
+
+    }
+
+    /**
+     * Starts the current player's turn
+     */
+    public void startTurn() {
+
+        // the turns of a game on a server are always started, as nobody else is looking at the screen
+        if (isRemote()) { return; }
+
+        engine.startTurn(state);
+        if (gameWindow != null) {
+            gameWindow.setTitle("Stratego! - " + (state.isLightTurn() ? "Light" : "Dark") + "'s turn");
+            gameWindow.record(Journal.START_TURN, 0, 0);
+        }
+
+    }
+
+    /**
+     * Swaps two pieces during the setup phase, and mirrors the result on the fields
+     * @param a The field of one piece
+     * @param b The field of the other piece
+     * @return Whether the swap was allowed
+     */
+    public boolean swap(Field a, Field b) {
+
+        clearHighlighted();
+        if (isRemote()) { gameWindow.send(Protocol.SWAP, a.getIndex(), b.getIndex()); return true; }
+
+        Piece first = a.getPiece();
+        Piece second = b.getPiece();
+        if (!history.swap(state, a.getIndex(), b.getIndex())) { return false; }
+
+        a.place(second);
+        b.place(first);
+        if (gameWindow != null) { gameWindow.record(Journal.SWAP, a.getIndex(), b.getIndex()); }
+        return true;
+
+    }
+
+    /**
+     * Undoes the last thing done in the game, which isn't possible in a game on a server
+     * @return Whether there was anything to undo
+     */
+    public boolean undo() {
+
+        if (isRemote() || !history.undo(state)) { return false; }
+        changedHistory(Journal.UNDO);
+        return true;
+
+    }
+
+    /**
+     * Does the last undone thing in the game again
+     * @return Whether there was anything to redo
+     */
+    public boolean redo() {
+
+        if (isRemote() || !history.redo(state)) { return false; }
+        changedHistory(Journal.REDO);
+        return true;
+
+    }
+
+    /**
+     * Mirrors a game that was changed by undoing or redoing on the fields, records it, and saves it, as recovering can't undo past the last snapshot
+     * @param kind The kind of the record, {@link Journal#UNDO} or {@link Journal#REDO}
+     */
+    private void changedHistory(int kind) {
+
+        dragLayer.stop();
+        currPiece = null;
+        clearHighlighted();
+        placePieces();
+        rebuildBeliefs();
+        repaint();
+
+        if (gameWindow != null) {
+            gameWindow.record(kind, 0, 0);
+            gameWindow.setTurnTitle();
+            gameWindow.save();
+        }
+
+    }
+
+    /**
+     * Gets whether the game is played on a server, in which case everything the player does is sent there instead of being done here
+     * @return true if the board's window is connected to a server
+     */
+    private boolean isRemote() {
+        return gameWindow != null && gameWindow.isRemote();
+    }
+
+    /**
+     * Gets whether the pieces of a team are shown to whoever is looking at the board, apart from the revealed ones
+     * <p>
+     *     When two people share the screen, the pieces of the current player are shown once they started their turn.
+     *     In a game on a server, the pieces of the team it's seen from are always shown, and the others never are. In a replay, every piece is shown.
+     * </p>
+     * @param lightTeam The team
+     * @return true if its pieces are shown
+     */
+    public boolean shows(boolean lightTeam) {
+
+        if (isRemote()) { return gameWindow.sees(lightTeam); }
+        if (gameWindow != null && gameWindow.isReplay()) { return true; }
+        return state.hasStartedTurn() && state.isLightTurn() == lightTeam;
+
+    }
+
+    /**
+     * Finds the valid moves of a piece once, and stores them as the highlighted squares until the board changes
+     * @param from The field of the piece
+     */
+    private void findHighlighted(Field from) {
+
+        clearHighlighted();
+
+        int count = engine.legalMoves(state, from.getIndex(), moves);
+        for (int i = 0; i < count; i++) {
+            highlighted[moves[i] >> 6] |= 1L << (moves[i] & 63);
+        }
+
+    }
+
+    /**
+     * Clears the highlighted squares
+     */
+    private void clearHighlighted() {
+        highlighted[0] = 0;
+        highlighted[1] = 0;
+    }
+
+    /**
+     * Gets whether a square is highlighted as a valid move of the "picked up" piece
+     * @param square The index of the square
+     * @return true if the piece can move there
+     */
+    public boolean isHighlighted(int square) {
+        return (highlighted[square >> 6] & (1L << (square & 63))) != 0;
+    }
+
     /**
      * Reveals everything, and sets the game to stage 1, which effectively freezes everything
      * @param by The winning piece that stepped on the enemy flag
      */
     public void win(Piece by) {
 
-        for (int y = 0; y <= 9; y++) {
-            for (int x = 0; x <= 9; x++) {
-                if (board[y][x].getPiece() != null) {
-                    board[y][x].getPiece().setRevealed(true);
-                }
-            }
+        if (state.getGameStage() != 1) {
+            history.win(state, by.isLightTeam());
+            if (gameWindow != null) { gameWindow.record(Journal.WIN, by.isLightTeam() ? 1 : 0, 0); }
         }
-
-        this.gameStage = 1;
         if (gameWindow != null) gameWindow.setTitle("Stratego! - " + (by.isLightTeam() ? "Light" : "Dark") + " Wins!");
 
     }
@@ -221,12 +567,28 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
         return board;
     }
 
+    /**
+     * Getter for state
+     * @return The state of the game
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Getter for engine
+     * @return The rules the game is played by
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
     /**
      * Getter for lightTurn
      * @return Whether it is the Light player's turn
      */
     public boolean isLightTurn() {
-        return lightTurn;
+        return state.isLightTurn();
     }
 
     /**
@@ -234,7 +596,7 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
      * @return Whether the player has started their current turn
      */
     public boolean hasStartedTurn() {
-        return startedTurn;
+        return state.hasStartedTurn();
     }
 
     /**
@@ -242,15 +604,16 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
      * @return The current game stage
      */
     public int getGameStage() {
-        return gameStage;
+        return state.getGameStage();
     }
 
     /**
-     * Setter for gameStage
+     * Setter for gameStage, which also starts or stops following the game if that starts or ends its playing stage
      * @param gameStage The new game stage
      */
     public void setGameStage(int gameStage) {
-        this.gameStage = gameStage;
+        state.setGameStage(gameStage);
+        rebuildBeliefs();
     }
 
     /**
@@ -262,201 +625,239 @@ public class Board extends JPanel implements Serializable, MouseListener, MouseM
     }
 
     /**
-     * Draws the board and everything on it
+     * Draws the board and everything on it, skipping the fields outside the area being repainted
      * @param g the <code>Graphics</code> object to protect
      */
     @Override
     public void paintComponent(Graphics g) {
 
-        // for every field on the board
-        for (int y = 0; y <= 9; y++) {
-            for (int x = 0; x <= 9; x++) {
+        // draws the fields, with every valid field of the "picked up" piece highlighted
+        renderer.paint(g);
 
-                Field f = board[y][x];
+        // if the cursor "picks up" a piece, and it isn't drawn over the window instead, then
+        if (isDragging() && !dragLayer.isActive()) {
 
-                // if there's a piece "picked up" by the cursor then
-                if (gameStage == 0 && currPiece != null) {
+            // draw that
+            int size = renderer.squareSize();
+            g.drawImage(currPiece.getImg(renderer.pixels()), currPos.x, currPos.y, size, size, null);
 
-                    // finds the valid moves of that piece
-                    Vector<Field> validMoves = currPiece.findValidMoves(this);
-                    // and draws every valid field as highlighted and others normally
-                    f.paintComponent(g, validMoves.contains(f));
+        }
 
-                // or otherwise
-                } else {
+    }
 
-                    // draws every field normally
-                    f.paintComponent(g, false);
+    /**
+     * Finds the field under a point of the board
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @return The field, or null if the point isn't on the board
+     */
+    public Field fieldAt(int x, int y) {
 
-                }
+        int square = renderer.squareAt(x, y);
+        return (square < 0) ? null : board[square / 10][square % 10];
 
-            }
-        }
+    }
+
+    /**
+     * Gets whether a "picked up" piece is being drawn under the cursor
+     * @return true if there's a piece picked up that can move, or can be swapped during setup
+     */
+    private boolean isDragging() {
+        return currPiece != null && (currPiece.getMaxMovement() != 0 || state.getGameStage() == -1);
+    }
 
-        // if the cursor "picks up" a piece then
-        if (currPiece != null && (currPiece.getMaxMovement() != 0 || gameStage == -1)) {
+    /**
+     * Starts drawing the "picked up" piece on the glass pane of the window, over a snapshot of the board as it is now, if the board is in a window
+     */
+    private void startDragLayer() {
 
-            // draw that
-            final Image img = currPiece.getImg();
-            g.drawImage(img, currPos.x, currPos.y, null);
+        JRootPane root = SwingUtilities.getRootPane(this);
+        if (!isDragging() || root == null) { return; }
+
+        if (root.getGlassPane() != dragLayer) { root.setGlassPane(dragLayer); }
+        dragLayer.start(root.getLayeredPane(), currPiece.getImg(renderer.pixels()), renderer.squareSize(), SwingUtilities.convertPoint(this, currPos, root.getLayeredPane()));
+
+    }
+
+    /**
+     * Repaints a single field
+     * @param square The index of the field
+     */
+    private void repaintSquare(int square) {
+
+        int size = renderer.squareSize();
+        repaint(renderer.left() + square % 10 * size, renderer.top() + square / 10 * size, size, size);
+
+    }
+
+    /**
+     * Repaints the fields in a 100-bit mask, like the highlighted ones
+     * @param low The bits of squares 0..63
+     * @param high The bits of squares 64..99
+     */
+    private void repaintSquares(long low, long high) {
+
+        for (long bits = low; bits != 0; bits &= bits - 1) { repaintSquare(Long.numberOfTrailingZeros(bits)); }
+        for (long bits = high; bits != 0; bits &= bits - 1) { repaintSquare(64 + Long.numberOfTrailingZeros(bits)); }
+
+    }
+
+    /**
+     * Repaints the area of the "picked up" piece drawn under the cursor, if there's one
+     */
+    private void repaintDragged() {
 
+        if (isDragging() && !dragLayer.isActive()) {
+            int size = renderer.squareSize();
+            repaint(currPos.x, currPos.y, size, size);
         }
 
     }
 
     /**
      * Figures out what to do at the moment when the mouse is pressed down
+     * <p>
+     *     Only the fields that change are repainted, unless a pond is clicked, which changes which pieces are shown.
+     * </p>
      * @param e the event to be processed
      */
     @Override
     public void mousePressed(MouseEvent e) {
 
-        // clears the current piece to ensure a clean slate
+        // clears the current piece to ensure a clean slate, remembering what was highlighted to repaint it
+        long oldLow = highlighted[0];
+        long oldHigh = highlighted[1];
+        repaintDragged();
+        dragLayer.stop();
         currPiece = null;
+        clearHighlighted();
+
+        // the player can't do anything while the computer or the other player on the server is on the move
+        if (gameWindow != null && gameWindow.isWaiting()) { repaintSquares(oldLow, oldHigh); return; }
 
         // sets the draw position to be under the cursor
-        this.currPos = new Point(e.getX() - 30 ,e.getY() - 30);
+        int half = renderer.squareSize() / 2;
+        this.currPos = new Point(e.getX() - half, e.getY() - half);
 
-        // gets the field under the cursor
-        Field f = (Field) this.getComponentAt(new Point(e.getX(), e.getY()));
+        // gets the field under the cursor, if there's one
+        Field f = fieldAt(e.getX(), e.getY());
+        if (f == null) { repaintSquares(oldLow, oldHigh); return; }
 
-        // if the game hasn't ended, the turn has started, and there is a piece under the cursor then
-        if (this.gameStage < 1 && startedTurn && !f.isEmpty()) {
+        // if the game hasn't ended, the turn has started, and there is a piece of the current player under the cursor then
+        if (state.getGameStage() < 1 && state.hasStartedTurn() && !f.isEmpty() && f.getPiece().isLightTeam() == state.isLightTurn()) {
 
             // makes the cursor "pick up" that piece
             currPiece = f.getPiece();
 
-            // if the piece isn't the current player's piece, puts it back down
-            if ((currPiece.isLightTeam() != lightTurn) ) { currPiece = null; return; }
-
             // and if the piece can move, or if the game is in the setup phase then
-            if (currPiece.getMaxMovement() != 0 || this.gameStage == -1) {
+            if (isDragging()) {
 
                 f.setDisplay(false);
 
             }
 
+            // finds where it can move once, which is reused for every frame of the drag and for the drop
+            if (state.getGameStage() == 0) { findHighlighted(f); }
+
         }
 
         // if the field under the cursor is in either pond then
-        int x = f.getPos().x;
-        int y = f.getPos().y;
-        boolean inPonds = (x >= 2 && x <= 3 && y >= 4 && y <= 5) ||
-                (x >= 6 && x <= 7 && y >= 4 && y <= 5);
-        if (inPonds) {
-
-            // and if the game is in the setup phase, then
-            if (gameStage == -1) {
-
-                // if clicked the first time then
-                if (lightTurn) {
+        if (engine.isPond(f.getPos().x, f.getPos().y)) {
 
-                    // transitions to Dark's setup turn
-                    if (gameWindow != null) gameWindow.setTitle("Stratego! - Dark sets up, click either pond when finished");
-                    lightTurn = false;
+            // and if the game is in the setup phase, then finishes the current player's setup
+            if (state.getGameStage() == -1) {
 
-                // and if clicked the second time then
-                } else {
+                endSetup();
 
-                    // transitions to Light's first normal turn
-                    if (gameWindow != null) gameWindow.setTitle("Stratego! - Light's turn, click either pond to start");
-                    lightTurn = true;
-                    startedTurn = false;
-                    gameStage = 0;
+            // or if the game is already in the playing phase, then starts the current turn
+            } else if (state.getGameStage() == 0) {
 
-                }
-
-            // or if the game is already in the playing phase, then
-            } else if (gameStage == 0) {
-
-                // start the current turn
-                if (gameWindow != null) gameWindow.setTitle("Stratego! - " + (lightTurn ? "Light" : "Dark") + "'s turn");
-                startedTurn = true;
+                startTurn();
 
             }
 
+            repaint();
+            return;
+
         }
 
-        repaint();
+        // otherwise only the old and new highlights, the field of the piece, and the piece under the cursor changed
+        repaintSquares(oldLow | highlighted[0], oldHigh | highlighted[1]);
+        repaintSquare(f.getIndex());
+        repaintDragged();
+
+        // and while dragging, the piece is drawn over a snapshot of the board with those changes
+        startDragLayer();
 
     }
 
     /**
      * Figures out what to do when the mouse is released
+     * <p>
+     *     Only the fields that change are repainted, unless a move was made, which passes the turn and so changes which pieces are shown.
+     * </p>
      * @param e the event to be processed
      */
     @Override
     public void mouseReleased(MouseEvent e) {
 
+        // the highlights and the piece under the cursor go away either way
+        repaintSquares(highlighted[0], highlighted[1]);
+        repaintDragged();
+        dragLayer.stop();
+
         // if there's a piece picked up then
         if (currPiece != null) {
 
-            // finds the chosen field, aka where the mouse was released, and stops if none is found
-            Field chosen = (Field) this.getComponentAt(new Point(e.getX(), e.getY()));
-            if (chosen == null) { currPiece.getField().setDisplay(true); currPiece = null; repaint(); return; }
-
-            // if in setup phase, handles swapping
-            if (this.gameStage == -1) {
-
-                // if the player's trying to swap pieces in the correct half
-                boolean inLightHalf = chosen.getPos().y >= 6 && chosen.getPos().y <= 9;
-                boolean inDarkHalf = chosen.getPos().y >= 0 && chosen.getPos().y <= 3;
-                if ( (inLightHalf && chosen.getPiece().isLightTeam()) || (inDarkHalf && !chosen.getPiece().isLightTeam()) ) {
-
-                    Field f = currPiece.getField();
-                    Piece temp = currPiece;
-                    f.accept(chosen.remove());
-                    chosen.accept(temp);
-
-                    f.setDisplay(true);
-
-                }
-
-            }
-
-            // if in playing phase, handles movement
-            if (this.gameStage == 0) {
+            // the field the piece was picked up from
+            Field from = currPiece.getField();
+            from.setDisplay(true);
+            repaintSquare(from.getIndex());
 
-                // shows all the valid spots to move to
-                Vector<Field> validMoves = currPiece.findValidMoves(this);
+            // finds the chosen field, aka where the mouse was released, if there's one
+            Field chosen = fieldAt(e.getX(), e.getY());
 
-                // if player chooses valid spot then
-                if (validMoves.contains(chosen)) {
+            // if in setup phase, handles swapping with another piece of the same player
+            if (chosen != null && state.getGameStage() == -1) {
 
-                    // move there
-                    currPiece.move(chosen);
+                swap(from, chosen);
+                repaintSquare(chosen.getIndex());
 
-                    // and transition to the other player's turn
-                    lightTurn = !lightTurn;
-                    if (gameWindow != null && gameStage != 1) gameWindow.setTitle("Stratego! - " + (isLightTurn() ? "Light" : "Dark") + "'s turn, click either pond to start");
-                    startedTurn = false;
+            // if in playing phase, handles movement to a highlighted field
+            } else if (chosen != null && state.getGameStage() == 0 && isHighlighted(chosen.getIndex())) {
 
-                }
+                // tries to move to the chosen spot, which also transitions to the other player's turn if it was valid
+                if (move(from, chosen) != GameEngine.ILLEGAL) { repaint(); }
 
             }
 
-            currPiece.getField().setDisplay(true);
-            chosen.setDisplay(true);
-
         }
 
         currPiece = null;
-        repaint();
-        gameWindow.save();
+        clearHighlighted();
 
     }
 
     /**
-     * Updates the drawing position when dragging the mouse
+     * Updates the drawing position when dragging the mouse, repainting where the piece was and where it is now
+     * <p>
+     *     If the board is in a window, the piece is drawn on its {@link DragLayer}, and the board isn't repainted at all.
+     * </p>
      * @param e the event to be processed
      */
     @Override
     public void mouseDragged(MouseEvent e) {
 
+        repaintDragged();
+
         // sets the draw position to be under the mouse
-        this.currPos = new Point(e.getX() - 30 ,e.getY() - 30);
+        int half = renderer.squareSize() / 2;
+        this.currPos = new Point(e.getX() - half, e.getY() - half);
 
-        repaint();
+        repaintDragged();
+
+        // or if it's drawn over the window, only moves it there
+        if (dragLayer.isActive()) { dragLayer.moveTo(SwingUtilities.convertPoint(this, currPos, dragLayer)); }
 
     }
 
@@ -0,0 +1,243 @@
+package board;
+
+import ai.Beliefs;
+import ai.SetupGenerator;
+import engine.GameState;
+import helper.Sprites;
+import pieces.Piece;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws a board and its pieces on the board itself, as a single canvas
+ * <p>
+ *     The fields aren't components, they're squares of equal size laid out in the middle of the board, so where a field is drawn, and which field
+ *     is under a point, are both worked out arithmetically. The squares are as big as the board allows, so the board can be any size.
+ * </p>
+ * <p>
+ *     On HiDPI screens a square takes more pixels of the screen than its size, so the background and the images of the pieces are made for the number of
+ *     pixels it actually takes, and stay sharp. The images of the pieces are scaled by {@link Sprites}, which repaints the board once they're ready.
+ * </p>
+ * <p>
+ *     The ground of the fields, the chessboard pattern and the ponds, never changes, so it's drawn once into a background image for the current size.
+ *     Every repaint copies the part of that image being repainted, and then draws only the highlighted fields and the pieces over it.
+ * </p>
+ * <p>
+ *     When the board shows its {@link Beliefs}, every hidden piece has its most likely kind written on it, with how likely that is.
+ * </p>
+ */
+final class BoardRenderer {
+
+    /**
+     * The colors of the fields, dark and light, so that none are created while drawing
+     */
+    private static final Color[] GROUND = {new Color(200, 200, 200), new Color(240, 240, 240)};
+
+    /**
+     * The colors of the fields in the ponds, dark and light
+     */
+    private static final Color[] POND = {new Color(100, 100, 100), new Color(120, 120, 120)};
+
+    /**
+     * The colors of the empty fields the "picked up" piece can move to, dark and light
+     */
+    private static final Color[] MOVE = {new Color(100, 200, 100), new Color(120, 240, 120)};
+
+    /**
+     * The colors of the fields with an enemy the "picked up" piece can attack, dark and light
+     */
+    private static final Color[] ATTACK = {new Color(200, 100, 100), new Color(240, 120, 120)};
+
+    /**
+     * The color of the beliefs written on the hidden pieces, and of their shadow
+     */
+    private static final Color[] BELIEF = {Color.WHITE, Color.BLACK};
+
+    /**
+     * The board drawn on
+     */
+    private final Board board;
+
+    /**
+     * The ground of all the fields, drawn for the current size of the squares, or null if it hasn't been drawn yet
+     */
+    private BufferedImage background;
+
+    /**
+     * The size of the squares in pixels of the screen the last time the board was drawn
+     */
+    private int pixels;
+
+    /**
+     * The font the beliefs are written in, for the current size of the squares, or null if nothing's been written yet
+     */
+    private Font font;
+
+    /**
+     * Constructs the renderer of a board
+     * @param b The board to draw on
+     */
+    BoardRenderer(Board b) {
+        this.board = b;
+    }
+
+    /**
+     * Gets the size of the squares, the largest that fits the board
+     * @return The width and height of a field in pixels, at least 1
+     */
+    int squareSize() {
+        return Math.max(1, Math.min(board.getWidth(), board.getHeight()) / GameState.SIZE);
+    }
+
+    /**
+     * Gets where the fields start, as they're centered on the board
+     * @return The x coordinate of the left edge of the fields
+     */
+    int left() {
+        return (board.getWidth() - squareSize() * GameState.SIZE) / 2;
+    }
+
+    /**
+     * Gets where the fields start, as they're centered on the board
+     * @return The y coordinate of the top edge of the fields
+     */
+    int top() {
+        return (board.getHeight() - squareSize() * GameState.SIZE) / 2;
+    }
+
+    /**
+     * Getter for pixels
+     * @return The size of the squares in pixels of the screen, as last drawn
+     */
+    int pixels() {
+        return pixels;
+    }
+
+    /**
+     * Finds the square under a point of the board
+     * @param x The x coordinate of the point, relative to the board
+     * @param y The y coordinate of the point, relative to the board
+     * @return The index of the square, or -1 if the point isn't on any of them
+     */
+    int squareAt(int x, int y) {
+
+        int size = squareSize();
+        x -= left();
+        y -= top();
+        if (x < 0 || y < 0 || x >= size * GameState.SIZE || y >= size * GameState.SIZE) { return -1; }
+        return GameState.index(x / size, y / size);
+
+    }
+
+    /**
+     * Draws every field that needs repainting, along with the piece on it
+     * @param g The graphics object doing the drawing
+     */
+    void paint(Graphics g) {
+
+        int size = squareSize();
+        int side = size * GameState.SIZE;
+        int left = left();
+        int top = top();
+
+        // the images are made for the pixels of the screen the squares take, and the pieces are scaled to that in the background if they aren't yet
+        pixels = Sprites.pixels(g, size);
+        Sprites.prepare(pixels, board::repaint);
+
+        // the board can be larger than the fields, so clears what's outside of them
+        if (board.getWidth() > side || board.getHeight() > side) {
+            g.setColor(board.getBackground());
+            g.fillRect(0, 0, board.getWidth(), board.getHeight());
+        }
+
+        // copies the ground of the fields being repainted
+        g.drawImage(background(pixels), left, top, side, side, null);
+
+        // then draws the highlights and pieces of the fields being repainted
+        Field[][] fields = board.getBoard();
+        for (int y = 0; y < GameState.SIZE; y++) {
+            for (int x = 0; x < GameState.SIZE; x++) {
+
+                int fx = left + x * size;
+                int fy = top + y * size;
+                if (!g.hitClip(fx, fy, size, size)) { continue; }
+                Field f = fields[y][x];
+
+                // draws every valid field of the "picked up" piece as highlighted
+                if (board.isHighlighted(f.getIndex())) {
+                    g.setColor(f.isEmpty() ? MOVE[f.isLight() ? 1 : 0] : ATTACK[f.isLight() ? 1 : 0]);
+                    g.fillRect(fx, fy, size, size);
+                }
+
+                // draws the piece if there's one here, and is displayed
+                if (!f.isEmpty() && f.isDisplayed()) {
+                    f.getPiece().draw(g, fx, fy, size, pixels);
+                    drawBelief(g, f, fx, fy, size);
+                }
+
+            }
+        }
+
+    }
+
+    /**
+     * Writes the most likely kind of the piece on a field on it, if it's hidden and the beliefs are shown
+     * @param g The graphics object doing the drawing
+     * @param f The field, with a piece on it
+     * @param x The x coordinate of the field
+     * @param y The y coordinate of the field
+     * @param size The size of the field
+     */
+    private void drawBelief(Graphics g, Field f, int x, int y, int size) {
+
+        Piece p = f.getPiece();
+        Beliefs beliefs = board.getBeliefs(p.isLightTeam());
+        if (beliefs == null || p.isRevealed() || board.shows(p.isLightTeam())) { return; }
+
+        int strength = beliefs.likeliest(f.getIndex());
+        String text = SetupGenerator.symbol(strength) + " " + Math.round(100 * beliefs.probability(f.getIndex(), strength)) + "%";
+
+        if (font == null || font.getSize() != Math.max(1, size / 4)) { font = new Font(Font.SANS_SERIF, Font.BOLD, Math.max(1, size / 4)); }
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        int tx = x + (size - metrics.stringWidth(text)) / 2;
+        int ty = y + size - metrics.getDescent() - 1;
+
+        g.setColor(BELIEF[1]);
+        g.drawString(text, tx + 1, ty + 1);
+        g.setColor(BELIEF[0]);
+        g.drawString(text, tx, ty);
+
+    }
+
+    /**
+     * Gets the ground of all the fields, drawing it first if the size of the squares has changed
+     * @param size The current size of the squares in pixels of the screen
+     * @return The image of the ground
+     */
+    private BufferedImage background(int size) {
+
+        if (background != null && background.getWidth() == size * GameState.SIZE) { return background; }
+
+        // makes an image that can be copied to the screen without any conversion, if there's a screen
+        GraphicsConfiguration gc = board.getGraphicsConfiguration();
+        int side = size * GameState.SIZE;
+        background = (gc != null) ? gc.createCompatibleImage(side, side) : new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+
+        Graphics g = background.createGraphics();
+        for (Field[] row : board.getBoard()) {
+            for (Field f : row) {
+                int shade = f.isLight() ? 1 : 0;
+                g.setColor(f.isInPond() ? POND[shade] : GROUND[shade]);
+                g.fillRect(f.getPos().x * size, f.getPos().y * size, size, size);
+            }
+        }
+        g.dispose();
+
+        return background;
+
+    }
+
+
+}
@@ -0,0 +1,125 @@
+package board;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Serial;
+
+/**
+ * Draws the "picked up" piece over the window while it's being dragged, as the window's glass pane
+ * <p>
+ *     When a piece is picked up, everything below the glass pane is drawn once into a snapshot, which already shows the highlighted fields and the empty
+ *     field the piece left. While dragging, the layer covers the window with that snapshot, so moving the piece only copies the old and the new area of
+ *     the piece from the snapshot and draws the piece again, without the board itself being repainted at all.
+ * </p>
+ */
+final class DragLayer extends JComponent {
+
+    /**
+     * Makes sure serialization doesn't break
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Everything below the layer as it was when the piece was picked up, reused between drags of the same size
+     */
+    private BufferedImage snapshot;
+
+    /**
+     * The image of the dragged piece, or null if nothing is being dragged
+     */
+    private Image sprite;
+
+    /**
+     * The area the piece is drawn in, relative to the layer
+     */
+    private final Rectangle at;
+
+    /**
+     * Constructs the layer, hidden until a piece is picked up
+     */
+    DragLayer() {
+
+        this.at = new Rectangle();
+        setVisible(false);
+
+    }
+
+    /**
+     * Takes a snapshot of what's below, and starts drawing a piece over it
+     * @param below The component to take the snapshot of, which covers the same area as the layer
+     * @param img The image of the piece
+     * @param size The size to draw the piece at
+     * @param p Where to draw the piece, relative to the layer
+     */
+    void start(JComponent below, Image img, int size, Point p) {
+
+        // the piece isn't drawn on the board while there's a layer to draw it on, so it's not in the snapshot either
+        this.sprite = img;
+        at.setBounds(p.x, p.y, size, size);
+
+        // draws everything below into the snapshot, with as many pixels as it takes on the screen, reusing the previous one if that's still the same
+        GraphicsConfiguration gc = below.getGraphicsConfiguration();
+        double scale = (gc != null) ? gc.getDefaultTransform().getScaleX() : 1;
+        int width = Math.max(1, (int) Math.ceil(below.getWidth() * scale));
+        int height = Math.max(1, (int) Math.ceil(below.getHeight() * scale));
+        if (snapshot == null || snapshot.getWidth() != width || snapshot.getHeight() != height) {
+            snapshot = (gc != null) ? gc.createCompatibleImage(width, height) : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = snapshot.createGraphics();
+        g.scale(scale, scale);
+        below.paint(g);
+        g.dispose();
+
+        // the layer covers everything with the snapshot, so nothing below has to be painted while dragging
+        setBounds(below.getBounds());
+        setOpaque(true);
+        setVisible(true);
+
+    }
+
+    /**
+     * Moves the piece, repainting only where it was and where it is now
+     * @param p Where to draw the piece, relative to the layer
+     */
+    void moveTo(Point p) {
+
+        repaint(at);
+        at.setLocation(p);
+        repaint(at);
+
+    }
+
+    /**
+     * Stops drawing the piece, and hides the layer, so the window is painted normally again
+     */
+    void stop() {
+
+        sprite = null;
+        setVisible(false);
+
+    }
+
+    /**
+     * Gets whether a piece is being drawn on the layer
+     * @return true while dragging a piece
+     */
+    boolean isActive() {
+        return sprite != null;
+    }
+
+    /**
+     * Copies the area being repainted from the snapshot, and draws the piece over it
+     * @param g the <code>Graphics</code> object to protect
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+
+        g.drawImage(snapshot, 0, 0, getWidth(), getHeight(), null);
+        if (sprite != null) { g.drawImage(sprite, at.x, at.y, at.width, at.height, null); }
+
+    }
+
+
+}
@@ -1,8 +1,8 @@
 package board;
 
+import engine.GameState;
 import pieces.Piece;
 
-import javax.swing.*;
 import java.awt.*;
 import java.io.Serial;
 import java.io.Serializable;
@@ -13,8 +13,15 @@ import java.util.Objects;
  * <p>
  *     These are the places where pieces can stand, they are fix and are colored in a chessboard pattern
  * </p>
+ * <p>
+ *     Fields aren't components, the board draws them all itself with a {@link BoardRenderer}, and finds which one is under the cursor from its position.
+ * </p>
+ * <p>
+ *     The piece on a field only mirrors the square of the board's {@link GameState}, so pieces are put on and taken off the fields by the board alone,
+ *     whenever it changes that.
+ * </p>
  */
-public class Field extends JComponent implements Serializable {
+public class Field implements Serializable {
 
     /**
      * Makes sure serialization doesn't break
@@ -37,6 +44,11 @@ public class Field extends JComponent implements Serializable {
      */
     private final boolean color;
 
+    /**
+     * Whether the field is in either pond, which never changes
+     */
+    private final boolean inPond;
+
     /**
      * The piece standing on the field, if any
      */
@@ -58,10 +70,9 @@ public class Field extends JComponent implements Serializable {
         this.board = b;
         this.pos = p;
         this.color = c;
+        this.inPond = b.getEngine().isPond(p.x, p.y);
         this.display = true;
 
-        this.setBorder(BorderFactory.createEmptyBorder());
-
     }
 
     /**
@@ -80,6 +91,14 @@ public class Field extends JComponent implements Serializable {
         return pos;
     }
 
+    /**
+     * Gets the index of the field's square in the game state
+     * @return y * 10 + x
+     */
+    public int getIndex() {
+        return GameState.index(pos.x, pos.y);
+    }
+
     /**
      * Getter for board
      * @return The board the field is on
@@ -97,67 +116,44 @@ public class Field extends JComponent implements Serializable {
     }
 
     /**
-     * Setter for display
-     * @param display Whether to display the piece
+     * Getter for color
+     * @return Whether the field is light
      */
-    public void setDisplay(boolean display) {
-        this.display = display;
+    public boolean isLight() {
+        return color;
     }
 
     /**
-     * Puts a piece on this field
-     * @param p The piece to put here
+     * Getter for inPond
+     * @return Whether the field is in either pond
      */
-    public void accept(Piece p) {
-        this.piece = p;
-        p.setField(this);
+    public boolean isInPond() {
+        return inPond;
     }
 
     /**
-     * Removes the piece from this field
-     * @return The removed piece
+     * Getter for display
+     * @return Whether the piece on the field is displayed
      */
-    public Piece remove() {
-        Piece p = this.piece;
-        this.piece = null;
-        return p;
+    public boolean isDisplayed() {
+        return display;
     }
 
     /**
-     * Graphics method, draws the field and the piece on it
-     * @param g The graphics object doing the drawing
-     * @param highlight Whether to highlight this field or not
+     * Setter for display
+     * @param display Whether to display the piece
      */
-    public void paintComponent(Graphics g, boolean highlight) {
-
-        super.paintComponent(g);
-
-        // sets the appropriate color to draw the field with
-        boolean inPonds = (pos.x >= 2 && pos.x <= 3 && pos.y >= 4 && pos.y <= 5) || (pos.x >= 6 && pos.x <= 7 && pos.y >= 4 && pos.y <= 5);
-        if (color) {
-
-            g.setColor(new Color(120, 120, 120));
-            if (!inPonds)  { g.setColor(new Color(240, 240, 240)); }
-            if (highlight) { g.setColor(new Color(120, 240, 120)); }
-            if (!isEmpty() && highlight) { g.setColor(new Color(240, 120, 120)); }
-
-        } else {
-
-            g.setColor(new Color(100, 100, 100));
-            if (!inPonds)  { g.setColor(new Color(200, 200, 200)); }
-            if (highlight) { g.setColor(new Color(100, 200, 100)); }
-            if (!isEmpty() && highlight) { g.setColor(new Color(200, 100, 100)); }
-
-        }
-
-        // draws the field
-        g.fillRect(this.getX(), this.getY(), this.getWidth(), this.getHeight());
-
-        // draws the piece if there's one here, and is displayed
-        if (!isEmpty() && display) {
-            piece.draw(g);
-        }
+    public void setDisplay(boolean display) {
+        this.display = display;
+    }
 
+    /**
+     * Puts a piece on this field without touching the game state, used by the board to mirror changes already made there
+     * @param p The piece to put here, or null to clear the field
+     */
+    void place(Piece p) {
+        this.piece = p;
+        if (p != null) { p.setField(this); }
     }
 
     /**
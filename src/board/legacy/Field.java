@@ -0,0 +1,65 @@
+package board.legacy;
+
+import engine.GameState;
+import engine.PieceCode;
+import pieces.Piece;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.Serial;
+
+/**
+ * A field the way older versions saved it, when the fields were Swing components inside the board
+ * <p>
+ *     Older saves are serialized boards, and the board kept its fields as its components, so they can only be read back as components.
+ *     Importing such a save reads its fields as these instead, only keeping what's needed to rebuild the game.
+ * </p>
+ */
+public class Field extends JComponent {
+
+    /**
+     * Matches the fields of older saves
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The position of the field on the board (0..9)
+     */
+    private Point pos;
+
+    /**
+     * The piece standing on the field, if any
+     */
+    private Piece piece;
+
+    /**
+     * Only ever created by reading an older save
+     */
+    private Field() {}
+
+    /**
+     * Puts the pieces standing on the fields of an older save into a game state, revealed if they were
+     * @param fields The fields of the board as read from the save
+     * @param state The state to put them in
+     */
+    public static void copyPieces(Object fields, GameState state) {
+
+        for (Field[] row : (Field[][]) fields) {
+            for (Field f : row) {
+                if (f.piece != null) { state.set(f.getIndex(), PieceCode.withRevealed(f.piece.getCode(), f.piece.wasRevealedInSave())); }
+            }
+        }
+
+    }
+
+    /**
+     * Gets the index of the field's square in the game state
+     * @return y * 10 + x
+     */
+    public int getIndex() {
+        return GameState.index(pos.x, pos.y);
+    }
+
+
+}
@@ -0,0 +1,55 @@
+package engine;
+
+/**
+ * Precomputed outcomes of every conflict, so resolving one is a single array lookup
+ * <p>
+ *     The table has a row for every rank of the attacker and a column for every rank of the defender, holding one of the {@link GameEngine} outcome codes.
+ *     The stronger piece wins and equal ones both get removed, except that bombs remove whoever steps on them (apart from miners) and themselves,
+ *     the spy removes the marshal if it's the one attacking, and stepping on the flag wins the game.
+ * </p>
+ */
+public final class Combat {
+
+    /**
+     * The outcome of every attacker and defender rank pair, indexed as attacker * 12 + defender
+     */
+    private static final byte[] OUTCOMES = new byte[PieceCode.RANKS * PieceCode.RANKS];
+
+    // fills the table
+    static {
+
+        for (int a = PieceCode.FLAG; a <= PieceCode.MARSHAL; a++) {
+            for (int d = PieceCode.FLAG; d <= PieceCode.MARSHAL; d++) {
+
+                int outcome;
+                if (d == PieceCode.FLAG) { outcome = GameEngine.FLAG_CAPTURED; }
+                else if (d == PieceCode.BOMB) { outcome = (a == PieceCode.MINER) ? GameEngine.ATTACKER_WINS : GameEngine.BOTH_REMOVED; }
+                else if (a == PieceCode.SPY && d == PieceCode.MARSHAL) { outcome = GameEngine.ATTACKER_WINS; }
+                else if (a > d) { outcome = GameEngine.ATTACKER_WINS; }
+                else if (a == d) { outcome = GameEngine.BOTH_REMOVED; }
+                else { outcome = GameEngine.DEFENDER_WINS; }
+
+                OUTCOMES[(a + 1) * PieceCode.RANKS + (d + 1)] = (byte) outcome;
+
+            }
+        }
+
+    }
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Combat() {}
+
+    /**
+     * Looks up what happens when a piece steps on another one
+     * @param attacker The code of the moving piece
+     * @param defender The code of the piece stepped on
+     * @return One of the conflict outcomes of {@link GameEngine}
+     */
+    public static int outcome(byte attacker, byte defender) {
+        return OUTCOMES[PieceCode.rank(attacker) * PieceCode.RANKS + PieceCode.rank(defender)];
+    }
+
+
+}
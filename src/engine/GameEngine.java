@@ -0,0 +1,147 @@
+package engine;
+
+/**
+ * The rules of the game, working on a {@link GameState} only
+ * <p>
+ *     Squares are passed around as indices (y * 10 + x), and pieces as their byte codes, so none of this needs Swing or AWT.
+ * </p>
+ */
+public interface GameEngine {
+
+    /**
+     * Outcome of a move that wasn't allowed, nothing changed
+     */
+    int ILLEGAL = -1;
+
+    /**
+     * Outcome of a move onto an empty square
+     */
+    int MOVED = 0;
+
+    /**
+     * Outcome of a conflict where the attacker removed the defender and moved to its square
+     */
+    int ATTACKER_WINS = 1;
+
+    /**
+     * Outcome of a conflict where the attacker couldn't move to the defender's square
+     */
+    int DEFENDER_WINS = 2;
+
+    /**
+     * Outcome of a conflict where both pieces got removed
+     */
+    int BOTH_REMOVED = 3;
+
+    /**
+     * Outcome of a conflict where the attacker took the enemy flag, winning the game
+     */
+    int FLAG_CAPTURED = 4;
+
+    /**
+     * Creates a new game with the default layout, in the setup stage
+     * @return The new state
+     */
+    GameState newGame();
+
+    /**
+     * Gets whether a square is in either pond
+     * @param x The column
+     * @param y The row
+     * @return true if in a pond
+     */
+    boolean isPond(int x, int y);
+
+    /**
+     * Checks whether a piece could move to a given point.
+     * <p>
+     *     First checks if the point is on the board, then makes sure it's not in either pond, then finally checks if there's a teammate there.
+     * </p>
+     * @param state The state to check in
+     * @param x The column
+     * @param y The row
+     * @param lightTeam Team of the piece to test for
+     * @return true if valid, false otherwise
+     */
+    boolean canStepHere(GameState state, int x, int y, boolean lightTeam);
+
+    /**
+     * Finds all the squares the piece on a square can validly move to
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param moves The buffer to write the indices of the valid squares into, at least {@link MoveGenerator#MAX_MOVES} long
+     * @return The number of squares written, 0 if there's no piece or it can't move
+     */
+    int legalMoves(GameState state, int from, int[] moves);
+
+    /**
+     * Finds all the valid moves of the player whose turn it is
+     * @param state The state to check in
+     * @param moves The buffer to write the moves into as (from &lt;&lt; 8 | to), at least {@link MoveGenerator#MAX_ALL_MOVES} long
+     * @return The number of moves written
+     */
+    int allLegalMoves(GameState state, int[] moves);
+
+    /**
+     * Checks whether the piece on a square could move to another
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param to The square to move to
+     * @return true if valid
+     */
+    boolean isLegalMove(GameState state, int from, int to);
+
+    /**
+     * Figures out what happens when a piece steps on another one, without changing anything
+     * @param attacker The code of the moving piece
+     * @param defender The code of the piece stepped on
+     * @return One of the conflict outcomes
+     */
+    int combat(byte attacker, byte defender);
+
+    /**
+     * Makes a move for the player whose turn it is, resolving any conflict, then passes the turn to the other player
+     * @param state The state to make the move in
+     * @param from The square of the moving piece
+     * @param to The square to move to
+     * @return The outcome of the move, {@link #ILLEGAL} if it wasn't allowed
+     */
+    int applyMove(GameState state, int from, int to);
+
+    /**
+     * Swaps two pieces of the player who is setting up
+     * @param state The state to make the swap in
+     * @param a The square of one piece
+     * @param b The square of the other piece
+     * @return Whether the swap was allowed
+     */
+    boolean swap(GameState state, int a, int b);
+
+    /**
+     * Finishes the setup of the current player, after Dark is finished the game moves on to the playing stage with Light to go first
+     * @param state The state in the setup stage
+     */
+    void endSetup(GameState state);
+
+    /**
+     * Starts the turn of the current player
+     * @param state The state in the playing stage
+     */
+    void startTurn(GameState state);
+
+    /**
+     * Reveals everything, and sets the game to stage 1, which effectively freezes everything
+     * @param state The state to finish
+     * @param lightWins Whether Light won
+     */
+    void win(GameState state, boolean lightWins);
+
+    /**
+     * Gets whether the game has ended
+     * @param state The state to check
+     * @return true if somebody has won
+     */
+    boolean isOver(GameState state);
+
+
+}
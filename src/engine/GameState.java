@@ -0,0 +1,222 @@
+package engine;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compact representation of a game, without anything Swing in it
+ * <p>
+ *     Every square of the board is a single byte piece code (see {@link PieceCode}), indexed as y * 10 + x.
+ *     Next to that, it only stores whose turn it is and the stage of the game, so it's cheap to copy and can be used on a server without a display.
+ * </p>
+ * <p>
+ *     It also keeps the {@link Zobrist} hash of the position up to date on every change, so positions can be identified without comparing the squares.
+ * </p>
+ */
+public class GameState implements Serializable {
+
+    /**
+     * Makes sure serialization doesn't break
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The width and height of the board
+     */
+    public static final int SIZE = 10;
+
+    /**
+     * The number of squares on the board
+     */
+    public static final int SQUARES = SIZE * SIZE;
+
+    /**
+     * The piece codes of the squares
+     */
+    private final byte[] squares;
+
+    /**
+     * Whether it is Light's turn
+     */
+    private boolean lightTurn;
+
+    /**
+     * The current game stage, -1 if players are setting up, 0 if playing, and 1 if somebody has won
+     */
+    private int gameStage;
+
+    /**
+     * Whether the current player has started their turn by clicking on either pond
+     */
+    private boolean startedTurn;
+
+    /**
+     * Whether Light won the game, only meaningful in stage 1
+     */
+    private boolean lightWon;
+
+    /**
+     * The Zobrist hash of the position
+     */
+    private long hash;
+
+    /**
+     * Constructs an empty board in the setup stage, with Light to go first
+     */
+    public GameState() {
+
+        this.squares = new byte[SQUARES];
+        this.lightTurn = true;
+        this.gameStage = -1;
+        this.startedTurn = true;
+        this.hash = Zobrist.LIGHT_TURN;
+
+    }
+
+    /**
+     * Copies another state
+     * @param other The state to copy
+     */
+    public GameState(GameState other) {
+
+        this.squares = Arrays.copyOf(other.squares, SQUARES);
+        this.lightTurn = other.lightTurn;
+        this.gameStage = other.gameStage;
+        this.startedTurn = other.startedTurn;
+        this.lightWon = other.lightWon;
+        this.hash = other.hash;
+
+    }
+
+    /**
+     * Converts coordinates to a square index
+     * @param x The column, 0..9
+     * @param y The row, 0..9
+     * @return The index of the square
+     */
+    public static int index(int x, int y) {
+        return y * SIZE + x;
+    }
+
+    /**
+     * Gets the piece code on a square
+     * @param square The index of the square
+     * @return The code, {@link PieceCode#EMPTY} if there's no piece
+     */
+    public byte get(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Puts a piece code on a square
+     * @param square The index of the square
+     * @param code The code to put there
+     */
+    public void set(int square, byte code) {
+        hash ^= Zobrist.key(squares[square], square) ^ Zobrist.key(code, square);
+        squares[square] = code;
+    }
+
+    /**
+     * Removes the piece from a square
+     * @param square The index of the square
+     */
+    public void clear(int square) {
+        set(square, PieceCode.EMPTY);
+    }
+
+    /**
+     * Gets whether the piece on a square is revealed
+     * @param square The index of the square
+     * @return Whether the other team sees what piece it is
+     */
+    public boolean isRevealed(int square) {
+        return PieceCode.isRevealed(squares[square]);
+    }
+
+    /**
+     * Sets whether the piece on a square is revealed, does nothing on empty squares
+     * @param square The index of the square
+     * @param revealed If the piece should be revealed or not
+     */
+    public void setRevealed(int square, boolean revealed) {
+        if (squares[square] != PieceCode.EMPTY) { set(square, PieceCode.withRevealed(squares[square], revealed)); }
+    }
+
+    /**
+     * Getter for hash
+     * @return The Zobrist hash of the position, kept up to date on every change
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Getter for lightTurn
+     * @return Whether it is the Light player's turn
+     */
+    public boolean isLightTurn() {
+        return lightTurn;
+    }
+
+    /**
+     * Setter for lightTurn
+     * @param lightTurn Whether it should be the Light player's turn
+     */
+    public void setLightTurn(boolean lightTurn) {
+        if (this.lightTurn != lightTurn) { hash ^= Zobrist.LIGHT_TURN; }
+        this.lightTurn = lightTurn;
+    }
+
+    /**
+     * Getter for gameStage
+     * @return The current game stage
+     */
+    public int getGameStage() {
+        return gameStage;
+    }
+
+    /**
+     * Setter for gameStage
+     * @param gameStage The new game stage
+     */
+    public void setGameStage(int gameStage) {
+        this.gameStage = gameStage;
+    }
+
+    /**
+     * Getter for startedTurn
+     * @return Whether the player has started their current turn
+     */
+    public boolean hasStartedTurn() {
+        return startedTurn;
+    }
+
+    /**
+     * Setter for startedTurn
+     * @param startedTurn Whether the player has started their current turn
+     */
+    public void setStartedTurn(boolean startedTurn) {
+        this.startedTurn = startedTurn;
+    }
+
+    /**
+     * Getter for lightWon
+     * @return Whether Light won the game
+     */
+    public boolean hasLightWon() {
+        return lightWon;
+    }
+
+    /**
+     * Setter for lightWon
+     * @param lightWon Whether Light won the game
+     */
+    public void setLightWon(boolean lightWon) {
+        this.lightWon = lightWon;
+    }
+
+
+}
@@ -0,0 +1,412 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Unlimited undo and redo of everything done to a game, by keeping the inverse of every action instead of copies of the game
+ * <p>
+ *     An action can only ever change two squares and the flags of the game, so its inverse is a single long: what it was, its two squares, the codes
+ *     that were on them, and the flags from before. Undoing puts those back, and redoing does the action again through the {@link GameEngine}.
+ *     The only exception is winning, which reveals every piece, so the pieces that were revealed before are kept as a 100-bit mask along with it.
+ * </p>
+ * <p>
+ *     Doing anything new forgets what could have been redone. Analysis can go back to an earlier position with {@link #undoTo}, and branch from there.
+ * </p>
+ */
+public class History {
+
+    /**
+     * Kind of a setup swap, the two squares are the swapped pieces, the same as in the journal
+     */
+    public static final int SWAP = 5;
+
+    /**
+     * Kind of a player finishing their setup, the squares are unused, the same as in the journal
+     */
+    public static final int END_SETUP = 6;
+
+    /**
+     * Kind of a player winning without a move, the first square is 1 if Light won
+     */
+    public static final int WIN = 8;
+
+    /**
+     * Flag of an action, set if it's Light's turn before it
+     */
+    private static final long LIGHT_TURN = 1L << 40;
+
+    /**
+     * Flag of an action, set if the turn was started before it
+     */
+    private static final long STARTED_TURN = 1L << 41;
+
+    /**
+     * Flag of an action, set if Light had won before it
+     */
+    private static final long LIGHT_WON = 1L << 42;
+
+    /**
+     * Flag of an action, set if it ended the game, so there's a mask of the revealed pieces for it
+     */
+    private static final long ENDED = 1L << 43;
+
+    /**
+     * The game stage before an action is kept from this bit, shifted up by one so it isn't negative
+     */
+    private static final int STAGE_SHIFT = 44;
+
+    /**
+     * The rules the actions are done by
+     */
+    private final GameEngine engine;
+
+    /**
+     * Every action: the kind in bits 0..7, the squares in 8..15 and 16..23, the codes on them before in 24..31 and 32..39, then the flags
+     */
+    private long[] actions;
+
+    /**
+     * The number of actions done, the ones after it were undone and can be redone
+     */
+    private int done;
+
+    /**
+     * The number of actions that can be redone after the done ones
+     */
+    private int undone;
+
+    /**
+     * Whether an undone action is being done again, which keeps what can be redone after it
+     */
+    private boolean redoing;
+
+    /**
+     * The pieces revealed before every done action that ended the game, two longs each, squares 0..63 in the first one
+     */
+    private long[] masks;
+
+    /**
+     * The number of masks
+     */
+    private int maskCount;
+
+    /**
+     * Constructs an empty history
+     * @param engine The rules the actions are done by
+     */
+    public History(GameEngine engine) {
+
+        this.engine = engine;
+        this.actions = new long[64];
+        this.masks = new long[2];
+
+    }
+
+    /**
+     * Makes a move, keeping its inverse if it was allowed
+     * @param s The state to make the move in
+     * @param from The square of the moving piece
+     * @param to The square to move to
+     * @return The outcome of the move, see {@link GameEngine#applyMove}
+     */
+    public int applyMove(GameState s, int from, int to) {
+
+        // only taking a flag ends the game with a move
+        long before = capture(s, from, to);
+        boolean flag = isSquare(to) && s.get(to) != PieceCode.EMPTY && PieceCode.strength(s.get(to)) == PieceCode.FLAG;
+        long[] revealed = flag ? revealed(s) : null;
+
+        int outcome = engine.applyMove(s, from, to);
+        if (outcome != GameEngine.ILLEGAL) { push(before | outcome, s, revealed); }
+        return outcome;
+
+    }
+
+    /**
+     * Swaps two pieces of the player who is setting up, keeping its inverse if it was allowed
+     * @param s The state to make the swap in
+     * @param a The square of one piece
+     * @param b The square of the other piece
+     * @return Whether the swap was allowed
+     */
+    public boolean swap(GameState s, int a, int b) {
+
+        long before = capture(s, a, b);
+        if (!engine.swap(s, a, b)) { return false; }
+
+        push(before | SWAP, s, null);
+        return true;
+
+    }
+
+    /**
+     * Finishes the setup of the current player, keeping its inverse
+     * @param s The state in the setup stage
+     */
+    public void endSetup(GameState s) {
+
+        if (s.getGameStage() != -1) { return; }
+
+        long before = capture(s, 0, 0);
+        engine.endSetup(s);
+        push(before | END_SETUP, s, null);
+
+    }
+
+    /**
+     * Lets a player win without a move, keeping its inverse
+     * @param s The state to finish
+     * @param lightWins Whether Light won
+     */
+    public void win(GameState s, boolean lightWins) {
+
+        long before = capture(s, lightWins ? 1 : 0, 0);
+        long[] revealed = revealed(s);
+
+        engine.win(s, lightWins);
+        push(before | WIN, s, revealed);
+
+    }
+
+    /**
+     * Undoes the last action that's still done
+     * @param s The state the actions were done in, as it is after them
+     * @return Whether there was anything to undo
+     */
+    public boolean undo(GameState s) {
+
+        if (done == 0) { return false; }
+
+        long action = actions[--done];
+        undone++;
+
+        // hides what winning revealed first, as the two squares are put back as they were anyway
+        if ((action & ENDED) != 0) {
+
+            maskCount--;
+            long low = masks[2 * maskCount];
+            long high = masks[2 * maskCount + 1];
+            for (int square = 0; square < GameState.SQUARES; square++) {
+                boolean was = square < 64 ? (low >>> square & 1) != 0 : (high >>> (square - 64) & 1) != 0;
+                if (s.get(square) != PieceCode.EMPTY && !was) { s.setRevealed(square, false); }
+            }
+
+        }
+
+        int kind = (int) (action & 0xFF);
+        if (kind != WIN && kind != END_SETUP) {
+            s.set(square(action, 8), (byte) (action >>> 24));
+            s.set(square(action, 16), (byte) (action >>> 32));
+        }
+
+        s.setLightTurn((action & LIGHT_TURN) != 0);
+        s.setStartedTurn((action & STARTED_TURN) != 0);
+        s.setLightWon((action & LIGHT_WON) != 0);
+        s.setGameStage((int) (action >>> STAGE_SHIFT & 0b11) - 1);
+        return true;
+
+    }
+
+    /**
+     * Does the last undone action again
+     * @param s The state the actions were undone in, as it is after that
+     * @return Whether there was anything to redo, which could be done again
+     */
+    public boolean redo(GameState s) {
+
+        if (undone == 0) { return false; }
+
+        // doing the action again keeps its inverse in the same place, and what's after it stays there
+        long action = actions[done];
+        int a = square(action, 8);
+        int b = square(action, 16);
+        int count = done;
+        redoing = true;
+
+        try {
+            switch ((int) (action & 0xFF)) {
+                case SWAP -> swap(s, a, b);
+                case END_SETUP -> endSetup(s);
+                case WIN -> win(s, a == 1);
+                default -> applyMove(s, a, b);
+            }
+        } finally {
+            redoing = false;
+        }
+
+        return done > count;
+
+    }
+
+    /**
+     * Undoes actions until only a number of them are done, to go back to an earlier position
+     * @param s The state the actions were done in, as it is after them
+     * @param count How many actions to keep done, at most {@link #size()}
+     */
+    public void undoTo(GameState s, int count) {
+        while (done > count && undo(s)) {}
+    }
+
+    /**
+     * Finds the game as it was when the playing stage started, going back as far as the history goes if it started before that
+     * @param s The state the actions were done in, as it is after them, which isn't changed
+     * @return A copy of the game, with every done action since the last finished setup undone
+     */
+    public GameState startOfPlay(GameState s) {
+
+        GameState start = new GameState(s);
+        int first = playStart();
+        int count = done;
+        int redoable = undone;
+        int maskTotal = maskCount;
+
+        // undoes them on the copy, then puts back the counts, as undoing never changes the actions themselves
+        while (done > first) { undo(start); }
+        done = count;
+        undone = redoable;
+        maskCount = maskTotal;
+        return start;
+
+    }
+
+    /**
+     * Goes through the moves done since the playing stage started, oldest first, so what they gave away can be learned again
+     * @param observer Sees every move, with the codes that were on its squares before it
+     */
+    public void forEachMove(MoveObserver observer) {
+
+        for (int i = playStart(); i < done; i++) {
+            long action = actions[i];
+            int kind = (int) (action & 0xFF);
+            if (kind != WIN) { observer.observe(square(action, 8), square(action, 16), (byte) (action >>> 24), (byte) (action >>> 32), kind); }
+        }
+
+    }
+
+    /**
+     * Finds the first action done after the last finished setup
+     * @return Its index, 0 if no setup was finished as far as the history goes
+     */
+    private int playStart() {
+
+        int start = done;
+        while (start > 0 && (actions[start - 1] & 0xFF) != END_SETUP) { start--; }
+        return start;
+
+    }
+
+    /**
+     * Gets whether there's anything to undo
+     * @return true if any action is done
+     */
+    public boolean canUndo() {
+        return done > 0;
+    }
+
+    /**
+     * Gets whether there's anything to redo
+     * @return true if any action was undone since the last new one
+     */
+    public boolean canRedo() {
+        return undone > 0;
+    }
+
+    /**
+     * Gets how many actions are done
+     * @return The number of actions that can be undone
+     */
+    public int size() {
+        return done;
+    }
+
+    /**
+     * Forgets everything, like when the game is replaced
+     */
+    public void clear() {
+
+        done = 0;
+        undone = 0;
+        maskCount = 0;
+
+    }
+
+    /**
+     * Captures what an action could change: the codes on two squares, and the flags
+     * @param s The state before the action
+     * @param a The first square
+     * @param b The second square
+     * @return The inverse of the action, without its kind
+     */
+    private static long capture(GameState s, int a, int b) {
+
+        long action = (long) (a & 0xFF) << 8 | (long) (b & 0xFF) << 16;
+        if (isSquare(a) && isSquare(b)) {
+            action |= (long) (s.get(a) & 0xFF) << 24 | (long) (s.get(b) & 0xFF) << 32;
+        }
+
+        if (s.isLightTurn()) { action |= LIGHT_TURN; }
+        if (s.hasStartedTurn()) { action |= STARTED_TURN; }
+        if (s.hasLightWon()) { action |= LIGHT_WON; }
+        return action | (long) (s.getGameStage() + 1) << STAGE_SHIFT;
+
+    }
+
+    /**
+     * Gets whether a square is on the board
+     * @param square The square
+     * @return true if it's 0..99
+     */
+    private static boolean isSquare(int square) {
+        return square >= 0 && square < GameState.SQUARES;
+    }
+
+    /**
+     * Gets the pieces that are revealed, which is only needed if the next action might end the game
+     * @param s The state
+     * @return The mask of the revealed squares
+     */
+    private static long[] revealed(GameState s) {
+
+        long[] mask = new long[2];
+        for (int square = 0; square < GameState.SQUARES; square++) {
+            if (s.isRevealed(square)) { mask[square >> 6] |= 1L << (square & 63); }
+        }
+        return mask;
+
+    }
+
+    /**
+     * Keeps the inverse of a done action, forgetting what could have been redone
+     * @param action The inverse
+     * @param after The state after the action
+     * @param revealed The pieces revealed before the action, kept if it ended the game
+     */
+    private void push(long action, GameState after, long[] revealed) {
+
+        if (redoing) { undone--; } else { undone = 0; }
+
+        if (revealed != null && after.getGameStage() == 1) {
+            action |= ENDED;
+            if (2 * maskCount == masks.length) { masks = Arrays.copyOf(masks, masks.length * 2); }
+            masks[2 * maskCount] = revealed[0];
+            masks[2 * maskCount + 1] = revealed[1];
+            maskCount++;
+        }
+
+        if (done == actions.length) { actions = Arrays.copyOf(actions, done * 2); }
+        actions[done++] = action;
+
+    }
+
+    /**
+     * Reads a square out of an inverse
+     * @param action The inverse
+     * @param shift Where the square is
+     * @return The square
+     */
+    private static int square(long action, int shift) {
+        return (int) (action >>> shift & 0xFF);
+    }
+
+
+}
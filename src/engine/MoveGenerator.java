@@ -0,0 +1,208 @@
+package engine;
+
+/**
+ * Finds the valid moves of pieces without allocating anything
+ * <p>
+ *     For every square and direction, the squares reachable in a straight line are computed once, with the edges and ponds already cut off,
+ *     so generating moves only has to walk these rays until reaching the max movement distance, a teammate, or an enemy.
+ * </p>
+ * <p>
+ *     The moves are written into buffers supplied by the caller, so the same buffer can be reused for every call.
+ * </p>
+ */
+public final class MoveGenerator {
+
+    /**
+     * The number of directions a piece can move in
+     */
+    public static final int DIRECTIONS = 4;
+
+    /**
+     * The longest a ray can be, from one edge of the board to the other
+     */
+    public static final int MAX_RAY = GameState.SIZE - 1;
+
+    /**
+     * The most squares a single piece can move to, which is a scout in an open row and column
+     */
+    public static final int MAX_MOVES = 2 * MAX_RAY;
+
+    /**
+     * The most moves a player can have at once: in each direction every square can be reached by at most one piece
+     */
+    public static final int MAX_ALL_MOVES = DIRECTIONS * GameState.SQUARES;
+
+    /**
+     * Whether a square is in either pond
+     */
+    private static final boolean[] POND = new boolean[GameState.SQUARES];
+
+    /**
+     * The squares of the rays, MAX_RAY slots for every square and direction
+     */
+    private static final int[] RAY = new int[GameState.SQUARES * DIRECTIONS * MAX_RAY];
+
+    /**
+     * The length of the ray of every square and direction
+     */
+    private static final int[] RAY_LENGTH = new int[GameState.SQUARES * DIRECTIONS];
+
+    // computes the tables
+    static {
+
+        int[] dx = {1, -1, 0, 0};
+        int[] dy = {0, 0, 1, -1};
+
+        for (int y = 0; y < GameState.SIZE; y++) {
+            for (int x = 0; x < GameState.SIZE; x++) {
+                POND[GameState.index(x, y)] = (x >= 2 && x <= 3 && y >= 4 && y <= 5) || (x >= 6 && x <= 7 && y >= 4 && y <= 5);
+            }
+        }
+
+        for (int square = 0; square < GameState.SQUARES; square++) {
+            for (int d = 0; d < DIRECTIONS; d++) {
+
+                int ray = square * DIRECTIONS + d;
+                int x = square % GameState.SIZE + dx[d];
+                int y = square / GameState.SIZE + dy[d];
+
+                // goes in the direction until leaving the board or reaching a pond
+                while (x >= 0 && x < GameState.SIZE && y >= 0 && y < GameState.SIZE && !POND[GameState.index(x, y)]) {
+                    RAY[ray * MAX_RAY + RAY_LENGTH[ray]++] = GameState.index(x, y);
+                    x += dx[d];
+                    y += dy[d];
+                }
+
+            }
+        }
+
+    }
+
+    /**
+     * Only static helpers, no instances
+     */
+    private MoveGenerator() {}
+
+    /**
+     * Gets whether a square is in either pond
+     * @param square The index of the square
+     * @return true if in a pond
+     */
+    public static boolean isPond(int square) {
+        return POND[square];
+    }
+
+    /**
+     * Finds all the squares the piece on a square can validly move to
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param moves The buffer to write the squares into, at least {@link #MAX_MOVES} long
+     * @return The number of squares written, 0 if there's no piece or it can't move
+     */
+    public static int generate(GameState state, int from, int[] moves) {
+        return generate(state, from, moves, 0, false);
+    }
+
+    /**
+     * Finds all the valid moves of the player whose turn it is
+     * @param state The state to check in
+     * @param moves The buffer to write the moves into as (from &lt;&lt; 8 | to), at least {@link #MAX_ALL_MOVES} long
+     * @return The number of moves written
+     */
+    public static int generateAll(GameState state, int[] moves) {
+
+        int count = 0;
+        for (int from = 0; from < GameState.SQUARES; from++) {
+
+            byte code = state.get(from);
+            if (code != PieceCode.EMPTY && PieceCode.isLightTeam(code) == state.isLightTurn()) {
+                count = generate(state, from, moves, count, true);
+            }
+
+        }
+        return count;
+
+    }
+
+    /**
+     * Checks whether the piece on a square could move to another, only walking the one ray that could lead there
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param to The square to move to
+     * @return true if valid
+     */
+    public static boolean isLegal(GameState state, int from, int to) {
+
+        byte code = state.get(from);
+        if (code == PieceCode.EMPTY || from == to) { return false; }
+
+        // finds the direction the target is in, if it's in a straight line at all
+        int d;
+        if (from / GameState.SIZE == to / GameState.SIZE) { d = to > from ? 0 : 1; }
+        else if (from % GameState.SIZE == to % GameState.SIZE) { d = to > from ? 2 : 3; }
+        else { return false; }
+
+        boolean team = PieceCode.isLightTeam(code);
+        int ray = from * DIRECTIONS + d;
+        int length = Math.min(RAY_LENGTH[ray], PieceCode.maxMovement(PieceCode.strength(code)));
+
+        for (int i = 0; i < length; i++) {
+
+            int square = RAY[ray * MAX_RAY + i];
+            byte target = state.get(square);
+
+            // a teammate blocks the way
+            if (target != PieceCode.EMPTY && PieceCode.isLightTeam(target) == team) { return false; }
+            if (square == to) { return true; }
+
+            // and so does an enemy, after stepping on it
+            if (target != PieceCode.EMPTY) { return false; }
+
+        }
+        return false;
+
+    }
+
+    /**
+     * Walks the rays of a piece, appending the valid squares to the buffer
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param moves The buffer to write into
+     * @param count The number of entries already in the buffer
+     * @param withFrom Whether to write (from &lt;&lt; 8 | to) instead of just the target square
+     * @return The new number of entries in the buffer
+     */
+    private static int generate(GameState state, int from, int[] moves, int count, boolean withFrom) {
+
+        byte code = state.get(from);
+        if (code == PieceCode.EMPTY) { return count; }
+
+        boolean team = PieceCode.isLightTeam(code);
+        int maxMovement = PieceCode.maxMovement(PieceCode.strength(code));
+        int prefix = withFrom ? from << 8 : 0;
+
+        for (int ray = from * DIRECTIONS; ray < (from + 1) * DIRECTIONS; ray++) {
+
+            int length = Math.min(RAY_LENGTH[ray], maxMovement);
+            for (int i = 0; i < length; i++) {
+
+                int square = RAY[ray * MAX_RAY + i];
+                byte target = state.get(square);
+
+                // stops at a teammate
+                if (target != PieceCode.EMPTY && PieceCode.isLightTeam(target) == team) { break; }
+
+                moves[count++] = prefix | square;
+
+                // and after an enemy
+                if (target != PieceCode.EMPTY) { break; }
+
+            }
+
+        }
+        return count;
+
+    }
+
+
+}
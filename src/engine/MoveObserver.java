@@ -0,0 +1,23 @@
+package engine;
+
+/**
+ * Something that follows a game move by move, like what a player can tell about the enemy pieces
+ * <p>
+ *     Only moves are passed on, as swaps and turn starts don't give anything away, and everything else changes the game too much to follow.
+ * </p>
+ */
+@FunctionalInterface
+public interface MoveObserver {
+
+    /**
+     * Sees a move made by either team, after it's made
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link GameEngine} outcome codes
+     */
+    void observe(int from, int to, byte attacker, byte defender, int outcome);
+
+
+}
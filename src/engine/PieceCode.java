@@ -0,0 +1,170 @@
+package engine;
+
+/**
+ * Helper for the single byte codes the pieces are stored as in a {@link GameState}
+ * <p>
+ *     The lowest four bits hold the rank, which is the strength of the piece shifted up by two (so 1..12, and 0 means an empty square),
+ *     the next bit is set for Light pieces, and the one after that is set if the piece is revealed.
+ * </p>
+ * <p>
+ *     A player who can't see the type of an enemy piece, like the player of a game on a server, gets it as an {@link #UNKNOWN} piece instead.
+ *     Those only ever appear in what the player is sent, never in the state the rules are applied to.
+ * </p>
+ */
+public final class PieceCode {
+
+    /**
+     * The code of an empty square
+     */
+    public static final byte EMPTY = 0;
+
+    /**
+     * Mask of the rank bits
+     */
+    public static final int RANK_MASK = 0x0F;
+
+    /**
+     * Bit set for pieces of the Light team
+     */
+    public static final int LIGHT = 0x10;
+
+    /**
+     * Bit set for pieces the other team can see
+     */
+    public static final int REVEALED = 0x20;
+
+    /**
+     * Number of different ranks, from the flag (-1) up to the marshal (10)
+     */
+    public static final int RANKS = 12;
+
+    /**
+     * Strength of the flag
+     */
+    public static final int FLAG = -1;
+
+    /**
+     * Strength of the bomb
+     */
+    public static final int BOMB = 0;
+
+    /**
+     * Strength of the spy
+     */
+    public static final int SPY = 1;
+
+    /**
+     * Strength of the scout
+     */
+    public static final int SCOUT = 2;
+
+    /**
+     * Strength of the miner
+     */
+    public static final int MINER = 3;
+
+    /**
+     * Strength of the marshal
+     */
+    public static final int MARSHAL = 10;
+
+    /**
+     * Strength of a piece whose type is hidden from whoever the state was sent to
+     */
+    public static final int UNKNOWN = 11;
+
+    /**
+     * How far each rank can move in one step
+     */
+    private static final int[] MAX_MOVEMENT = {0, 0, 1, GameState.SIZE, 1, 1, 1, 1, 1, 1, 1, 1};
+
+    /**
+     * Only static helpers, no instances
+     */
+    private PieceCode() {}
+
+    /**
+     * Encodes a hidden piece
+     * @param isLightTeam Whether the piece is on the Light team
+     * @param strength The strength of the piece, -1..10
+     * @return The code of the piece
+     */
+    public static byte of(boolean isLightTeam, int strength) {
+        return (byte) ((strength + 2) | (isLightTeam ? LIGHT : 0));
+    }
+
+    /**
+     * Encodes a piece whose type is hidden from whoever it's sent to
+     * @param isLightTeam Whether the piece is on the Light team
+     * @return The code of the piece, with the strength {@link #UNKNOWN}
+     */
+    public static byte unknown(boolean isLightTeam) {
+        return of(isLightTeam, UNKNOWN);
+    }
+
+    /**
+     * Gets whether a code is an empty square
+     * @param code The code to test
+     * @return true if there's no piece
+     */
+    public static boolean isEmpty(byte code) {
+        return code == EMPTY;
+    }
+
+    /**
+     * Gets the strength of a piece
+     * @param code The code of the piece
+     * @return The strength, -1..10
+     */
+    public static int strength(byte code) {
+        return (code & RANK_MASK) - 2;
+    }
+
+    /**
+     * Gets the rank of a piece, which is the strength shifted to start from 0, used for indexing tables
+     * @param code The code of the piece
+     * @return The rank, 0..11
+     */
+    public static int rank(byte code) {
+        return (code & RANK_MASK) - 1;
+    }
+
+    /**
+     * Gets the team of a piece
+     * @param code The code of the piece
+     * @return Whether the piece is on the Light team
+     */
+    public static boolean isLightTeam(byte code) {
+        return (code & LIGHT) != 0;
+    }
+
+    /**
+     * Gets whether a piece is revealed
+     * @param code The code of the piece
+     * @return Whether the other team sees what piece it is
+     */
+    public static boolean isRevealed(byte code) {
+        return (code & REVEALED) != 0;
+    }
+
+    /**
+     * Sets or clears the revealed bit of a piece
+     * @param code The code of the piece
+     * @param revealed Whether the piece should be revealed
+     * @return The new code
+     */
+    public static byte withRevealed(byte code, boolean revealed) {
+        return (byte) (revealed ? (code | REVEALED) : (code & ~REVEALED));
+    }
+
+    /**
+     * Gets how far a piece can move in one step
+     * @param strength The strength of the piece
+     * @return 0 for the flag and bombs, the size of the board for scouts, and 1 for everyone else
+     */
+    public static int maxMovement(int strength) {
+        return MAX_MOVEMENT[strength + 1];
+    }
+
+
+}
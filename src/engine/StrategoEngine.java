@@ -0,0 +1,321 @@
+package engine;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The standard rules of the simplified game
+ * <p>
+ *     Doesn't hold any state of its own, so a single instance can be shared between any number of games and threads.
+ * </p>
+ */
+public class StrategoEngine implements GameEngine, Serializable {
+
+    /**
+     * Makes sure serialization doesn't break
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new game with the default layout, in the setup stage
+     * @return The new state
+     */
+    @Override
+    public GameState newGame() {
+
+        GameState s = new GameState();
+
+        // -1 flags x1
+        place(s, 0, 0, false, PieceCode.FLAG);
+        place(s, 9, 9, true, PieceCode.FLAG);
+
+        // 0 bombs x6
+        for (int i = 1; i <= 6; i++) { place(s, i, 0, false, PieceCode.BOMB); }
+        for (int i = 8; i >= 3; i--) { place(s, i, 9, true, PieceCode.BOMB); }
+
+        // 1 spies x1
+        place(s, 7, 0, false, PieceCode.SPY);
+        place(s, 2, 9, true, PieceCode.SPY);
+
+        // 2 scouts x8
+        place(s, 8, 0, false, PieceCode.SCOUT);
+        place(s, 9, 0, false, PieceCode.SCOUT);
+        place(s, 1, 9, true, PieceCode.SCOUT);
+        place(s, 0, 9, true, PieceCode.SCOUT);
+        for (int i = 0; i <= 5; i++) { place(s, i, 1, false, PieceCode.SCOUT); }
+        for (int i = 9; i >= 4; i--) { place(s, i, 8, true, PieceCode.SCOUT); }
+
+        // 3 miners x5
+        for (int i = 6; i <= 9; i++) { place(s, i, 1, false, PieceCode.MINER); }
+        for (int i = 3; i >= 0; i--) { place(s, i, 8, true, PieceCode.MINER); }
+        place(s, 0, 2, false, PieceCode.MINER);
+        place(s, 9, 7, true, PieceCode.MINER);
+
+        // 4 sergeants x4
+        for (int i = 1; i <= 4; i++) { place(s, i, 2, false, 4); }
+        for (int i = 8; i >= 5; i--) { place(s, i, 7, true, 4); }
+
+        // 5 lieutenants x4
+        for (int i = 5; i <= 8; i++) { place(s, i, 2, false, 5); }
+        for (int i = 4; i >= 1; i--) { place(s, i, 7, true, 5); }
+
+        // 6 captains x4
+        place(s, 9, 2, false, 6);
+        place(s, 0, 7, true, 6);
+        for (int i = 0; i <= 2; i++) { place(s, i, 3, false, 6); }
+        for (int i = 9; i >= 7; i--) { place(s, i, 6, true, 6); }
+
+        // 7 majors x3
+        for (int i = 3; i <= 5; i++) { place(s, i, 3, false, 7); }
+        for (int i = 6; i >= 4; i--) { place(s, i, 6, true, 7); }
+
+        // 8 colonels x2
+        for (int i = 6; i <= 7; i++) { place(s, i, 3, false, 8); }
+        for (int i = 3; i >= 2; i--) { place(s, i, 6, true, 8); }
+
+        // 9 generals x1
+        place(s, 8, 3, false, 9);
+        place(s, 1, 6, true, 9);
+
+        // 10 marshals x1
+        place(s, 9, 3, false, PieceCode.MARSHAL);
+        place(s, 0, 6, true, PieceCode.MARSHAL);
+
+        return s;
+
+    }
+
+    /**
+     * Puts a hidden piece on a square as part of the default layout
+     * @param s The state to put the piece in
+     * @param x The column
+     * @param y The row
+     * @param isLightTeam Whether the piece is on the Light team
+     * @param strength The strength of the piece
+     */
+    private static void place(GameState s, int x, int y, boolean isLightTeam, int strength) {
+        s.set(GameState.index(x, y), PieceCode.of(isLightTeam, strength));
+    }
+
+    /**
+     * Gets whether a square is in either pond
+     * @param x The column
+     * @param y The row
+     * @return true if in a pond
+     */
+    @Override
+    public boolean isPond(int x, int y) {
+        return MoveGenerator.isPond(GameState.index(x, y));
+    }
+
+    /**
+     * Checks whether a piece could move to a given point.
+     * @param state The state to check in
+     * @param x The column
+     * @param y The row
+     * @param lightTeam Team of the piece to test for
+     * @return true if valid, false otherwise
+     */
+    @Override
+    public boolean canStepHere(GameState state, int x, int y, boolean lightTeam) {
+
+        boolean onMap = (x >= 0 && x < GameState.SIZE && y >= 0 && y < GameState.SIZE);
+        if (!onMap || MoveGenerator.isPond(GameState.index(x, y))) { return false; }
+
+        byte code = state.get(GameState.index(x, y));
+        return code == PieceCode.EMPTY || PieceCode.isLightTeam(code) != lightTeam;
+
+    }
+
+    /**
+     * Finds all the squares the piece on a square can validly move to
+     * <p>
+     *     Goes in all four directions until reaching the max movement distance of the piece, an invalid square, or an enemy.
+     * </p>
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param moves The buffer to write the indices of the valid squares into
+     * @return The number of squares written
+     */
+    @Override
+    public int legalMoves(GameState state, int from, int[] moves) {
+        return MoveGenerator.generate(state, from, moves);
+    }
+
+    /**
+     * Finds all the valid moves of the player whose turn it is
+     * @param state The state to check in
+     * @param moves The buffer to write the moves into as (from &lt;&lt; 8 | to)
+     * @return The number of moves written
+     */
+    @Override
+    public int allLegalMoves(GameState state, int[] moves) {
+        return MoveGenerator.generateAll(state, moves);
+    }
+
+    /**
+     * Checks whether the piece on a square could move to another
+     * @param state The state to check in
+     * @param from The square of the piece
+     * @param to The square to move to
+     * @return true if valid
+     */
+    @Override
+    public boolean isLegalMove(GameState state, int from, int to) {
+        return MoveGenerator.isLegal(state, from, to);
+    }
+
+    /**
+     * Figures out what happens when a piece steps on another one, see {@link Combat} for the rules
+     * @param attacker The code of the moving piece
+     * @param defender The code of the piece stepped on
+     * @return One of the conflict outcomes
+     */
+    @Override
+    public int combat(byte attacker, byte defender) {
+        return Combat.outcome(attacker, defender);
+    }
+
+    /**
+     * Makes a move for the player whose turn it is, resolving any conflict, then passes the turn to the other player
+     * <p>
+     *     Both pieces of a conflict get revealed.
+     * </p>
+     * @param state The state to make the move in
+     * @param from The square of the moving piece
+     * @param to The square to move to
+     * @return The outcome of the move
+     */
+    @Override
+    public int applyMove(GameState state, int from, int to) {
+
+        // only the current player can move, and only in the playing stage
+        byte attacker = state.get(from);
+        if (state.getGameStage() != 0 || attacker == PieceCode.EMPTY || PieceCode.isLightTeam(attacker) != state.isLightTurn()) { return ILLEGAL; }
+        if (!isLegalMove(state, from, to)) { return ILLEGAL; }
+
+        byte defender = state.get(to);
+        int outcome = MOVED;
+
+        // if there's a conflict, resolves it
+        if (defender != PieceCode.EMPTY) {
+
+            outcome = Combat.outcome(attacker, defender);
+            attacker = PieceCode.withRevealed(attacker, true);
+
+            switch (outcome) {
+
+                case ATTACKER_WINS, FLAG_CAPTURED -> { state.set(to, attacker); state.clear(from); }
+
+                case DEFENDER_WINS -> { state.set(from, attacker); state.setRevealed(to, true); }
+
+                case BOTH_REMOVED -> { state.clear(from); state.clear(to); }
+
+            }
+
+            if (outcome == FLAG_CAPTURED) { win(state, PieceCode.isLightTeam(attacker)); }
+
+        // otherwise just moves there
+        } else {
+
+            state.set(to, attacker);
+            state.clear(from);
+
+        }
+
+        // and transitions to the other player's turn
+        if (state.getGameStage() == 0) {
+            state.setLightTurn(!state.isLightTurn());
+            state.setStartedTurn(false);
+        }
+
+        return outcome;
+
+    }
+
+    /**
+     * Swaps two pieces of the player who is setting up
+     * @param state The state to make the swap in
+     * @param a The square of one piece
+     * @param b The square of the other piece
+     * @return Whether the swap was allowed
+     */
+    @Override
+    public boolean swap(GameState state, int a, int b) {
+
+        byte first = state.get(a);
+        byte second = state.get(b);
+
+        // only pieces of the player setting up can be swapped, which are always in their own half
+        boolean valid = state.getGameStage() == -1 && first != PieceCode.EMPTY && second != PieceCode.EMPTY
+                && PieceCode.isLightTeam(first) == state.isLightTurn() && PieceCode.isLightTeam(second) == state.isLightTurn();
+        if (!valid) { return false; }
+
+        state.set(a, second);
+        state.set(b, first);
+        return true;
+
+    }
+
+    /**
+     * Finishes the setup of the current player
+     * @param state The state in the setup stage
+     */
+    @Override
+    public void endSetup(GameState state) {
+
+        if (state.getGameStage() != -1) { return; }
+
+        // transitions to Dark's setup turn
+        if (state.isLightTurn()) {
+
+            state.setLightTurn(false);
+
+        // or to Light's first normal turn
+        } else {
+
+            state.setLightTurn(true);
+            state.setStartedTurn(false);
+            state.setGameStage(0);
+
+        }
+
+    }
+
+    /**
+     * Starts the turn of the current player
+     * @param state The state in the playing stage
+     */
+    @Override
+    public void startTurn(GameState state) {
+        if (state.getGameStage() == 0) { state.setStartedTurn(true); }
+    }
+
+    /**
+     * Reveals everything, and sets the game to stage 1
+     * @param state The state to finish
+     * @param lightWins Whether Light won
+     */
+    @Override
+    public void win(GameState state, boolean lightWins) {
+
+        for (int i = 0; i < GameState.SQUARES; i++) { state.setRevealed(i, true); }
+
+        state.setGameStage(1);
+        state.setLightWon(lightWins);
+
+    }
+
+    /**
+     * Gets whether the game has ended
+     * @param state The state to check
+     * @return true if somebody has won
+     */
+    @Override
+    public boolean isOver(GameState state) {
+        return state.getGameStage() == 1;
+    }
+
+
+}
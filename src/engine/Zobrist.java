@@ -0,0 +1,77 @@
+package engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions
+ * <p>
+ *     The hash of a position is the XOR of the keys of every piece code on its square, and of the side to move key if it's Light's turn.
+ *     Piece codes already hold the rank, team, and whether the piece is revealed, so all of these count.
+ *     Changing a square or the turn only has to XOR the old key out and the new one in, which {@link GameState} does on every change.
+ * </p>
+ * <p>
+ *     The keys come from a fixed seed, so the same position always has the same hash, even between runs.
+ * </p>
+ */
+public final class Zobrist {
+
+    /**
+     * The number of different piece codes, every combination of the rank, team, and revealed bits
+     */
+    private static final int CODES = 64;
+
+    /**
+     * The key of every piece code on every square, 0 for empty squares
+     */
+    private static final long[] KEYS = new long[CODES * GameState.SQUARES];
+
+    /**
+     * The key added when it's Light's turn
+     */
+    public static final long LIGHT_TURN;
+
+    // generates the keys
+    static {
+
+        SplittableRandom random = new SplittableRandom(0x5354524154454701L);
+        for (int code = 1; code < CODES; code++) {
+            for (int square = 0; square < GameState.SQUARES; square++) {
+                KEYS[code * GameState.SQUARES + square] = random.nextLong();
+            }
+        }
+        LIGHT_TURN = random.nextLong();
+
+    }
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Zobrist() {}
+
+    /**
+     * Gets the key of a piece code on a square
+     * @param code The piece code
+     * @param square The index of the square
+     * @return The key, 0 for an empty square
+     */
+    public static long key(byte code, int square) {
+        return KEYS[(code & (CODES - 1)) * GameState.SQUARES + square];
+    }
+
+    /**
+     * Computes the hash of a position from scratch, mostly for checking the incremental one
+     * @param state The position
+     * @return The hash
+     */
+    public static long hash(GameState state) {
+
+        long hash = state.isLightTurn() ? LIGHT_TURN : 0;
+        for (int square = 0; square < GameState.SQUARES; square++) {
+            hash ^= key(state.get(square), square);
+        }
+        return hash;
+
+    }
+
+
+}
@@ -1,16 +1,48 @@
 package gui;
 
+import ai.AlphaBetaPlayer;
+import ai.Player;
+import ai.SetupGenerator;
 import board.Board;
-import helper.FileIO;
+import engine.GameState;
+import helper.AutoSave;
+import helper.Journal;
+import helper.Replay;
+import net.GameClient;
+import net.Protocol;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Houses the actual game, handles saving and loading
+ * <p>
+ *     In a game played here, Ctrl+Z undoes and Ctrl+Y redoes as far as the game goes, skipping over the moves of the computer.
+ * </p>
+ * <p>
+ *     While setting up, A rearranges the pieces with a setup from {@value #SETUPS} if there's one, like the best ones found by {@link tools.SetupSearch},
+ *     or otherwise with a new one made by a {@link SetupGenerator}. The computer sets up the same way.
+ * </p>
+ * <p>
+ *     In a game played here, B shows or hides the most likely kind of every hidden piece, from what it gave away, see {@link ai.Beliefs}.
+ * </p>
+ * <p>
+ *     The game can also be one on a {@link net.GameServer}, in which case the window only shows the state the server sends, and sends it what the player does.
+ * </p>
+ * <p>
+ *     Or it can be the {@link Replay} of a saved game, in which case every piece is shown, and a slider below the board goes to any step of the game.
+ * </p>
  */
 public class GameWindow implements Serializable {
 
@@ -36,15 +68,97 @@ public class GameWindow implements Serializable {
     private File file;
 
     /**
-     * Constructs a game window
+     * Records every change of the game in the background
+     */
+    private transient AutoSave autoSave;
+
+    /**
+     * How long the computer can think about a move, in milliseconds
+     */
+    private static final long COMPUTER_TIME = 1500;
+
+    /**
+     * The file of the setups to auto-setup with, one per line, anything after the setup on a line is ignored
+     */
+    private static final String SETUPS = "setups.txt";
+
+    /**
+     * Makes new setups when auto-setting up, created when first needed
+     */
+    private transient SetupGenerator setupGenerator;
+
+    /**
+     * The setups read from {@value #SETUPS}, empty if there are none, read when first needed
+     */
+    private transient List<byte[]> setups;
+
+    /**
+     * The computer opponent playing Dark, null if two people are playing
+     */
+    private transient Player computer;
+
+    /**
+     * The background thread the computer thinks on, so the window stays responsive
+     */
+    private transient ExecutorService computerThread;
+
+    /**
+     * Whether the computer is thinking about its move right now
+     */
+    private boolean thinking;
+
+    /**
+     * The connection to the server, if the game is played on one
+     */
+    private transient GameClient client;
+
+    /**
+     * Whether both players of the game on the server are there
+     */
+    private boolean full;
+
+    /**
+     * The replay being looked at, if the window shows one
+     */
+    private transient Replay replay;
+
+    /**
+     * The slider going through the steps of the replay, if the window shows one
+     */
+    private transient JSlider scrubber;
+
+    /**
+     * Constructs a game window for two people
      * @param load Whether to load from file or not
      */
     public GameWindow(boolean load) {
+        this(load, false);
+    }
+
+    /**
+     * Constructs a game window
+     * @param load Whether to load from file or not
+     * @param vsComputer Whether to play against the computer, which plays Dark
+     */
+    public GameWindow(boolean load, boolean vsComputer) {
 
         // creates the frame
         gameWindow = new JFrame();
 
+        // creates the computer opponent if chosen so, first, so it follows the game from when the board is made
+        if (vsComputer) {
+
+            this.computer = new AlphaBetaPlayer(COMPUTER_TIME);
+            this.computerThread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "computer");
+                t.setDaemon(true);
+                return t;
+            });
+
+        }
+
         // loads previous game if chosen so
+        boolean loaded = false;
         try_load: if (load) {
 
             // tries to load game
@@ -54,20 +168,15 @@ public class GameWindow implements Serializable {
             if (board == null || file == null) { break try_load; }
 
             board.setGameWindow(this);
+            loaded = true;
 
             // and also sets the correct title
-            switch (board.getGameStage()) {
-
-                case -1 -> this.setTitle("Stratego! - " + (board.isLightTurn() ? "Light" : "Dark") + " sets up, click either pond when finished");
-
-                case 0 -> this.setTitle("Stratego! - " + (board.isLightTurn() ? "Light" : "Dark") + "'s turn" + (board.hasStartedTurn() ? "" : ", click either pond to start"));
-
-            }
+            setTurnTitle();
 
         }
 
         // or if didn't want to, or couldn't load, creates new one
-        if (!load || board == null || file == null) {
+        if (!loaded) {
 
             // creates a new board
             this.board = new Board(this);
@@ -80,24 +189,146 @@ public class GameWindow implements Serializable {
             dialog.dispose();
 
             // sets the correct title for a new game
-            this.setTitle("Stratego! - Light sets up, click either pond when finished");
+            this.setTitle("Stratego! - Light sets up, A for auto-setup, click either pond when finished");
 
         }
 
-        // sets the size of the window and centers it on screen, sets layout
-        gameWindow.setSize(new Dimension(600,600));
-        gameWindow.setResizable(false);
-        gameWindow.setLocationRelativeTo(null);
-        gameWindow.setLayout(new BorderLayout(0,0));
+        // starts saving in the background, continuing the journal of a loaded game
+        this.autoSave = new AutoSave(file, 250, 50);
+        autoSave.start(board.getState(), loaded);
 
-        // adds the board to the window
+        showWindow();
+
+        // lets the computer go if it's its turn in a loaded game
+        nextTurn();
+
+    }
+
+    /**
+     * Constructs a game window for a game on a server, and joins the game
+     * @param host The host of the server
+     * @param port The port of the server
+     * @param gameId The id of the game to join, or -1 for any game waiting for a second player
+     * @throws IOException If it can't connect to the server
+     */
+    public GameWindow(String host, int port, int gameId) throws IOException {
+        this(host, port, gameId, -1);
+    }
+
+    /**
+     * Constructs a game window for a game on a server, and joins or watches the game
+     * @param host The host of the server
+     * @param port The port of the server
+     * @param gameId The id of the game, or -1 for any game waiting for a second player if joining it
+     * @param view The view to watch the game from, see {@link Protocol#VIEW_ALL}, or -1 to join it as a player
+     * @throws IOException If it can't connect to the server
+     */
+    public GameWindow(String host, int port, int gameId, int view) throws IOException {
+
+        // creates the frame, and the board, which stays empty until the server sends the game
+        gameWindow = new JFrame();
+        this.board = new Board(this, new GameState());
+        this.setTitle("Stratego! - Connecting to " + host + "...");
+
+        // connects, and reads what the server sends in the background
+        try {
+            this.client = new GameClient(host, port);
+            if (view < 0) { client.join(gameId); } else { client.watch(gameId, view); }
+        } catch (IOException e) {
+            gameWindow.dispose();
+            throw e;
+        }
+        Thread reader = new Thread(this::readRemote, "server");
+        reader.setDaemon(true);
+        reader.start();
+
+        showWindow();
+
+    }
+
+    /**
+     * Constructs a game window for the replay of a saved game, starting at its end
+     * @param replay The replay
+     */
+    public GameWindow(Replay replay) {
+
+        gameWindow = new JFrame();
+        this.replay = replay;
+        this.board = new Board(this, replay.stateAt(replay.length()));
+
+        // the slider goes to a step as it's dragged, and can be stepped with the arrow keys
+        this.scrubber = new JSlider(0, replay.length(), replay.length());
+        scrubber.addChangeListener(e -> showStep(scrubber.getValue()));
+        setReplayTitle(replay.length());
+
+        showWindow();
+        scrubber.requestFocusInWindow();
+
+    }
+
+    /**
+     * Lays out, sizes, and shows the window with the board in it
+     */
+    private void showWindow() {
+
+        // sets layout, and adds the board to the window, with the slider of a replay below it
+        gameWindow.setLayout(new BorderLayout(0,0));
         gameWindow.add(board, BorderLayout.CENTER);
+        if (scrubber != null) { gameWindow.add(scrubber, BorderLayout.SOUTH); }
+
+        // sizes the window to fit the board, lets it be resized down to the smallest board, and centers it on screen
+        gameWindow.pack();
+        Insets insets = gameWindow.getInsets();
+        Dimension smallest = gameWindow.getContentPane().getMinimumSize();
+        gameWindow.setMinimumSize(new Dimension(smallest.width + insets.left + insets.right, smallest.height + insets.top + insets.bottom));
+        gameWindow.setResizable(true);
+        gameWindow.setLocationRelativeTo(null);
+
+        // auto-sets up with A, in a game played here or on a server
+        if (replay == null) {
 
-        // adds a listener to save the game when closing the window
+            JRootPane root = gameWindow.getRootPane();
+            root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_A, 0), "autoSetup");
+            root.getActionMap().put("autoSetup", new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) { if (!isWaiting()) { autoSetup(); } }
+            });
+
+        }
+
+        // undoes with Ctrl+Z, and redoes with Ctrl+Y or Ctrl+Shift+Z, and shows the beliefs with B, in a game played here
+        if (client == null && replay == null) {
+
+            JRootPane root = gameWindow.getRootPane();
+            root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_B, 0), "beliefs");
+            root.getActionMap().put("beliefs", new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) { board.toggleBeliefs(); }
+            });
+
+            int ctrl = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+            root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, ctrl), "undo");
+            root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, ctrl), "redo");
+            root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, ctrl | InputEvent.SHIFT_DOWN_MASK), "redo");
+            root.getActionMap().put("undo", new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) { undo(); }
+            });
+            root.getActionMap().put("redo", new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) { redo(); }
+            });
+
+        }
+
+        // adds a listener to save the game when closing the window, waiting for the write to finish
         gameWindow.addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
                 save();
+                if (autoSave != null) { autoSave.flush(); }
+                if (computerThread != null) { computerThread.shutdownNow(); }
+                leave();
                 super.windowClosing(e);
             }
         });
@@ -108,6 +339,242 @@ public class GameWindow implements Serializable {
 
     }
 
+    /**
+     * Reads what the server sends until the connection is closed, and shows it on the board, on the Event Dispatch Thread
+     * <p>
+     *     Moves come as the two squares they changed, but the board is still given the whole state, which then only repaints what changed on it.
+     * </p>
+     */
+    private void readRemote() {
+
+        try {
+
+            while (true) {
+
+                int type = client.read();
+                if (type == Protocol.REJECTED && client.getGameId() < 0) {
+                    SwingUtilities.invokeLater(() -> setTitle("Stratego! - Couldn't " + (client.isSpectator() ? "watch" : "join") + " that game"));
+                }
+                if (type != Protocol.STATE && type != Protocol.DELTA) { continue; }
+
+                GameState s = client.getState();
+                boolean bothThere = client.isFull();
+                SwingUtilities.invokeLater(() -> {
+                    full = bothThere;
+                    board.setState(s);
+                    setRemoteTitle();
+                });
+
+            }
+
+        } catch (IOException e) {
+            SwingUtilities.invokeLater(() -> { if (board.getGameStage() < 1) { setTitle("Stratego! - Lost the connection to the server"); } });
+        }
+
+    }
+
+    /**
+     * Sets the title of the window of a game on a server, from the player's point of view
+     */
+    private void setRemoteTitle() {
+
+        String turn = board.isLightTurn() ? "Light" : "Dark";
+        if (client.isSpectator()) {
+
+            if (board.getGameStage() == 1) { setTitle("Stratego! - " + (board.getState().hasLightWon() ? "Light" : "Dark") + " Wins!"); }
+            else if (!full) { setTitle("Stratego! - Watching game " + client.getGameId() + ", waiting for the players"); }
+            else { setTitle("Stratego! - Watching game " + client.getGameId() + ", " + turn + (board.getGameStage() == -1 ? " sets up" : "'s turn")); }
+            return;
+
+        }
+
+        String team = client.isLight() ? "Light" : "Dark";
+        String other = client.isLight() ? "Dark" : "Light";
+        boolean ownTurn = board.isLightTurn() == client.isLight();
+
+        if (board.getGameStage() == 1) { setTitle("Stratego! - " + (board.getState().hasLightWon() ? "Light" : "Dark") + " Wins!"); }
+        else if (!full) { setTitle("Stratego! - Game " + client.getGameId() + ", waiting for the other player"); }
+        else if (board.getGameStage() == -1) { setTitle("Stratego! - " + (ownTurn ? "You set up as " + team + ", A for auto-setup, click either pond when finished" : other + " sets up")); }
+        else { setTitle("Stratego! - " + (ownTurn ? "Your turn as " + team : other + "'s turn")); }
+
+    }
+
+    /**
+     * Shows a step of the replay on the board
+     * @param step The step, 0 for the start
+     */
+    private void showStep(int step) {
+
+        board.setState(replay.stateAt(step));
+        setReplayTitle(step);
+
+    }
+
+    /**
+     * Sets the title of the window of a replay
+     * @param step The step shown
+     */
+    private void setReplayTitle(int step) {
+
+        String title = "Stratego! - Replay, step " + step + " of " + replay.length();
+        if (step == replay.length() && board.getGameStage() == 1) { title += ", " + (board.getState().hasLightWon() ? "Light" : "Dark") + " Wins!"; }
+        setTitle(title);
+
+    }
+
+    /**
+     * Sends something the player did to the server
+     * @param type The type of the message, see {@link Protocol}
+     * @param a The first square, if the message has one
+     * @param b The second square, if the message has one
+     */
+    public void send(byte type, int a, int b) {
+
+        try {
+
+            switch (type) {
+                case Protocol.SWAP -> client.swap(a, b);
+                case Protocol.END_SETUP -> client.endSetup();
+                case Protocol.MOVE -> client.move(a, b);
+            }
+
+        } catch (IOException e) {
+            setTitle("Stratego! - Lost the connection to the server");
+        }
+
+    }
+
+    /**
+     * Leaves the server, if the game is played on one
+     */
+    private void leave() {
+
+        if (client == null) { return; }
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // leaving anyway
+        }
+
+    }
+
+    /**
+     * Gets whether the game is played on a server
+     * @return true if connected to a server
+     */
+    public boolean isRemote() {
+        return client != null;
+    }
+
+    /**
+     * Gets whether the window shows a replay, in which every piece is shown, and nothing can be done on the board
+     * @return true if it does
+     */
+    public boolean isReplay() {
+        return replay != null;
+    }
+
+    /**
+     * Gets whether the pieces of a team are seen from the view of the game on the server
+     * @param lightTeam The team
+     * @return true if it's the team of the player, or the spectator watches from its view
+     */
+    public boolean sees(boolean lightTeam) {
+        return client != null && client.getView() == (lightTeam ? Protocol.VIEW_LIGHT : Protocol.VIEW_DARK);
+    }
+
+    /**
+     * Rearranges the pieces of the player who is setting up, by swapping them, so it can be undone, and works on a server too
+     */
+    public void autoSetup() {
+
+        if (board.getGameStage() != -1) { return; }
+
+        if (setupGenerator == null) {
+            setupGenerator = new SetupGenerator(System.nanoTime());
+            setups = readSetups();
+        }
+        byte[] setup = setups.isEmpty() ? setupGenerator.biased() : setups.get((int) (Math.random() * setups.size()));
+
+        for (int swap : SetupGenerator.swapsTo(board.getState(), board.isLightTurn(), setup)) {
+            int a = swap >> 8;
+            int b = swap & 0xFF;
+            board.swap(board.getBoard()[a / 10][a % 10], board.getBoard()[b / 10][b % 10]);
+        }
+
+    }
+
+    /**
+     * Reads the setups to auto-setup with, skipping the lines that aren't setups
+     * @return The setups, empty if there's no such file, or it can't be read
+     */
+    private static List<byte[]> readSetups() {
+
+        List<byte[]> read = new ArrayList<>();
+        File file = new File(SETUPS);
+        if (!file.exists()) { return read; }
+
+        try {
+
+            for (String line : Files.readAllLines(file.toPath())) {
+                if (line.isBlank()) { continue; }
+                try {
+                    read.add(SetupGenerator.parse(line.trim().split("\\s+")[0]));
+                } catch (IllegalArgumentException ignored) {
+                    // not a setup
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Couldn't read setups: " + e.getMessage());
+        }
+
+        return read;
+
+    }
+
+    /**
+     * Sets the title of the window from the game, saying whose turn it is, or who won
+     */
+    public void setTurnTitle() {
+
+        switch (board.getGameStage()) {
+
+            case -1 -> this.setTitle("Stratego! - " + (board.isLightTurn() ? "Light" : "Dark") + " sets up, A for auto-setup, click either pond when finished");
+
+            case 0 -> this.setTitle("Stratego! - " + (board.isLightTurn() ? "Light" : "Dark") + "'s turn" + (board.hasStartedTurn() ? "" : ", click either pond to start"));
+
+            case 1 -> this.setTitle("Stratego! - " + (board.getState().hasLightWon() ? "Light" : "Dark") + " Wins!");
+
+        }
+
+    }
+
+    /**
+     * Undoes the last thing the player did, along with the computer's answer to it, so it's the player's turn again
+     */
+    public void undo() {
+
+        if (isWaiting()) { return; }
+
+        boolean undone = board.undo();
+        while (undone && computer != null && !board.isLightTurn()) { undone = board.undo(); }
+
+    }
+
+    /**
+     * Does the last undone thing again, along with the computer's answer to it, or lets the computer think of a new answer if there's none
+     */
+    public void redo() {
+
+        if (isWaiting() || !board.redo()) { return; }
+
+        while (computer != null && !board.isLightTurn() && board.getGameStage() < 1) {
+            if (!board.redo()) { nextTurn(); return; }
+        }
+
+    }
+
     /**
      * Sets the title of the window
      * @param title The title to set
@@ -117,7 +584,7 @@ public class GameWindow implements Serializable {
     }
 
     /**
-     * Loads the board from file
+     * Loads the game from file, replaying its journal if there's one
      */
     public void load() {
 
@@ -134,7 +601,7 @@ public class GameWindow implements Serializable {
         if (file != null) {
 
             try {
-                board = FileIO.read(this.file);
+                board = new Board(this, Journal.recover(this.file));
             } catch (IOException | ClassNotFoundException e) {
                 throw new RuntimeException(e);
             }
@@ -144,16 +611,89 @@ public class GameWindow implements Serializable {
     }
 
     /**
-     * Saves the board to file
+     * Records something that happened in the game, appending it to the journal in the background
+     * @param kind The kind of the record, see {@link Journal}
+     * @param a The first square
+     * @param b The second square
+     */
+    public void record(int kind, int a, int b) {
+        if (autoSave != null) { autoSave.record(kind, a, b, board.getState()); }
+    }
+
+    /**
+     * Lets the computer opponent start following the game, if there's one
+     * @param start The game where its playing stage started, only read during this call
+     */
+    public void startPlay(GameState start) {
+        if (computer != null) { computer.startPlay(start); }
+    }
+
+    /**
+     * Lets the computer opponent learn from a move made by either team, if there's one
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param attacker The code of the moving piece, before the move
+     * @param defender The code on the square moved to, before the move
+     * @param outcome The outcome of the move, one of the {@link engine.GameEngine} outcome codes
+     */
+    public void observe(int from, int to, byte attacker, byte defender, int outcome) {
+        if (computer != null) { computer.observe(from, to, attacker, defender, outcome); }
+    }
+
+    /**
+     * Gets whether the player has to wait for the computer or the other player on the server, in which case the board ignores the mouse
+     * @return true if it's the computer's turn, or the other player's turn on the server, or the game on the server isn't full yet, or only watched or replayed
+     */
+    public boolean isWaiting() {
+
+        if (replay != null) { return true; }
+        if (client != null) { return client.isSpectator() || !full || board.isLightTurn() != client.isLight(); }
+        return computer != null && (thinking || (!board.isLightTurn() && board.getGameStage() < 1));
+
+    }
+
+    /**
+     * Lets the computer take its turn if it's its turn: it auto-sets up when setting up, and thinks of its move in the background when playing
+     * <p>
+     *     The move is then made on the Event Dispatch Thread, along with starting its turn, so its pieces are never shown while it's thinking.
+     * </p>
+     */
+    public void nextTurn() {
+
+        if (computer == null || thinking || board.isLightTurn() || board.getGameStage() == 1) { return; }
+
+        // sets up and finishes its setup right away
+        if (board.getGameStage() == -1) {
+            SwingUtilities.invokeLater(() -> {
+                autoSetup();
+                board.endSetup();
+            });
+            return;
+        }
+
+        // or thinks of a move on a copy of the game
+        thinking = true;
+        this.setTitle("Stratego! - Dark is thinking...");
+        GameState copy = new GameState(board.getState());
+        computerThread.execute(() -> {
+
+            int move = computer.chooseMove(copy);
+            SwingUtilities.invokeLater(() -> {
+                thinking = false;
+                board.play(move);
+            });
+
+        });
+
+    }
+
+    /**
+     * Saves a snapshot of the game to file in the background, skipped if nothing changed since the last save
      */
     public void save() {
 
-        if (file != null) {
-            try {
-                FileIO.write(this.file, board);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+        if (autoSave != null) {
+            autoSave.request(board.getState());
         }
 
     }
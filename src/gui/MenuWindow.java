@@ -1,6 +1,12 @@
 package gui;
 
+import helper.Replay;
+import net.GameServer;
+import net.Protocol;
+
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
 import javax.swing.*;
 
 import static java.lang.System.exit;
@@ -15,7 +21,7 @@ public class MenuWindow implements Runnable {
 
         // creates the frame and moves it to the center
         JFrame menuWindow = new JFrame("Stratego!");
-        menuWindow.setSize(200,130);
+        menuWindow.setSize(200,250);
         menuWindow.setLocationRelativeTo(null);
 
         // creates the main panel and sets it's layout to a boxlayout
@@ -30,6 +36,62 @@ public class MenuWindow implements Runnable {
             menuWindow.dispose();
         });
 
+        // creates a button for a new game against the computer
+        JButton computer = new JButton("Play vs Computer");
+        computer.setAlignmentX(Component.CENTER_ALIGNMENT);
+        computer.addActionListener(e -> {
+            new GameWindow(false, true);
+            menuWindow.dispose();
+        });
+
+        // creates a button for joining a game on a server, asking for the server and the game
+        JButton online = new JButton("Play Online");
+        online.setAlignmentX(Component.CENTER_ALIGNMENT);
+        online.addActionListener(e -> {
+
+            String server = JOptionPane.showInputDialog(menuWindow, "Server (host:port)", "localhost:" + GameServer.DEFAULT_PORT);
+            if (server == null) { return; }
+            String game = JOptionPane.showInputDialog(menuWindow, "Game number, or empty to join anyone waiting", "");
+            if (game == null) { return; }
+
+            try {
+                String[] address = server.trim().split(":");
+                int port = address.length > 1 ? Integer.parseInt(address[1]) : GameServer.DEFAULT_PORT;
+                new GameWindow(address[0], port, game.isBlank() ? -1 : Integer.parseInt(game.trim()));
+                menuWindow.dispose();
+            } catch (IOException | NumberFormatException ex) {
+                JOptionPane.showMessageDialog(menuWindow, "Couldn't join: " + ex.getMessage());
+            }
+
+        });
+
+        // creates a button for watching a game on a server, asking for the server, the game, and whose pieces to see
+        JButton watch = new JButton("Watch Online");
+        watch.setAlignmentX(Component.CENTER_ALIGNMENT);
+        watch.addActionListener(e -> {
+
+            String server = JOptionPane.showInputDialog(menuWindow, "Server (host:port)", "localhost:" + GameServer.DEFAULT_PORT);
+            if (server == null) { return; }
+            String game = JOptionPane.showInputDialog(menuWindow, "Game number", "");
+            if (game == null) { return; }
+
+            // the options are in the order of the views
+            String[] views = {"Dark's", "Light's", "Neither"};
+            int view = JOptionPane.showOptionDialog(menuWindow, "Whose pieces to see", "Watch Online", JOptionPane.DEFAULT_OPTION,
+                    JOptionPane.QUESTION_MESSAGE, null, views, views[Protocol.VIEW_ALL]);
+            if (view < 0) { return; }
+
+            try {
+                String[] address = server.trim().split(":");
+                int port = address.length > 1 ? Integer.parseInt(address[1]) : GameServer.DEFAULT_PORT;
+                new GameWindow(address[0], port, Integer.parseInt(game.trim()), view);
+                menuWindow.dispose();
+            } catch (IOException | NumberFormatException ex) {
+                JOptionPane.showMessageDialog(menuWindow, "Couldn't watch: " + ex.getMessage());
+            }
+
+        });
+
         // creates a load game button
         JButton load = new JButton("Load Game");
         load.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -38,6 +100,27 @@ public class MenuWindow implements Runnable {
             menuWindow.dispose();
         });
 
+        // creates a button for replaying a saved game, asking for its savefile
+        JButton replay = new JButton("Replay Game");
+        replay.setAlignmentX(Component.CENTER_ALIGNMENT);
+        replay.addActionListener(e -> {
+
+            FileDialog dialog = new FileDialog((Frame)null, "Choose savefile to replay");
+            dialog.setMode(FileDialog.LOAD);
+            dialog.setVisible(true);
+            if (dialog.getDirectory() == null || dialog.getFile() == null) { dialog.dispose(); return; }
+            File file = new File(dialog.getDirectory(), dialog.getFile());
+            dialog.dispose();
+
+            try {
+                new GameWindow(Replay.read(file));
+                menuWindow.dispose();
+            } catch (IOException | ClassNotFoundException ex) {
+                JOptionPane.showMessageDialog(menuWindow, "Couldn't replay: " + ex.getMessage());
+            }
+
+        });
+
         // creates a quit button
         JButton quit = new JButton("Quit");
         quit.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -49,7 +132,11 @@ public class MenuWindow implements Runnable {
         // puts everything to where it should be
         panel.add(Box.createVerticalStrut(10));
         panel.add(start);
+        panel.add(computer);
+        panel.add(online);
+        panel.add(watch);
         panel.add(load);
+        panel.add(replay);
         panel.add(quit);
         menuWindow.add(panel);
 
@@ -0,0 +1,288 @@
+package helper;
+
+import engine.GameState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a game in the background, so the Event Dispatch Thread never waits for the disk
+ * <p>
+ *     Everything that happens in the game is recorded as a few bytes appended to its {@link Journal}, and every so many records,
+ *     a snapshot of the whole game is written both to the journal and to the savefile, so that recovering never has to replay much.
+ * </p>
+ * <p>
+ *     Recording only takes a few bytes, or a hundred or so for a snapshot. Records that arrive within a short delay of each other are coalesced into a single write,
+ *     and snapshot requests that wouldn't change anything compared to the last snapshot are skipped.
+ * </p>
+ * <p>
+ *     If a write fails, nothing is lost: the records stay pending, and the savefile isn't written until they're in the journal, so the next write tries again.
+ *     The same goes for opening the journal, as an older journal left next to the savefile would otherwise be recovered instead of it.
+ * </p>
+ */
+public class AutoSave {
+
+    /**
+     * The savefile
+     */
+    private final File file;
+
+    /**
+     * How long to wait for more changes before writing, in milliseconds
+     */
+    private final long delay;
+
+    /**
+     * How many records to write between two snapshots
+     */
+    private final int snapshotInterval;
+
+    /**
+     * The single background thread doing the writing
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The journal, only used from the background thread, null until it could be opened
+     */
+    private Journal journal;
+
+    /**
+     * Whether to continue the journal already next to the savefile when opening it, or to start a new one
+     */
+    private boolean resume;
+
+    /**
+     * The game as it was when saving started, which the journal starts from if it's a new one, null once it's open
+     */
+    private byte[] first;
+
+    /**
+     * The records and snapshots not yet appended to the journal, in order
+     */
+    private final ByteArrayOutputStream pending;
+
+    /**
+     * The latest snapshot not yet written to the savefile, null if there's none
+     */
+    private byte[] pendingSave;
+
+    /**
+     * The latest snapshot that was taken, used to skip requests that don't change anything
+     */
+    private byte[] latest;
+
+    /**
+     * How many records were taken since the latest snapshot
+     */
+    private int sinceSnapshot;
+
+    /**
+     * Whether a write is already scheduled
+     */
+    private boolean scheduled;
+
+    /**
+     * Constructs an autosave for a savefile
+     * @param file The file to save to
+     * @param delay How long to wait for more changes before writing, in milliseconds
+     * @param snapshotInterval How many records to write between two snapshots
+     */
+    public AutoSave(File file, long delay, int snapshotInterval) {
+
+        this.file = file;
+        this.delay = delay;
+        this.snapshotInterval = snapshotInterval;
+        this.pending = new ByteArrayOutputStream();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "autosave");
+            t.setDaemon(true);
+            return t;
+        });
+
+    }
+
+    /**
+     * Opens the journal and saves the game as it is now, doesn't wait for the write
+     * @param s The game, only read during this call
+     * @param resume Whether to continue the journal already next to the savefile, or to start a new one
+     */
+    public void start(GameState s, boolean resume) {
+
+        byte[] snapshot = FileIO.encode(s);
+
+        synchronized (this) {
+            latest = snapshot;
+            pendingSave = snapshot;
+        }
+
+        this.resume = resume;
+        this.first = snapshot;
+        executor.execute(this::writePending);
+
+    }
+
+    /**
+     * Records something that happened in the game, doesn't wait for the write
+     * @param kind The kind of the record, see {@link Journal}
+     * @param a The first square
+     * @param b The second square
+     * @param after The game after it happened, only read during this call, and only if it's time for a snapshot
+     */
+    public synchronized void record(int kind, int a, int b, GameState after) {
+
+        pending.write(kind);
+        pending.write(a);
+        pending.write(b);
+
+        // takes a snapshot every so often
+        if (++sinceSnapshot >= snapshotInterval) { snapshot(FileIO.encode(after)); }
+
+        schedule();
+
+    }
+
+    /**
+     * Requests a snapshot of the game, skipped if nothing changed since the last one, doesn't wait for the write
+     * @param s The game to save, only read during this call
+     */
+    public void request(GameState s) {
+
+        byte[] snapshot = FileIO.encode(s);
+
+        synchronized (this) {
+
+            if (sinceSnapshot == 0 && Arrays.equals(snapshot, latest)) { return; }
+            snapshot(snapshot);
+            schedule();
+
+        }
+
+    }
+
+    /**
+     * Writes anything pending right away, waits for it, then stops the background thread, used when closing the game
+     */
+    public void flush() {
+
+        if (executor.isShutdown()) { return; }
+
+        try {
+
+            executor.submit(() -> {
+
+                writePending();
+                try {
+                    if (journal != null) { journal.close(); }
+                } catch (IOException e) {
+                    System.err.println("Couldn't close journal: " + e.getMessage());
+                }
+
+            }).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Couldn't save: " + e.getCause().getMessage());
+        }
+
+        executor.shutdown();
+
+    }
+
+    /**
+     * Adds a snapshot to what's pending, must be called while holding the lock
+     * @param snapshot The game encoded as a save
+     */
+    private void snapshot(byte[] snapshot) {
+
+        pending.write(Journal.SNAPSHOT);
+        pending.writeBytes(snapshot);
+        pendingSave = snapshot;
+        latest = snapshot;
+        sinceSnapshot = 0;
+
+    }
+
+    /**
+     * Schedules a write if there isn't one already, otherwise that one will write everything pending, must be called while holding the lock
+     */
+    private void schedule() {
+
+        if (!scheduled && !executor.isShutdown()) {
+            scheduled = true;
+            executor.schedule(this::writePending, delay, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+    /**
+     * Opens the journal if it isn't yet, appends the pending records to it, then writes the pending snapshot to the savefile, runs on the background thread
+     */
+    private void writePending() {
+
+        // nothing is written until the journal is open, the records staying pending until the next write tries again
+        if (journal == null) {
+
+            try {
+                journal = resume ? Journal.open(file, first) : Journal.create(file, first);
+                first = null;
+            } catch (IOException e) {
+                System.err.println("Couldn't open journal: " + e.getMessage());
+                synchronized (this) { scheduled = false; }
+                return;
+            }
+
+        }
+
+        byte[] records;
+        byte[] save;
+        synchronized (this) {
+            records = pending.toByteArray();
+            pending.reset();
+            save = pendingSave;
+            pendingSave = null;
+            scheduled = false;
+        }
+
+        // the journal goes first, so it's never older than the savefile
+        try {
+            if (records.length > 0) { journal.append(records, records.length); }
+        } catch (IOException e) {
+
+            // puts the records back in front of the ones that came since, and keeps the savefile as it is until they're written
+            System.err.println("Couldn't write journal: " + e.getMessage());
+            synchronized (this) {
+                byte[] since = pending.toByteArray();
+                pending.reset();
+                pending.writeBytes(records);
+                pending.writeBytes(since);
+                if (pendingSave == null) { pendingSave = save; }
+            }
+            return;
+
+        }
+
+        try {
+            if (save != null) { FileIO.write(file, save); }
+        } catch (IOException e) {
+
+            // keeps the snapshot to write the next time, and lets the same request through again
+            System.err.println("Couldn't save: " + e.getMessage());
+            synchronized (this) {
+                if (pendingSave == null) { pendingSave = save; }
+                if (latest == save) { latest = null; }
+            }
+
+        }
+
+    }
+
+
+}
@@ -1,45 +1,318 @@
 package helper;
 
 import board.Board;
+import engine.GameState;
+import engine.PieceCode;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
 
 /**
  * Handles reading from and writing to file
+ * <p>
+ *     Games are saved in a compact binary format: a 4 byte magic number ("STRG"), a format version byte, a CRC32C checksum of the rest,
+ *     then the game stage, a byte of flags (Light's turn, turn started, Light won), and the piece codes of the 100 squares, each already containing whether the piece is revealed.
+ *     Version 1 saves were the same without the checksum, and can still be read.
+ * </p>
+ * <p>
+ *     Saves are written to a temporary file, synced to disk, and then renamed over the old save, which is kept as a backup.
+ *     So a crash at any point leaves either the old or the new save intact, and if the save can't be read, the backup is read instead.
+ * </p>
+ * <p>
+ *     Older saves, which were the whole board serialized, can still be read, and get converted to the new format on the next save.
+ * </p>
  */
 public class FileIO {
 
     /**
-     * Reads board from file
+     * The magic number every save starts with, "STRG" in ASCII
+     */
+    public static final int MAGIC = 0x53545247;
+
+    /**
+     * The current version of the format
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The size of the stage, flags, and squares, which every version has
+     */
+    private static final int PAYLOAD = 1 + 1 + GameState.SQUARES;
+
+    /**
+     * The size of a save in bytes
+     */
+    public static final int SIZE = 4 + 1 + 4 + PAYLOAD;
+
+    /**
+     * The flag set if it's Light's turn
+     */
+    private static final int LIGHT_TURN = 1;
+
+    /**
+     * The flag set if the current player has started their turn
+     */
+    private static final int STARTED_TURN = 2;
+
+    /**
+     * The flag set if Light won
+     */
+    private static final int LIGHT_WON = 4;
+
+    /**
+     * The first two bytes of a Java serialization stream, used to recognize older saves
+     */
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    /**
+     * Reads a game from file, or from its backup if the file is missing or damaged
      * @param f File to read from
-     * @return The board from file
-     * @throws IOException If it can't read the board for some reason
-     * @throws ClassNotFoundException If it can't find the Board class
+     * @return The game from file
+     * @throws IOException If it can't read the game, nor its backup
+     * @throws ClassNotFoundException If it's an older save and it can't find the classes in it
      */
-    public static Board read(File f) throws IOException, ClassNotFoundException {
-        FileInputStream fis = new FileInputStream(f);
-        ObjectInputStream ois = new ObjectInputStream(fis);
+    public static GameState read(File f) throws IOException, ClassNotFoundException {
 
-        Board board = (Board) ois.readObject();
-        ois.close();
-        fis.close();
+        try {
+
+            return readFile(f);
+
+        } catch (IOException e) {
+
+            // falls back to the previous save if there's one
+            File backup = backupFor(f);
+            if (!backup.exists()) { throw e; }
+
+            System.err.println("Couldn't read " + f + ", reading the previous save instead: " + e.getMessage());
+            return readFile(backup);
+
+        }
+
+    }
+
+    /**
+     * Reads a game from a single file, without falling back to the backup
+     * @param f File to read from
+     * @return The game from file
+     * @throws IOException If it can't read the game for some reason
+     * @throws ClassNotFoundException If it's an older save and it can't find the classes in it
+     */
+    private static GameState readFile(File f) throws IOException, ClassNotFoundException {
+
+        byte[] data = Files.readAllBytes(f.toPath());
+
+        // older saves are imported from the serialized board
+        if (data.length >= 2 && ((data[0] & 0xFF) << 8 | (data[1] & 0xFF)) == SERIALIZATION_MAGIC) {
+            return importSerialized(data);
+        }
+
+        return decode(data);
 
-        return board;
     }
 
     /**
-     * Writes the board to file
+     * Writes a game to file
      * @param f File to write to
-     * @param b The board to write
+     * @param s The game to write
      * @throws IOException If it can't write for some reason
      */
-    public static void write(File f, Board b) throws IOException {
-        FileOutputStream fos = new FileOutputStream(f);
-        ObjectOutputStream oos = new ObjectOutputStream(fos);
+    public static void write(File f, GameState s) throws IOException {
+        write(f, encode(s));
+    }
+
+    /**
+     * Writes an already encoded game to file, atomically replacing the old save, which is kept as a backup
+     * @param f File to write to
+     * @param data The bytes of the save, as given by {@link #encode(GameState)}
+     * @throws IOException If it can't write for some reason, in which case the old save is left untouched
+     */
+    public static void write(File f, byte[] data) throws IOException {
+
+        Path target = f.toPath().toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        // writes everything to a temporary file and makes sure it's on disk
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) { channel.write(buffer); }
+            channel.force(true);
+        }
+
+        // then keeps the old save as a backup, and puts the new one in its place
+        if (Files.exists(target)) { move(target, backupFor(f).toPath().toAbsolutePath()); }
+        move(temp, target);
+
+        // and makes sure the renames are on disk too, where that's possible
+        try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // some systems can't sync directories, the renames are still atomic there
+        }
+
+    }
+
+    /**
+     * Gets the backup belonging to a savefile
+     * @param f The savefile
+     * @return The file next to it, with .bak appended to its name
+     */
+    public static File backupFor(File f) {
+        return new File(f.getPath() + ".bak");
+    }
+
+    /**
+     * Renames a file, replacing the target, atomically if the file system supports it
+     * @param from The file to rename
+     * @param to The new name
+     * @throws IOException If it can't rename the file
+     */
+    private static void move(Path from, Path to) throws IOException {
+
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+    }
+
+    /**
+     * Encodes a game in the save format
+     * @param s The game to encode
+     * @return The bytes of the save
+     */
+    public static byte[] encode(GameState s) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putInt(0);
+
+        buffer.put((byte) s.getGameStage());
+        buffer.put((byte) ((s.isLightTurn() ? LIGHT_TURN : 0) | (s.hasStartedTurn() ? STARTED_TURN : 0) | (s.hasLightWon() ? LIGHT_WON : 0)));
+        for (int i = 0; i < GameState.SQUARES; i++) { buffer.put(s.get(i)); }
+
+        // fills in the checksum of everything after it
+        buffer.putInt(5, checksum(buffer.array(), SIZE - PAYLOAD));
+
+        return buffer.array();
+
+    }
+
+    /**
+     * Gets the size of a save of a given version
+     * @param version The version of the format
+     * @return The size in bytes, or -1 if there's no such version
+     */
+    public static int sizeOf(int version) {
+
+        return switch (version) {
+            case 1 -> 4 + 1 + PAYLOAD;
+            case 2 -> SIZE;
+            default -> -1;
+        };
+
+    }
+
+    /**
+     * Decodes a game from the save format, checking that it's a valid and undamaged save
+     * @param data The bytes of the save
+     * @return The decoded game
+     * @throws IOException If it isn't a valid save
+     */
+    public static GameState decode(byte[] data) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        if (data.length < 5 || buffer.getInt() != MAGIC) { throw new IOException("Not a savefile"); }
+        int version = buffer.get() & 0xFF;
+        if (sizeOf(version) < 0) { throw new IOException("Unsupported savefile version: " + version); }
+        if (data.length != sizeOf(version)) { throw new IOException("Savefile is cut off"); }
+
+        // checks that nothing got damaged
+        if (version >= 2 && buffer.getInt() != checksum(data, data.length - PAYLOAD)) {
+            throw new IOException("Savefile is damaged, checksum doesn't match");
+        }
+
+        GameState s = new GameState();
+
+        int stage = buffer.get();
+        if (stage < -1 || stage > 1) { throw new IOException("Corrupt savefile, invalid game stage: " + stage); }
+        s.setGameStage(stage);
+
+        int flags = buffer.get() & 0xFF;
+        s.setLightTurn((flags & LIGHT_TURN) != 0);
+        s.setStartedTurn((flags & STARTED_TURN) != 0);
+        s.setLightWon((flags & LIGHT_WON) != 0);
+
+        for (int i = 0; i < GameState.SQUARES; i++) {
+
+            byte code = buffer.get();
+
+            // only the rank, team, and revealed bits can be set, and the rank has to be valid
+            boolean validBits = (code & ~(PieceCode.RANK_MASK | PieceCode.LIGHT | PieceCode.REVEALED)) == 0;
+            boolean validRank = (code & PieceCode.RANK_MASK) <= PieceCode.RANKS;
+            if (!validBits || !validRank || (code != PieceCode.EMPTY && (code & PieceCode.RANK_MASK) == 0)) {
+                throw new IOException("Corrupt savefile, invalid piece on square " + i);
+            }
+
+            s.set(i, code);
+
+        }
+
+        return s;
+
+    }
+
+    /**
+     * Computes the CRC32C checksum of the end of a save
+     * @param data The bytes of the save
+     * @param from Where the checksummed part starts
+     * @return The checksum
+     */
+    private static int checksum(byte[] data, int from) {
+
+        CRC32C crc = new CRC32C();
+        crc.update(data, from, data.length - from);
+        return (int) crc.getValue();
+
+    }
+
+    /**
+     * Imports a game from an older save, which is a serialized board
+     * <p>
+     *     The fields of the board were components back then, but no longer are, so they're read as {@link board.legacy.Field legacy fields} instead.
+     * </p>
+     * @param data The bytes of the save
+     * @return The game on the board
+     * @throws IOException If it can't read the board for some reason
+     * @throws ClassNotFoundException If it can't find the Board class
+     */
+    public static GameState importSerialized(byte[] data) throws IOException, ClassNotFoundException {
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                return switch (desc.getName()) {
+                    case "board.Field" -> board.legacy.Field.class;
+                    case "[Lboard.Field;" -> board.legacy.Field[].class;
+                    case "[[Lboard.Field;" -> board.legacy.Field[][].class;
+                    default -> super.resolveClass(desc);
+                };
+            }
+        };
+        Board board = (Board) ois.readObject();
+        ois.close();
+
+        return board.getState();
 
-        oos.writeObject(b);
-        oos.close();
-        fos.close();
     }
 
 
@@ -0,0 +1,396 @@
+package helper;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.History;
+import engine.StrategoEngine;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only journal of everything that happens in a game, kept next to the savefile
+ * <p>
+ *     After a 4 byte magic number ("STRJ") and a version byte, the journal is a list of records. Every move, swap, and turn change is a 3 byte record:
+ *     the kind of the record, then two squares. For moves, the kind is the outcome of the move (see {@link GameEngine}), so the combat result is kept too.
+ *     Undoing and redoing are records too, which only replay through a {@link History} that has the records before them.
+ * </p>
+ * <p>
+ *     Every once in a while, and always at the start, a snapshot record is written, which is a kind byte followed by a whole save (see {@link FileIO}), checksum included.
+ *     Recovering a game only needs the last complete snapshot, with the records after it replayed on top, and the journal as a whole is the full history of the game,
+ *     which {@link Replay} steps through.
+ * </p>
+ */
+public class Journal implements Closeable {
+
+    /**
+     * The magic number every journal starts with, "STRJ" in ASCII
+     */
+    public static final int MAGIC = 0x5354524A;
+
+    /**
+     * The current version of the format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header
+     */
+    public static final int HEADER = 4 + 1;
+
+    /**
+     * The size of a record, apart from snapshots
+     */
+    public static final int RECORD = 3;
+
+    /**
+     * Kind of the record of a setup swap, the two squares are the swapped pieces
+     */
+    public static final int SWAP = 5;
+
+    /**
+     * Kind of the record of a player finishing their setup, the squares are unused
+     */
+    public static final int END_SETUP = 6;
+
+    /**
+     * Kind of the record of a player starting their turn, the squares are unused
+     */
+    public static final int START_TURN = 7;
+
+    /**
+     * Kind of the record of a player winning without a move, the first square is 1 if Light won, and 0 if Dark did
+     */
+    public static final int WIN = History.WIN;
+
+    /**
+     * Kind of the record of undoing the last thing done, the squares are unused
+     */
+    public static final int UNDO = 9;
+
+    /**
+     * Kind of the record of redoing the last thing undone, the squares are unused
+     */
+    public static final int REDO = 10;
+
+    /**
+     * Kind of the record of a snapshot, followed by a whole save
+     */
+    public static final int SNAPSHOT = 0x7F;
+
+    /**
+     * The journal file, opened for appending
+     */
+    private final FileOutputStream out;
+
+    /**
+     * Opens a journal for appending
+     * @param file The journal file
+     * @param append Whether to keep what's already in it, or start over
+     * @throws IOException If it can't open the file
+     */
+    private Journal(File file, boolean append) throws IOException {
+        this.out = new FileOutputStream(file, append);
+    }
+
+    /**
+     * Gets the journal file belonging to a savefile
+     * @param saveFile The savefile
+     * @return The file next to it, with .journal appended to its name
+     */
+    public static File fileFor(File saveFile) {
+        return new File(saveFile.getPath() + ".journal");
+    }
+
+    /**
+     * Starts a new journal for a savefile, replacing any old one, with a snapshot of the game as its first record
+     * @param saveFile The savefile
+     * @param snapshot The game encoded as a save
+     * @return The journal, ready to append to
+     * @throws IOException If it can't write the journal
+     */
+    public static Journal create(File saveFile, byte[] snapshot) throws IOException {
+
+        Journal journal = new Journal(fileFor(saveFile), false);
+
+        DataOutputStream header = new DataOutputStream(journal.out);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        journal.appendSnapshot(snapshot);
+        journal.out.getFD().sync();
+
+        return journal;
+
+    }
+
+    /**
+     * Continues the journal of a savefile, cutting off an incomplete record at the end, which a crash may have left behind
+     * <p>
+     *     If there's no usable journal, starts a new one instead.
+     * </p>
+     * @param saveFile The savefile
+     * @param snapshot The game encoded as a save, used if a new journal is needed
+     * @return The journal, ready to append to
+     * @throws IOException If it can't read or write the journal
+     */
+    public static Journal open(File saveFile, byte[] snapshot) throws IOException {
+
+        File file = fileFor(saveFile);
+        Scan scan = file.exists() ? scan(Files.readAllBytes(file.toPath())) : null;
+        if (scan == null || scan.state == null) { return create(saveFile, snapshot); }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(scan.validLength);
+        }
+
+        Journal journal = new Journal(file, true);
+        journal.appendSnapshot(snapshot);
+        journal.out.getFD().sync();
+        return journal;
+
+    }
+
+    /**
+     * Reads a game, replaying its journal if there is one
+     * <p>
+     *     The journal is written before the savefile, so if it's usable it's at least as new, otherwise the savefile is read on its own.
+     * </p>
+     * @param saveFile The savefile
+     * @return The recovered game
+     * @throws IOException If it can't read the game for some reason
+     * @throws ClassNotFoundException If it's an older save and it can't find the classes in it
+     */
+    public static GameState recover(File saveFile) throws IOException, ClassNotFoundException {
+
+        File file = fileFor(saveFile);
+        if (file.exists()) {
+            Scan scan = scan(Files.readAllBytes(file.toPath()));
+            if (scan != null && scan.state != null) { return scan.state; }
+        }
+
+        return FileIO.read(saveFile);
+
+    }
+
+    /**
+     * Appends already encoded records, and makes sure they're on disk, or else that none of them are there
+     * @param data The buffer holding the records
+     * @param length The number of bytes to append from the start of the buffer
+     * @throws IOException If it can't write for some reason
+     */
+    public void append(byte[] data, int length) throws IOException {
+
+        long before = out.getChannel().position();
+        try {
+            out.write(data, 0, length);
+            out.getFD().sync();
+        } catch (IOException e) {
+
+            // cuts off whatever was written, so the records can be appended again as a whole
+            try {
+                out.getChannel().truncate(before);
+            } catch (IOException ignored) {
+                // opening it again cuts off an incomplete record anyway
+            }
+            throw e;
+
+        }
+
+    }
+
+    /**
+     * Appends a snapshot record
+     * @param snapshot The game encoded as a save
+     * @throws IOException If it can't write for some reason
+     */
+    public void appendSnapshot(byte[] snapshot) throws IOException {
+        out.write(SNAPSHOT);
+        out.write(snapshot);
+    }
+
+    /**
+     * Closes the journal file
+     * @throws IOException If it can't close it for some reason
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * The result of going through a journal
+     */
+    private static class Scan {
+
+        /**
+         * The game from the last snapshot that could be read, with the valid records after it replayed, null if there wasn't such a snapshot
+         */
+        GameState state;
+
+        /**
+         * The length of the journal up to and including the last complete record
+         */
+        int validLength;
+
+    }
+
+    /**
+     * Goes through a journal, finding where its complete records end, then restores the last snapshot that can be read, and replays the records after it,
+     * until reaching the end or a record that doesn't replay
+     * <p>
+     *     Only the snapshots are decoded until then, so this takes as long as the records after the last snapshot, whatever came before it.
+     * </p>
+     * @param data The bytes of the journal
+     * @return The result, or null if it's not a journal
+     */
+    private static Scan scan(byte[] data) {
+
+        if (!hasHeader(data)) { return null; }
+
+        // finds every complete record, keeping where the snapshots are
+        Scan scan = new Scan();
+        int[] snapshots = new int[16];
+        int count = 0;
+        int pos = HEADER;
+
+        while (pos < data.length) {
+
+            boolean snapshot = data[pos] == SNAPSHOT;
+            int length = snapshot ? snapshotLength(data, pos) : RECORD;
+            if (length < 0 || pos + length > data.length) { break; }
+
+            if (snapshot) {
+                if (count == snapshots.length) { snapshots = Arrays.copyOf(snapshots, count * 2); }
+                snapshots[count++] = pos;
+            }
+            pos += length;
+
+        }
+        scan.validLength = pos;
+
+        // restores the last snapshot that can be read
+        int from = -1;
+        for (int i = count - 1; i >= 0 && scan.state == null; i--) {
+
+            try {
+                scan.state = FileIO.decode(Arrays.copyOfRange(data, snapshots[i] + 1, snapshots[i] + snapshotLength(data, snapshots[i])));
+                from = snapshots[i];
+            } catch (IOException e) {
+                // tries the one before it
+            }
+
+        }
+        if (scan.state == null) { return scan; }
+
+        // and replays the records after it, skipping the later snapshots that couldn't be read, where only what's after the snapshot can be undone
+        GameEngine engine = new StrategoEngine();
+        History history = new History(engine);
+        pos = from + snapshotLength(data, from);
+        while (pos < scan.validLength) {
+
+            int kind = data[pos];
+            if (kind == SNAPSHOT) { pos += snapshotLength(data, pos); continue; }
+            if (!replay(engine, history, scan.state, kind, data[pos + 1], data[pos + 2])) { break; }
+            pos += RECORD;
+
+        }
+
+        return scan;
+
+    }
+
+    /**
+     * Gets the length of a snapshot record, which depends on the version of the save format it was written in
+     * @param data The bytes of the journal
+     * @param pos Where the record starts, at its kind byte
+     * @return The length of the whole record, kind included, or -1 if it's incomplete or of an unknown version
+     */
+    static int snapshotLength(byte[] data, int pos) {
+
+        int size = (pos + 5 < data.length) ? FileIO.sizeOf(data[pos + 5] & 0xFF) : -1;
+        if (size < 0 || pos + 1 + size > data.length) { return -1; }
+        return 1 + size;
+
+    }
+
+    /**
+     * Gets whether the bytes start with the header of a journal
+     * @param data The bytes
+     * @return true if it has the magic number and the current version
+     */
+    static boolean hasHeader(byte[] data) {
+
+        if (data.length < HEADER) { return false; }
+
+        int magic = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        return magic == MAGIC && (data[4] & 0xFF) == VERSION;
+
+    }
+
+    /**
+     * Replays a single record, apart from undoing and redoing, which need a history
+     * @param engine The rules to replay by
+     * @param s The game to replay on
+     * @param kind The kind of the record
+     * @param a The first square
+     * @param b The second square
+     * @return Whether the record was valid, and had the same result as when it was recorded
+     */
+    static boolean replay(GameEngine engine, GameState s, int kind, int a, int b) {
+        return replay(engine, null, s, kind, a, b);
+    }
+
+    /**
+     * Replays a single record, keeping its inverse in a history, so later records can undo and redo it
+     * @param engine The rules to replay by
+     * @param history The history of the records replayed on the game so far, or null to only replay records that can be on their own
+     * @param s The game to replay on
+     * @param kind The kind of the record
+     * @param a The first square
+     * @param b The second square
+     * @return Whether the record was valid, and had the same result as when it was recorded
+     */
+    static boolean replay(GameEngine engine, History history, GameState s, int kind, int a, int b) {
+
+        if (a < 0 || a >= GameState.SQUARES || b < 0 || b >= GameState.SQUARES) { return false; }
+
+        switch (kind) {
+
+            case GameEngine.MOVED, GameEngine.ATTACKER_WINS, GameEngine.DEFENDER_WINS, GameEngine.BOTH_REMOVED, GameEngine.FLAG_CAPTURED:
+                return (history != null ? history.applyMove(s, a, b) : engine.applyMove(s, a, b)) == kind;
+
+            case SWAP:
+                return history != null ? history.swap(s, a, b) : engine.swap(s, a, b);
+
+            case END_SETUP:
+                if (s.getGameStage() != -1) { return false; }
+                if (history != null) { history.endSetup(s); } else { engine.endSetup(s); }
+                return true;
+
+            case START_TURN:
+                if (s.getGameStage() != 0) { return false; }
+                engine.startTurn(s);
+                return true;
+
+            case WIN:
+                if (s.getGameStage() == 1) { return false; }
+                if (history != null) { history.win(s, a == 1); } else { engine.win(s, a == 1); }
+                return true;
+
+            case UNDO:
+                return history != null && history.undo(s);
+
+            case REDO:
+                return history != null && history.redo(s);
+
+            default:
+                return false;
+
+        }
+
+    }
+
+}
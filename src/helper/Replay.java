@@ -0,0 +1,279 @@
+package helper;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.History;
+import engine.StrategoEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * The whole history of a game, read from its {@link Journal}, which can be looked at from any step
+ * <p>
+ *     Every move, swap, finished setup, win, undo, and redo is a step, kept as 3 bytes like in the journal. Turn starts aren't steps, as a replay shows every
+ *     piece anyway. A snapshot in the journal that isn't the game as replayed up to it, like when another game was loaded, is a step too, of the
+ *     {@link Journal#SNAPSHOT} kind. Step 0 is the game as the journal started, and step {@link #length()} is the game as it was last saved.
+ * </p>
+ * <p>
+ *     A keyframe of the whole game is kept every {@value #KEYFRAME_INTERVAL} steps, and at every snapshot in the journal. Undoing, redoing, and loading need
+ *     more than the step itself to replay, so there's always a keyframe right after them too, and they're never replayed from it. Going to any step restores the
+ *     keyframe before it, found by binary search, and replays the steps from there, so it never replays more than {@value #KEYFRAME_INTERVAL} of them,
+ *     however long the game is.
+ * </p>
+ */
+public class Replay {
+
+    /**
+     * The most steps between two keyframes
+     */
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    /**
+     * The rules the steps are replayed by
+     */
+    private static final GameEngine ENGINE = new StrategoEngine();
+
+    /**
+     * The kind of every step, see {@link Journal}
+     */
+    private byte[] kinds;
+
+    /**
+     * The first square of every step
+     */
+    private byte[] firsts;
+
+    /**
+     * The second square of every step
+     */
+    private byte[] seconds;
+
+    /**
+     * The number of steps
+     */
+    private int length;
+
+    /**
+     * The step of every keyframe, in increasing order
+     */
+    private int[] keySteps;
+
+    /**
+     * The game at every keyframe
+     */
+    private GameState[] keyStates;
+
+    /**
+     * The number of keyframes
+     */
+    private int keyframes;
+
+    /**
+     * Constructs a replay of a game without steps
+     * @param start The game, only read during this call
+     */
+    private Replay(GameState start) {
+
+        this.kinds = new byte[256];
+        this.firsts = new byte[256];
+        this.seconds = new byte[256];
+        this.keySteps = new int[16];
+        this.keyStates = new GameState[16];
+        addKeyframe(new GameState(start));
+
+    }
+
+    /**
+     * Reads the replay of a savefile, from its journal, or if there's no usable journal, from the savefile alone without any steps
+     * @param saveFile The savefile
+     * @return The replay
+     * @throws IOException If it can't read the game for some reason
+     * @throws ClassNotFoundException If it's an older save and it can't find the classes in it
+     */
+    public static Replay read(File saveFile) throws IOException, ClassNotFoundException {
+
+        File file = Journal.fileFor(saveFile);
+        if (file.exists()) {
+            Replay replay = of(Files.readAllBytes(file.toPath()));
+            if (replay != null) { return replay; }
+        }
+
+        return new Replay(FileIO.read(saveFile));
+
+    }
+
+    /**
+     * Goes through a journal, keeping every step, until reaching the end or an incomplete or invalid record
+     * @param journal The bytes of the journal
+     * @return The replay, or null if it's not a journal, or it doesn't start with a snapshot
+     */
+    public static Replay of(byte[] journal) {
+
+        if (!Journal.hasHeader(journal) || journal.length <= Journal.HEADER || journal[Journal.HEADER] != Journal.SNAPSHOT) { return null; }
+
+        Replay replay = null;
+        GameState s = null;
+        History history = new History(ENGINE);
+        int pos = Journal.HEADER;
+
+        while (pos < journal.length) {
+
+            int kind = journal[pos];
+
+            // a snapshot is where the game picks up again after being loaded, which is a keyframe that's already there if it's the game as replayed
+            if (kind == Journal.SNAPSHOT) {
+
+                int length = Journal.snapshotLength(journal, pos);
+                if (length < 0) { break; }
+
+                GameState loaded;
+                try {
+                    loaded = FileIO.decode(Arrays.copyOfRange(journal, pos + 1, pos + length));
+                } catch (IOException e) {
+                    break;
+                }
+
+                // or else another game was loaded, which is a step of its own, and nothing before it can be undone
+                if (replay == null) {
+                    replay = new Replay(loaded);
+                } else if (Arrays.equals(FileIO.encode(s), FileIO.encode(loaded))) {
+                    replay.addKeyframe(new GameState(loaded));
+                } else {
+                    history.clear();
+                    replay.addStep(kind, (byte) 0, (byte) 0, loaded);
+                }
+                s = loaded;
+                pos += length;
+
+            // or replays a step, and keeps it
+            } else {
+
+                if (pos + Journal.RECORD > journal.length) { break; }
+                if (!Journal.replay(ENGINE, history, s, kind, journal[pos + 1], journal[pos + 2])) { break; }
+                if (kind != Journal.START_TURN) { replay.addStep(kind, journal[pos + 1], journal[pos + 2], s); }
+                pos += Journal.RECORD;
+
+            }
+
+        }
+
+        return replay;
+
+    }
+
+    /**
+     * Keeps a step, and a keyframe after it if it's been long enough since the last one, or it can't be replayed on its own
+     * @param kind The kind of the step
+     * @param a The first square
+     * @param b The second square
+     * @param after The game after the step, only read during this call
+     */
+    private void addStep(int kind, byte a, byte b, GameState after) {
+
+        if (length == kinds.length) {
+            kinds = Arrays.copyOf(kinds, length * 2);
+            firsts = Arrays.copyOf(firsts, length * 2);
+            seconds = Arrays.copyOf(seconds, length * 2);
+        }
+
+        kinds[length] = (byte) kind;
+        firsts[length] = a;
+        seconds[length] = b;
+        length++;
+
+        boolean alone = kind == Journal.UNDO || kind == Journal.REDO || kind == Journal.SNAPSHOT;
+        if (alone || length - keySteps[keyframes - 1] >= KEYFRAME_INTERVAL) { addKeyframe(new GameState(after)); }
+
+    }
+
+    /**
+     * Keeps the game as it is after the last step, replacing the keyframe of that step if there's one already
+     * @param s The game, kept as it is
+     */
+    private void addKeyframe(GameState s) {
+
+        if (keyframes > 0 && keySteps[keyframes - 1] == length) {
+            keyStates[keyframes - 1] = s;
+            return;
+        }
+
+        if (keyframes == keySteps.length) {
+            keySteps = Arrays.copyOf(keySteps, keyframes * 2);
+            keyStates = Arrays.copyOf(keyStates, keyframes * 2);
+        }
+
+        keySteps[keyframes] = length;
+        keyStates[keyframes] = s;
+        keyframes++;
+
+    }
+
+    /**
+     * Gets the game as it was after a step
+     * @param step The step, 0 for the start
+     * @return A new state, owned by the caller
+     * @throws IndexOutOfBoundsException If there's no such step
+     */
+    public GameState stateAt(int step) {
+
+        if (step < 0 || step > length) { throw new IndexOutOfBoundsException("No step " + step + " in a replay of " + length); }
+
+        // finds the last keyframe at or before the step
+        int key = Arrays.binarySearch(keySteps, 0, keyframes, step);
+        if (key < 0) { key = -key - 2; }
+
+        // and replays the steps after it
+        GameState s = new GameState(keyStates[key]);
+        for (int i = keySteps[key]; i < step; i++) { Journal.replay(ENGINE, s, kinds[i], firsts[i], seconds[i]); }
+        return s;
+
+    }
+
+    /**
+     * Gets the kind of a step
+     * @param step The step, 1 for the first one
+     * @return The kind, see {@link Journal}, which for a move is its outcome, and {@link Journal#SNAPSHOT} for loading another game
+     */
+    public int kindOf(int step) {
+        return kinds[step - 1];
+    }
+
+    /**
+     * Gets the first square of a step
+     * @param step The step, 1 for the first one
+     * @return The square moved from, or one of the swapped squares
+     */
+    public int firstOf(int step) {
+        return firsts[step - 1];
+    }
+
+    /**
+     * Gets the second square of a step
+     * @param step The step, 1 for the first one
+     * @return The square moved to, or the other swapped square
+     */
+    public int secondOf(int step) {
+        return seconds[step - 1];
+    }
+
+    /**
+     * Getter for length
+     * @return The number of steps
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Getter for keyframes
+     * @return The number of keyframes kept
+     */
+    public int keyframes() {
+        return keyframes;
+    }
+
+
+}
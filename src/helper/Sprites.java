@@ -0,0 +1,258 @@
+package helper;
+
+import engine.PieceCode;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of the piece images
+ * <p>
+ *     Every image is read from resources only once, the first time any of them is needed, and then shared by all the pieces of all the games.
+ *     When there's a screen, they're also converted to its format, so drawing them doesn't need any conversion.
+ * </p>
+ * <p>
+ *     The images can also be had scaled to any size in pixels of the screen, which takes the scaling of HiDPI screens into account. All the images are scaled
+ *     to a size at once, with high quality, on a background thread, the first time that size is asked for, and then kept for all later draws.
+ *     Until they're ready, the original images are given instead, which are scaled while drawing.
+ * </p>
+ */
+public final class Sprites {
+
+    /**
+     * The images of the pieces when shown, indexed by team (Dark first) and rank
+     */
+    private static final BufferedImage[] SHOWN = new BufferedImage[2 * PieceCode.RANKS];
+
+    /**
+     * The images of the pieces when hidden, indexed by team (Dark first)
+     */
+    private static final BufferedImage[] HIDDEN = new BufferedImage[2];
+
+    /**
+     * The size of the original images in pixels
+     */
+    private static final int NATIVE_SIZE = 60;
+
+    /**
+     * How many sizes of scaled images are kept at most, any more and they are all dropped
+     */
+    private static final int MAX_SIZES = 8;
+
+    /**
+     * The scaled images by their size in pixels, first the shown ones in the order of {@link #SHOWN}, then the hidden ones
+     */
+    private static final Map<Integer, CompletableFuture<BufferedImage[]>> SCALED = new ConcurrentHashMap<>();
+
+    /**
+     * The background thread the images are scaled on, so drawing never waits for it
+     */
+    private static final ExecutorService SCALER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sprites");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // loads all the images
+    static {
+
+        for (int team = 0; team <= 1; team++) {
+
+            for (int rank = 0; rank < PieceCode.RANKS; rank++) {
+                SHOWN[team * PieceCode.RANKS + rank] = load(team == 1, String.valueOf(rank - 1));
+            }
+            HIDDEN[team] = load(team == 1, "unknown");
+
+        }
+
+    }
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Sprites() {}
+
+    /**
+     * Gets the image of a piece when its type is shown
+     * @param isLightTeam Whether the piece is on the Light team
+     * @param strength The strength of the piece, -1..10
+     * @return The shared image
+     */
+    public static BufferedImage shown(boolean isLightTeam, int strength) {
+        return SHOWN[(isLightTeam ? PieceCode.RANKS : 0) + strength + 1];
+    }
+
+    /**
+     * Gets the image of a piece when its type is hidden
+     * @param isLightTeam Whether the piece is on the Light team
+     * @return The shared image
+     */
+    public static BufferedImage hidden(boolean isLightTeam) {
+        return HIDDEN[isLightTeam ? 1 : 0];
+    }
+
+    /**
+     * Gets the image of a piece when its type is shown, scaled to a size if it's ready
+     * @param isLightTeam Whether the piece is on the Light team
+     * @param strength The strength of the piece, -1..10
+     * @param pixels The size in pixels of the screen, see {@link #pixels}
+     * @return The shared scaled image, or the original one if it isn't ready yet
+     */
+    public static BufferedImage shown(boolean isLightTeam, int strength, int pixels) {
+
+        BufferedImage[] scaled = scaled(pixels);
+        return (scaled != null) ? scaled[(isLightTeam ? PieceCode.RANKS : 0) + strength + 1] : shown(isLightTeam, strength);
+
+    }
+
+    /**
+     * Gets the image of a piece when its type is hidden, scaled to a size if it's ready
+     * @param isLightTeam Whether the piece is on the Light team
+     * @param pixels The size in pixels of the screen, see {@link #pixels}
+     * @return The shared scaled image, or the original one if it isn't ready yet
+     */
+    public static BufferedImage hidden(boolean isLightTeam, int pixels) {
+
+        BufferedImage[] scaled = scaled(pixels);
+        return (scaled != null) ? scaled[SHOWN.length + (isLightTeam ? 1 : 0)] : hidden(isLightTeam);
+
+    }
+
+    /**
+     * Gets how many pixels of the screen an area drawn by a graphics object takes, which is more than its size on HiDPI screens
+     * @param g The graphics object doing the drawing
+     * @param size The size of the area as drawn
+     * @return The size in pixels of the screen
+     */
+    public static int pixels(Graphics g, int size) {
+
+        AffineTransform t = ((Graphics2D) g).getTransform();
+        return (int) Math.round(size * t.getScaleX());
+
+    }
+
+    /**
+     * Starts scaling all the images to a size in the background, unless they're already scaled or being scaled
+     * @param pixels The size in pixels of the screen
+     * @param whenReady What to do once they're ready, like repainting what was drawn with the originals, which is run on the background thread
+     */
+    public static void prepare(int pixels, Runnable whenReady) {
+
+        if (pixels == NATIVE_SIZE || pixels <= 0 || SCALED.containsKey(pixels)) { return; }
+
+        // drops every kept size once there are too many, which only happens after resizing a lot
+        if (SCALED.size() >= MAX_SIZES) { SCALED.clear(); }
+
+        SCALED.computeIfAbsent(pixels, size -> CompletableFuture.supplyAsync(() -> scaleAll(size), SCALER)).thenRun(whenReady);
+
+    }
+
+    /**
+     * Gets all the images scaled to a size, if they're ready
+     * @param pixels The size in pixels of the screen
+     * @return The scaled images, or null if they aren't ready, or not needed as it's the original size
+     */
+    private static BufferedImage[] scaled(int pixels) {
+
+        CompletableFuture<BufferedImage[]> scaled = SCALED.get(pixels);
+        return (scaled != null && scaled.isDone() && !scaled.isCompletedExceptionally()) ? scaled.join() : null;
+
+    }
+
+    /**
+     * Scales all the images to a size
+     * @param pixels The size in pixels of the screen
+     * @return The scaled shown images followed by the scaled hidden ones
+     */
+    private static BufferedImage[] scaleAll(int pixels) {
+
+        BufferedImage[] scaled = new BufferedImage[SHOWN.length + HIDDEN.length];
+        for (int i = 0; i < SHOWN.length; i++) { scaled[i] = scale(SHOWN[i], pixels); }
+        for (int i = 0; i < HIDDEN.length; i++) { scaled[SHOWN.length + i] = scale(HIDDEN[i], pixels); }
+        return scaled;
+
+    }
+
+    /**
+     * Scales an image with high quality, halving it step by step when shrinking a lot, so no pixels are skipped
+     * @param img The image to scale
+     * @param pixels The size of the scaled image
+     * @return The scaled image, or null if there's no image
+     */
+    private static BufferedImage scale(BufferedImage img, int pixels) {
+
+        if (img == null) { return null; }
+
+        GraphicsConfiguration gc = configuration();
+        BufferedImage current = img;
+        int size = img.getWidth();
+        do {
+
+            // each step at most halves the image, and the last one goes right to the size
+            size = Math.max(pixels, size / 2);
+            BufferedImage next = (gc != null) ? gc.createCompatibleImage(size, size, Transparency.TRANSLUCENT)
+                    : new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, size, size, null);
+            g.dispose();
+            current = next;
+
+        } while (size != pixels);
+
+        return current;
+
+    }
+
+    /**
+     * Reads an image from resources, and converts it to the screen's format if there's a screen
+     * @param isLightTeam Whether it's the image of a Light piece
+     * @param name The name of the image after the team prefix
+     * @return The image, or null if it can't be read
+     */
+    private static BufferedImage load(boolean isLightTeam, String name) {
+
+        try {
+
+            BufferedImage img = ImageIO.read(Objects.requireNonNull(Sprites.class.getResource("/" + (isLightTeam ? "lgt-" : "drk-") + name + ".png")));
+            GraphicsConfiguration gc = configuration();
+            if (gc == null) { return img; }
+
+            // copies the image into one that's compatible with the screen
+            BufferedImage compatible = gc.createCompatibleImage(img.getWidth(), img.getHeight(), Transparency.TRANSLUCENT);
+            Graphics2D g = compatible.createGraphics();
+            g.drawImage(img, 0, 0, null);
+            g.dispose();
+            return compatible;
+
+        } catch (IOException e) {
+
+            System.err.println("File not found: " + e.getMessage());
+            return null;
+
+        }
+
+    }
+
+    /**
+     * Gets the configuration of the screen, so the images can be made in its format
+     * @return The default configuration of the default screen, or null if there's no screen
+     */
+    private static GraphicsConfiguration configuration() {
+
+        return GraphicsEnvironment.isHeadless() ? null : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+
+    }
+
+
+}
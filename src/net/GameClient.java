@@ -0,0 +1,243 @@
+package net;
+
+import engine.GameState;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * The connection of a player, or a spectator, to a {@link GameServer}
+ * <p>
+ *     Sending is done by whoever acts for the player, and the messages of the server are read one at a time by {@link #read()}, which blocks until the
+ *     next one arrives, so a single thread should do the reading, like the one of a game window, or of a load test.
+ * </p>
+ * <p>
+ *     The client keeps the state of the game as it may see it, which is replaced by every {@link Protocol#STATE}, and only changed on the two squares
+ *     of every {@link Protocol#DELTA} in between.
+ * </p>
+ */
+public class GameClient implements Closeable {
+
+    /**
+     * The socket to the server
+     */
+    private final Socket socket;
+
+    /**
+     * Reads the messages of the server
+     */
+    private final DataInputStream in;
+
+    /**
+     * Writes the messages to the server, flushed after every message
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Buffer reused for reading the messages
+     */
+    private final byte[] message;
+
+    /**
+     * The state of the game as the client may see it, only used by the reading thread
+     */
+    private GameState state;
+
+    /**
+     * The id of the game joined, once the server says so
+     */
+    private volatile int gameId;
+
+    /**
+     * The view the game is seen from, which is the team of a player, once the server says so
+     */
+    private volatile int view;
+
+    /**
+     * Whether the client only watches the game
+     */
+    private volatile boolean spectator;
+
+    /**
+     * Whether both players were there, as of the last state
+     */
+    private boolean full;
+
+    /**
+     * Connects to a server
+     * @param host The host of the server
+     * @param port The port of the server
+     * @throws IOException If it can't connect
+     */
+    public GameClient(String host, int port) throws IOException {
+
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.message = new byte[Protocol.MAX_LENGTH];
+        this.state = new GameState();
+        this.gameId = -1;
+        this.view = -1;
+
+    }
+
+    /**
+     * Asks to join a game
+     * @param id The id of the game, or -1 for any game waiting for a second player
+     * @throws IOException If it can't send
+     */
+    public synchronized void join(int id) throws IOException {
+
+        out.writeByte(Protocol.JOIN);
+        out.writeInt(id);
+        out.flush();
+
+    }
+
+    /**
+     * Asks to watch a game
+     * @param id The id of the game, which has to be there already
+     * @param view The view to watch it from, see {@link Protocol#VIEW_ALL}
+     * @throws IOException If it can't send
+     */
+    public synchronized void watch(int id, int view) throws IOException {
+
+        spectator = true;
+        out.writeByte(Protocol.WATCH);
+        out.writeInt(id);
+        out.writeByte(view);
+        out.flush();
+
+    }
+
+    /**
+     * Asks to swap two pieces during the player's setup
+     * @param a The square of one piece
+     * @param b The square of the other piece
+     * @throws IOException If it can't send
+     */
+    public synchronized void swap(int a, int b) throws IOException {
+
+        out.write(new byte[] {Protocol.SWAP, (byte) a, (byte) b});
+        out.flush();
+
+    }
+
+    /**
+     * Asks to finish the player's setup
+     * @throws IOException If it can't send
+     */
+    public synchronized void endSetup() throws IOException {
+
+        out.writeByte(Protocol.END_SETUP);
+        out.flush();
+
+    }
+
+    /**
+     * Asks to make a move
+     * @param from The square moved from
+     * @param to The square moved to
+     * @throws IOException If it can't send
+     */
+    public synchronized void move(int from, int to) throws IOException {
+
+        out.write(new byte[] {Protocol.MOVE, (byte) from, (byte) to});
+        out.flush();
+
+    }
+
+    /**
+     * Waits for the next message of the server
+     * <p>
+     *     After {@link Protocol#JOINED}, the game id and the view are known, and after {@link Protocol#STATE} or {@link Protocol#DELTA}, the state can be
+     *     had with {@link #getState()}.
+     * </p>
+     * @return The type of the message
+     * @throws IOException If it can't read, the server left, or it sent something that isn't a message
+     */
+    public int read() throws IOException {
+
+        byte type = in.readByte();
+        int length = Protocol.length(type);
+        if (length < 0) { throw new IOException("Not a message: " + type); }
+
+        message[0] = type;
+        in.readFully(message, 1, length - 1);
+
+        if (type == Protocol.JOINED) {
+            gameId = ((message[1] & 0xFF) << 24) | ((message[2] & 0xFF) << 16) | ((message[3] & 0xFF) << 8) | (message[4] & 0xFF);
+            view = message[5];
+        } else if (type == Protocol.STATE) {
+            full = Protocol.isFull(message, 0);
+            state = Protocol.readState(message, 0);
+        } else if (type == Protocol.DELTA) {
+            Protocol.applyDelta(state, message, 0);
+        }
+        return type;
+
+    }
+
+    /**
+     * Gets the state of the game, as the client may see it, as of the last message read
+     * @return A new state, owned by the caller
+     */
+    public GameState getState() {
+        return new GameState(state);
+    }
+
+    /**
+     * Getter for gameId
+     * @return The id of the game joined, or -1 if not joined yet
+     */
+    public int getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Gets whether the player plays Light, or the spectator watches from Light's view
+     * @return true if the view is Light's
+     */
+    public boolean isLight() {
+        return view == Protocol.VIEW_LIGHT;
+    }
+
+    /**
+     * Getter for view
+     * @return The view the game is seen from, or -1 if not joined yet
+     */
+    public int getView() {
+        return view;
+    }
+
+    /**
+     * Getter for spectator
+     * @return Whether the client only watches the game
+     */
+    public boolean isSpectator() {
+        return spectator;
+    }
+
+    /**
+     * Getter for full
+     * @return Whether both players were there, as of the last state
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Leaves the server, which loses the game for a player if it isn't over yet
+     * @throws IOException If it can't close the socket
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+
+}
@@ -0,0 +1,670 @@
+package net;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.StrategoEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hosts any number of games between players connected over TCP, speaking the {@link Protocol}
+ * <p>
+ *     Everything runs on a single thread around a {@link Selector}: accepting players, reading their messages, applying them to their games with a
+ *     {@link GameEngine}, and writing the new states back. A message only takes a few microseconds to handle, so one thread keeps up with thousands of
+ *     games, and no game ever needs a lock. Nothing blocks, so a slow player only ever holds up their own messages.
+ * </p>
+ * <p>
+ *     Any number of spectators can watch a game, from the view of either team or from a neutral one. Every connection in a game is kept with the others
+ *     of its view, and a move is only sent as a {@link Protocol#DELTA}, made once per view from the two squares it changed, and then sent as it is to
+ *     everyone of that view. So a move costs the same few bytes for every spectator, and nothing is ever projected twice.
+ * </p>
+ * <p>
+ *     A player who leaves an unfinished game loses it. Finished games are forgotten, but their players and spectators stay connected until they leave.
+ * </p>
+ * <p>
+ *     Usage: {@code java net.GameServer [port]}, on port {@value #DEFAULT_PORT} by default.
+ * </p>
+ */
+public class GameServer implements Runnable, Closeable {
+
+    /**
+     * The port the server listens on if none is given
+     */
+    public static final int DEFAULT_PORT = 5123;
+
+    /**
+     * The id of the first game that isn't asked for by id, and every id from there up is only given out by the server
+     */
+    public static final int FIRST_AUTO_ID = 1 << 30;
+
+    /**
+     * The most bytes that may wait to be written to a connection, a few states, before it's dropped for not keeping up
+     */
+    private static final int MAX_PENDING = 8 * Protocol.MAX_LENGTH;
+
+    /**
+     * The rules the games are played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * Waits for anything to happen on any of the connections
+     */
+    private final Selector selector;
+
+    /**
+     * Accepts the new connections
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * The games being played, by their id
+     */
+    private final Map<Integer, Game> games;
+
+    /**
+     * The game of the last player who joined any game, while it waits for a second player
+     */
+    private Game waiting;
+
+    /**
+     * The id given to the next game that isn't asked for by id
+     */
+    private int nextId;
+
+    /**
+     * The connections that fell too far behind, to be dropped once the messages being handled are
+     */
+    private final List<Connection> stalled;
+
+    /**
+     * Buffer reused for writing the state messages
+     */
+    private final byte[] stateMessage;
+
+    /**
+     * Buffer reused for writing the move messages
+     */
+    private final byte[] deltaMessage;
+
+    /**
+     * Whether the server was asked to stop
+     */
+    private volatile boolean closing;
+
+    /**
+     * Whether the server's thread is running it
+     */
+    private volatile boolean running;
+
+    /**
+     * The number of messages handled so far, which is only ever changed by the server's thread
+     */
+    private volatile long messages;
+
+    /**
+     * Opens the server, ready to be run
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException If it can't listen on the port
+     */
+    public GameServer(int port) throws IOException {
+
+        this.engine = new StrategoEngine();
+        this.games = new HashMap<>();
+        this.stateMessage = new byte[Protocol.STATE_LENGTH];
+        this.deltaMessage = new byte[Protocol.length(Protocol.DELTA)];
+        this.stalled = new ArrayList<>();
+        this.nextId = FIRST_AUTO_ID;
+
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+    }
+
+    /**
+     * Runs a server from the command line until it's killed
+     * @param args The port, see the class description
+     * @throws IOException If it can't listen on the port
+     */
+    public static void main(String[] args) throws IOException {
+
+        GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+        System.out.println("Listening on port " + server.getPort());
+        server.run();
+
+    }
+
+    /**
+     * Getter for the port
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Getter for messages
+     * @return The number of messages handled so far
+     */
+    public long getMessages() {
+        return messages;
+    }
+
+    /**
+     * Handles everything that happens on the connections, until the server is closed
+     */
+    @Override
+    public void run() {
+
+        running = true;
+        try {
+
+            while (!closing) {
+
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) { continue; }
+
+                    if (key.isAcceptable()) { accept(); }
+                    else {
+
+                        Connection c = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) { read(c); }
+                            if (key.isValid() && key.isWritable()) { flush(c); }
+                        } catch (IOException e) {
+                            disconnect(c);
+                        }
+
+                    }
+
+                }
+
+                while (!stalled.isEmpty()) { disconnect(stalled.remove(stalled.size() - 1)); }
+
+            }
+
+        } catch (IOException e) {
+            System.err.println("Game server stopped: " + e.getMessage());
+        } finally {
+            shutDown();
+        }
+
+    }
+
+    /**
+     * Stops the server, dropping every connection
+     * <p>
+     *     If the server is running, its own thread does the closing once it wakes up, so nothing is closed while it's in the middle of something.
+     * </p>
+     */
+    @Override
+    public void close() {
+
+        closing = true;
+        selector.wakeup();
+        if (!running) { shutDown(); }
+
+    }
+
+    /**
+     * Closes every connection and the selector, if they aren't already
+     */
+    private synchronized void shutDown() {
+
+        if (!selector.isOpen()) { return; }
+
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // it's being dropped anyway
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Couldn't close the game server: " + e.getMessage());
+        }
+
+    }
+
+    /**
+     * Accepts a new connection
+     * @throws IOException If it can't accept
+     */
+    private void accept() throws IOException {
+
+        SocketChannel channel = server.accept();
+        if (channel == null) { return; }
+
+        // the messages are tiny, and each is waited for, so they're sent right away
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection c = new Connection(channel);
+        c.key = channel.register(selector, SelectionKey.OP_READ, c);
+
+    }
+
+    /**
+     * Reads what a connection sent, and handles every complete message in it
+     * @param c The connection
+     * @throws IOException If it can't read, the connection was closed, or it sent something that isn't a message
+     */
+    private void read(Connection c) throws IOException {
+
+        if (c.channel.read(c.in) < 0) { throw new IOException("Closed"); }
+        c.in.flip();
+
+        while (c.in.hasRemaining()) {
+
+            int length = Protocol.commandLength(c.in.get(c.in.position()));
+            if (length < 0) { throw new IOException("Not a message"); }
+            if (c.in.remaining() < length) { break; }
+
+            handle(c, c.in);
+            messages++;
+
+        }
+
+        c.in.compact();
+
+    }
+
+    /**
+     * Handles a single message
+     * @param c The connection it came from
+     * @param in The buffer holding it, positioned at its type byte, and left after it
+     */
+    private void handle(Connection c, ByteBuffer in) {
+
+        byte type = in.get();
+        Game game = c.game;
+
+        switch (type) {
+
+            case Protocol.JOIN -> join(c, in.getInt());
+
+            case Protocol.WATCH -> watch(c, in.getInt(), in.get());
+
+            case Protocol.SWAP -> {
+                int a = in.get();
+                int b = in.get();
+                if (game != null && game.isTurnOf(c) && isSquare(a) && isSquare(b) && engine.swap(game.state, a, b)) { changed(game); }
+                else { reject(c); }
+            }
+
+            case Protocol.END_SETUP -> {
+                if (game != null && game.isTurnOf(c) && game.state.getGameStage() == -1) {
+                    engine.endSetup(game.state);
+                    changed(game);
+                } else { reject(c); }
+            }
+
+            case Protocol.MOVE -> {
+                int from = in.get();
+                int to = in.get();
+                int outcome = (game != null && game.isTurnOf(c) && isSquare(from) && isSquare(to)) ? engine.applyMove(game.state, from, to) : GameEngine.ILLEGAL;
+                if (outcome == GameEngine.ILLEGAL) { reject(c); }
+                else if (game.state.getGameStage() == 1) { changed(game); }
+                else { moved(game, from, to, outcome); }
+            }
+
+            default -> reject(c);
+
+        }
+
+    }
+
+    /**
+     * Gets whether a square sent by a player is on the board at all, before it's given to the rules
+     * @param square The square
+     * @return true if it's 0..99
+     */
+    private static boolean isSquare(int square) {
+        return square >= 0 && square < GameState.SQUARES;
+    }
+
+    /**
+     * Puts a player in a game, which is either the one asked for, or the one waiting for a second player
+     * @param c The player's connection
+     * @param id The id of the game, or -1 for any game
+     */
+    private void join(Connection c, int id) {
+
+        // the ids from FIRST_AUTO_ID up are the server's, so a game asked for by id never takes one it's about to give out
+        if (c.game != null || id >= FIRST_AUTO_ID) { reject(c); return; }
+
+        // finds the game, or starts a new one
+        Game game = (id < 0) ? waiting : games.get(id);
+        if (game != null && game.light != null && game.dark != null) { reject(c); return; }
+        if (game == null) {
+
+            game = new Game(id < 0 ? nextId++ : id, engine.newGame());
+            games.put(game.id, game);
+            if (id < 0) { waiting = game; }
+
+        }
+
+        // the first player plays Light
+        boolean light = game.light == null;
+        if (light) { game.light = c; } else { game.dark = c; }
+        if (game == waiting && game.light != null && game.dark != null) { waiting = null; }
+
+        enter(c, game, light ? Protocol.VIEW_LIGHT : Protocol.VIEW_DARK);
+        changed(game);
+
+    }
+
+    /**
+     * Lets a spectator watch a game that's already there
+     * @param c The spectator's connection
+     * @param id The id of the game
+     * @param view The view to watch it from
+     */
+    private void watch(Connection c, int id, int view) {
+
+        Game game = games.get(id);
+        if (c.game != null || game == null || view < 0 || view >= Protocol.VIEWS) { reject(c); return; }
+
+        // only the spectator needs the state, everyone else already has it
+        enter(c, game, view);
+        Protocol.writeState(game.state, view, game.light != null && game.dark != null, stateMessage, 0);
+        send(c, stateMessage, stateMessage.length);
+
+    }
+
+    /**
+     * Adds a connection to the viewers of a game, and tells it so
+     * @param c The connection
+     * @param game The game
+     * @param view The view it gets everything from
+     */
+    private void enter(Connection c, Game game, int view) {
+
+        c.game = game;
+        c.view = view;
+        game.viewers.get(view).add(c);
+
+        ByteBuffer joined = ByteBuffer.allocate(Protocol.length(Protocol.JOINED));
+        joined.put(Protocol.JOINED).putInt(game.id).put((byte) view);
+        send(c, joined.array(), joined.position());
+
+    }
+
+    /**
+     * Sends the new state of a game to everyone in it, and forgets it if it's over
+     * @param game The game that changed
+     */
+    private void changed(Game game) {
+
+        // projects the state once per view, not once per connection
+        boolean full = game.light != null && game.dark != null;
+        for (int view = 0; view < Protocol.VIEWS; view++) {
+
+            List<Connection> viewers = game.viewers.get(view);
+            if (viewers.isEmpty()) { continue; }
+
+            Protocol.writeState(game.state, view, full, stateMessage, 0);
+            for (Connection c : viewers) { send(c, stateMessage, stateMessage.length); }
+
+        }
+
+        if (game.state.getGameStage() == 1) { forget(game); }
+
+    }
+
+    /**
+     * Sends a move that was made in a game to everyone in it
+     * @param game The game, after the move
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param outcome The outcome of the move
+     */
+    private void moved(Game game, int from, int to, int outcome) {
+
+        for (int view = 0; view < Protocol.VIEWS; view++) {
+
+            List<Connection> viewers = game.viewers.get(view);
+            if (viewers.isEmpty()) { continue; }
+
+            Protocol.writeDelta(game.state, from, to, outcome, view, deltaMessage, 0);
+            for (Connection c : viewers) { send(c, deltaMessage, deltaMessage.length); }
+
+        }
+
+    }
+
+    /**
+     * Tells a player that what they sent isn't allowed
+     * @param c The player's connection
+     */
+    private void reject(Connection c) {
+        send(c, new byte[] {Protocol.REJECTED}, 1);
+    }
+
+    /**
+     * Sends a message, writing as much as possible right away, and the rest once the connection can take it
+     * @param c The connection
+     * @param message The bytes of the message
+     * @param length How many bytes to send
+     */
+    private void send(Connection c, byte[] message, int length) {
+
+        // a client that stopped reading is dropped, like a broken one, once the messages being handled are
+        if (c.stalled) { return; }
+        if (c.out.position() + length > MAX_PENDING) {
+            c.stalled = true;
+            stalled.add(c);
+            return;
+        }
+
+        // makes room for the message if there's too much waiting to be written
+        if (c.out.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(Math.min(c.out.capacity() * 2, MAX_PENDING), c.out.position() + length));
+            c.out.flip();
+            larger.put(c.out);
+            c.out = larger;
+        }
+        c.out.put(message, 0, length);
+
+        // a broken connection is dropped once reading from it fails, not in the middle of sending to a game's players
+        try {
+            flush(c);
+        } catch (IOException ignored) {
+            c.key.interestOps(SelectionKey.OP_READ);
+        }
+
+    }
+
+    /**
+     * Writes what's waiting to be written to a connection, and only asks to be told when it can take more if something is left
+     * @param c The connection
+     * @throws IOException If it can't write
+     */
+    private void flush(Connection c) throws IOException {
+
+        if (!c.key.isValid()) { return; }
+
+        c.out.flip();
+        c.channel.write(c.out);
+        c.out.compact();
+        c.key.interestOps(c.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+
+    }
+
+    /**
+     * Drops a connection, and if it was a player in an unfinished game, the other player wins it
+     * @param c The connection
+     */
+    private void disconnect(Connection c) {
+
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+            // it's being dropped anyway
+        }
+
+        Game game = c.game;
+        if (game == null) { return; }
+        c.game = null;
+        game.viewers.get(c.view).remove(c);
+
+        // a spectator leaving changes nothing else
+        if (c != game.light && c != game.dark) { return; }
+
+        boolean light = c == game.light;
+        if (light) { game.light = null; } else { game.dark = null; }
+
+        if (game.light == null && game.dark == null) { forget(game); }
+        else if (game.state.getGameStage() < 1) {
+            engine.win(game.state, !light);
+            changed(game);
+        }
+
+    }
+
+    /**
+     * Forgets a game, so its id can be used again
+     * @param game The game
+     */
+    private void forget(Game game) {
+
+        games.remove(game.id, game);
+        if (waiting == game) { waiting = null; }
+
+    }
+
+    /**
+     * A game on the server, with its players and spectators
+     */
+    private static class Game {
+
+        /**
+         * The id of the game
+         */
+        private final int id;
+
+        /**
+         * The state of the game
+         */
+        private final GameState state;
+
+        /**
+         * The connection of the Light player, if they're there
+         */
+        private Connection light;
+
+        /**
+         * The connection of the Dark player, if they're there
+         */
+        private Connection dark;
+
+        /**
+         * Everyone in the game, the players too, by their view
+         */
+        private final List<List<Connection>> viewers;
+
+        /**
+         * Constructs a game without players
+         * @param id The id of the game
+         * @param state The state to start from
+         */
+        Game(int id, GameState state) {
+
+            this.id = id;
+            this.state = state;
+            this.viewers = new ArrayList<>(Protocol.VIEWS);
+            for (int view = 0; view < Protocol.VIEWS; view++) { viewers.add(new ArrayList<>()); }
+
+        }
+
+        /**
+         * Gets whether it's a player's turn, which only counts once both players are there
+         * @param c The connection
+         * @return true if it's a player who may act now
+         */
+        boolean isTurnOf(Connection c) {
+            return light != null && dark != null && c == (state.isLightTurn() ? light : dark);
+        }
+
+    }
+
+    /**
+     * The connection of a player or a spectator
+     */
+    private static class Connection {
+
+        /**
+         * The channel to the client
+         */
+        private final SocketChannel channel;
+
+        /**
+         * The received bytes that aren't a whole message yet, in write mode
+         */
+        private final ByteBuffer in;
+
+        /**
+         * The bytes waiting to be sent, in write mode, grown up to {@link #MAX_PENDING} if the client doesn't keep up
+         */
+        private ByteBuffer out;
+
+        /**
+         * Whether too much is waiting to be sent, and the connection is to be dropped
+         */
+        private boolean stalled;
+
+        /**
+         * The key of the channel in the selector
+         */
+        private SelectionKey key;
+
+        /**
+         * The game joined or watched, if any
+         */
+        private Game game;
+
+        /**
+         * The view everything in the game is sent from, which is their team for a player
+         */
+        private int view;
+
+        /**
+         * Constructs a new connection
+         * @param channel The channel to the client
+         */
+        Connection(SocketChannel channel) {
+
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(256);
+            this.out = ByteBuffer.allocate(4 * Protocol.MAX_LENGTH);
+
+        }
+
+    }
+
+
+}
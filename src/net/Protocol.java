@@ -0,0 +1,268 @@
+package net;
+
+import engine.GameState;
+import engine.PieceCode;
+
+/**
+ * The binary protocol between the {@link GameServer} and its {@link GameClient}s
+ * <p>
+ *     Every message starts with a type byte, and the type alone decides how long the message is, so there's no length prefix.
+ *     Squares are single bytes (y * 10 + x), and game ids are 4 byte big-endian ints.
+ * </p>
+ * <p>
+ *     Client to server: {@link #JOIN} a game, then {@link #SWAP} pieces and {@link #END_SETUP} while setting up, and {@link #MOVE} when playing.
+ *     Or {@link #WATCH} a game without playing in it. The server checks everything with the rules, and answers with {@link #JOINED} once, then
+ *     {@link #REJECTED} to the sender if something wasn't allowed.
+ * </p>
+ * <p>
+ *     Everyone in a game, the players and the spectators, is sent the whole {@link #STATE} when they join, and after every change that isn't a move,
+ *     like a swap, the end of a setup, or the end of the game. Moves are only sent as a {@link #DELTA} of the two squares they change, along with the
+ *     outcome of the move, which is 6 bytes instead of 102.
+ * </p>
+ * <p>
+ *     What's sent is projected for a view: the {@link #VIEW_LIGHT Light} or {@link #VIEW_DARK Dark} view sees the pieces of that team, and the
+ *     {@link #VIEW_ALL neutral} one only the revealed pieces. The pieces a view can't see are {@link PieceCode#UNKNOWN}, so no client ever learns
+ *     more than its player could see on the board.
+ * </p>
+ */
+public final class Protocol {
+
+    /**
+     * Client joins a game: the game id, or -1 for any game that's waiting for a second player
+     */
+    public static final byte JOIN = 1;
+
+    /**
+     * Client swaps two of its pieces during its setup: the two squares
+     */
+    public static final byte SWAP = 2;
+
+    /**
+     * Client finishes its setup: nothing else
+     */
+    public static final byte END_SETUP = 3;
+
+    /**
+     * Client makes a move: the square moved from, and the square moved to
+     */
+    public static final byte MOVE = 4;
+
+    /**
+     * Client watches a game: the game id, and the view to watch it from
+     */
+    public static final byte WATCH = 5;
+
+    /**
+     * Server tells a client it joined: the game id, and its view, which is the team it plays as a player
+     */
+    public static final byte JOINED = 0x41;
+
+    /**
+     * Server sends the state of the game: the flags, then the code of every square as the client may see it
+     */
+    public static final byte STATE = 0x42;
+
+    /**
+     * Server refuses the last thing a client sent: nothing else
+     */
+    public static final byte REJECTED = 0x43;
+
+    /**
+     * Server sends a move: the square moved from, the square moved to, the outcome of the move, then the codes on the two squares after it,
+     * as the client may see them, after which it's the other player's turn
+     */
+    public static final byte DELTA = 0x44;
+
+    /**
+     * The view of the Dark player, who sees the Dark pieces
+     */
+    public static final int VIEW_DARK = 0;
+
+    /**
+     * The view of the Light player, who sees the Light pieces
+     */
+    public static final int VIEW_LIGHT = 1;
+
+    /**
+     * The view of a neutral spectator, who only sees the revealed pieces
+     */
+    public static final int VIEW_ALL = 2;
+
+    /**
+     * The number of different views
+     */
+    public static final int VIEWS = 3;
+
+    /**
+     * Flag of a state, set if it's Light's turn
+     */
+    public static final int LIGHT_TURN = 1;
+
+    /**
+     * Flag of a state, set if Light won the game, only meaningful when it's over
+     */
+    public static final int LIGHT_WON = 2;
+
+    /**
+     * Flag of a state, set if both players are there
+     */
+    public static final int FULL = 4;
+
+    /**
+     * The game stage is kept in the flags from this bit, shifted up by one so it isn't negative
+     */
+    private static final int STAGE_SHIFT = 3;
+
+    /**
+     * The length of a state message
+     */
+    public static final int STATE_LENGTH = 1 + 1 + GameState.SQUARES;
+
+    /**
+     * The length of the longest message
+     */
+    public static final int MAX_LENGTH = STATE_LENGTH;
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Protocol() {}
+
+    /**
+     * Gets the length of a message from its type
+     * @param type The type byte
+     * @return The length of the whole message, type included, or -1 if there's no such type
+     */
+    public static int length(byte type) {
+
+        return switch (type) {
+            case JOIN -> 1 + 4;
+            case WATCH -> 1 + 4 + 1;
+            case DELTA -> 1 + 1 + 1 + 1 + 1 + 1;
+            case SWAP, MOVE -> 1 + 1 + 1;
+            case END_SETUP, REJECTED -> 1;
+            case JOINED -> 1 + 4 + 1;
+            case STATE -> STATE_LENGTH;
+            default -> -1;
+        };
+
+    }
+
+    /**
+     * Gets the length of a message a client may send, which is all a server takes
+     * @param type The type byte
+     * @return The length of the whole message, type included, or -1 if it's not a type clients send
+     */
+    public static int commandLength(byte type) {
+
+        return switch (type) {
+            case JOIN, SWAP, END_SETUP, MOVE, WATCH -> length(type);
+            default -> -1;
+        };
+
+    }
+
+    /**
+     * Projects the code of a piece for a view
+     * @param code The code of the piece
+     * @param view The view, one of {@link #VIEW_DARK}, {@link #VIEW_LIGHT}, and {@link #VIEW_ALL}
+     * @return The code itself if the view can see the piece, or else an unknown piece of its team
+     */
+    public static byte project(byte code, int view) {
+
+        if (code == PieceCode.EMPTY || PieceCode.isRevealed(code)) { return code; }
+
+        boolean lightTeam = PieceCode.isLightTeam(code);
+        boolean sees = (view == VIEW_LIGHT && lightTeam) || (view == VIEW_DARK && !lightTeam);
+        return sees ? code : PieceCode.unknown(lightTeam);
+
+    }
+
+    /**
+     * Writes a state message, projected for a view
+     * @param s The state of the game
+     * @param view The view, one of {@link #VIEW_DARK}, {@link #VIEW_LIGHT}, and {@link #VIEW_ALL}
+     * @param full Whether both players are there
+     * @param into The array to write into, at least {@link #STATE_LENGTH} long from the offset
+     * @param offset Where to start writing
+     */
+    public static void writeState(GameState s, int view, boolean full, byte[] into, int offset) {
+
+        into[offset] = STATE;
+        into[offset + 1] = (byte) ((s.isLightTurn() ? LIGHT_TURN : 0) | (s.hasLightWon() ? LIGHT_WON : 0) | (full ? FULL : 0) | ((s.getGameStage() + 1) << STAGE_SHIFT));
+
+        // the pieces the view can't see are only sent as unknown pieces
+        for (int square = 0; square < GameState.SQUARES; square++) { into[offset + 2 + square] = project(s.get(square), view); }
+
+    }
+
+    /**
+     * Reads a state message into a game state
+     * <p>
+     *     The turn of the player is always started, as there's nobody else looking at their screen.
+     * </p>
+     * @param from The array holding the message
+     * @param offset Where the message starts, at its type byte
+     * @return The state as the player sees it
+     */
+    public static GameState readState(byte[] from, int offset) {
+
+        GameState s = new GameState();
+        int flags = from[offset + 1];
+        s.setLightTurn((flags & LIGHT_TURN) != 0);
+        s.setLightWon((flags & LIGHT_WON) != 0);
+        s.setGameStage((flags >> STAGE_SHIFT) - 1);
+        s.setStartedTurn(true);
+
+        for (int square = 0; square < GameState.SQUARES; square++) { s.set(square, from[offset + 2 + square]); }
+        return s;
+
+    }
+
+    /**
+     * Writes a move message, projected for a view, only looking at the two squares it changed
+     * @param s The state of the game after the move
+     * @param from The square moved from
+     * @param to The square moved to
+     * @param outcome The outcome of the move, one of the {@link engine.GameEngine} outcome codes
+     * @param view The view, one of {@link #VIEW_DARK}, {@link #VIEW_LIGHT}, and {@link #VIEW_ALL}
+     * @param into The array to write into, at least 6 long from the offset
+     * @param offset Where to start writing
+     */
+    public static void writeDelta(GameState s, int from, int to, int outcome, int view, byte[] into, int offset) {
+
+        into[offset] = DELTA;
+        into[offset + 1] = (byte) from;
+        into[offset + 2] = (byte) to;
+        into[offset + 3] = (byte) outcome;
+        into[offset + 4] = project(s.get(from), view);
+        into[offset + 5] = project(s.get(to), view);
+
+    }
+
+    /**
+     * Applies a move message to a game state, which passes the turn on
+     * @param s The state as the client sees it, changed in place
+     * @param from The array holding the message
+     * @param offset Where the message starts, at its type byte
+     */
+    public static void applyDelta(GameState s, byte[] from, int offset) {
+
+        s.set(from[offset + 1], from[offset + 4]);
+        s.set(from[offset + 2], from[offset + 5]);
+        s.setLightTurn(!s.isLightTurn());
+
+    }
+
+    /**
+     * Gets whether both players are there, from a state message
+     * @param from The array holding the message
+     * @param offset Where the message starts, at its type byte
+     * @return true if the game has both of its players
+     */
+    public static boolean isFull(byte[] from, int offset) {
+        return (from[offset + 1] & FULL) != 0;
+    }
+
+
+}
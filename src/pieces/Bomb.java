@@ -1,12 +1,18 @@
 package pieces;
 
-import board.Field;
+import java.io.Serial;
 
 /**
  * Special piece, removes whoever steps on it, and then gets removed itself
  */
 public class Bomb extends Piece {
 
+    /**
+     * Makes sure serialization doesn't break, kept at the value of older versions so their saves can still be imported
+     */
+    @Serial
+    private static final long serialVersionUID = -2022890562188967530L;
+
     /**
      * Constructs a bomb, makes sure it can't move and has the correct strength
      * @param isLightTeam Whether the new bomb is on the light team or not
@@ -18,26 +24,5 @@ public class Bomb extends Piece {
 
     }
 
-    /**
-     * The bomb doesn't move
-     * @param chosen The chosen bomb to move to, ignored
-     */
-    @Override
-    public void move(Field chosen) {}
-
-    /**
-     * Removes itself and the piece stepping on it
-     * @param by The piece that is trying to move here
-     * @return 2, as to tell the other piece to remove itself
-     */
-    @Override
-    public int steppedOn(Piece by) {
-
-        // tells the other piece to move here
-        field.remove();
-        return 2;
-
-    }
-
 
 }
@@ -1,12 +1,18 @@
 package pieces;
 
-import board.Field;
+import java.io.Serial;
 
 /**
  * Special piece, if stepped on, the game is won
  */
 public class Flag extends Piece {
 
+    /**
+     * Makes sure serialization doesn't break, kept at the value of older versions so their saves can still be imported
+     */
+    @Serial
+    private static final long serialVersionUID = 5099257354271025624L;
+
     /**
      * Constructs a flag, makes sure it can't move and has the correct strength
      * @param isLightTeam Whether the new flag is on the light team or not
@@ -18,29 +24,5 @@ public class Flag extends Piece {
 
     }
 
-    /**
-     * The flag doesn't move
-     * @param chosen The chosen field to move to, ignored
-     */
-    @Override
-    public void move(Field chosen) {}
-
-    /**
-     * Makes the team stepping on this flag win the game
-     * @param by The piece that is trying to move here
-     * @return 1, as to tell the other piece to move here
-     */
-    @Override
-    public int steppedOn(Piece by) {
-
-        // makes the team stepping on this flag win the game
-        this.field.getBoard().win(by);
-
-        // tells the other piece to move here
-        field.remove();
-        return 1;
-
-    }
-
 
 }
@@ -1,13 +1,15 @@
 package pieces;
 
 import board.*;
-import helper.*;
+import engine.GameEngine;
+import engine.MoveGenerator;
+import engine.PieceCode;
+import helper.Sprites;
 
 import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
 import java.util.*;
-import javax.imageio.ImageIO;
 
 /**
  * Implements the basic piece in the game
@@ -15,7 +17,8 @@ import javax.imageio.ImageIO;
  *     These are what stand on the fields which make up the board, they are generated at the start of the game and only moved and destroyed afterwards.
  * </p>
  * <p>
- *     Special pieces are extensions of this class, they mostly just overwrite the move() or steppedOn() methods;
+ *     The rules themselves are left to the board's {@link GameEngine}, a piece is only the view of a square's piece code that can be drawn and dragged around.
+ *     Special pieces are extensions of this class, they just set the correct strength and movement.
  * </p>
  */
 public class Piece implements Serializable {
@@ -27,19 +30,19 @@ public class Piece implements Serializable {
     private static final long serialVersionUID = 1L;
 
     /**
-     * The field the piece is standing on
+     * The field the piece is standing on, which isn't saved, as the board puts its pieces on its fields itself
      */
-    protected Field field;
+    protected transient Field field;
 
     /**
      * True if the piece is part of the Light team, false if it's part of the Dark team
      */
-    protected final boolean isLightTeam;
+    protected boolean isLightTeam;
 
     /**
      * Goes from -1 to 10, mostly just helps figure out which piece takes which in a conflict
      */
-    protected final int strength;
+    protected int strength;
 
     /**
      * Max move distance of the piece for checking the valid spots to move to
@@ -47,23 +50,13 @@ public class Piece implements Serializable {
     protected int maxMovement;
 
     /**
-     * Stores if the other team sees what piece it is or not
+     * Whether the piece was revealed in an older save it was read from, as pieces used to store that themselves
      */
-    protected boolean revealed;
-
-    /**
-     * Image to render when the type of the piece is shown
-     */
-    transient BufferedImage shown;
-
-    /**
-     * Image to render when the type of the piece is hidden
-     */
-    transient BufferedImage hidden;
+    private transient boolean revealedInSave;
 
 
     /**
-     * Constructs a piece: loads required images based on strength and initializes values
+     * Constructs a piece and initializes values, the images are shared through {@link Sprites}
      * @param isLightTeam Whether the new piece is on the light team or not
      * @param strength The strength of the new piece
      */
@@ -73,96 +66,71 @@ public class Piece implements Serializable {
         this.isLightTeam = isLightTeam;
         this.strength = strength;
         this.maxMovement = 1;
-        this.revealed = false;
 
-        try {
+    }
 
-            this.shown = ImageIO.read(Objects.requireNonNull(getClass().getResource("/" + (isLightTeam ? "lgt-" : "drk-") + strength + ".png")));
-            this.hidden = ImageIO.read(Objects.requireNonNull(getClass().getResource("/" + (isLightTeam ? "lgt-" : "drk-") + "unknown.png")));
+    /**
+     * Reads a piece from an older save, which is a serialized board, keeping whether it was revealed
+     * <p>
+     *     The team and strength can't be final for this, as they're read here instead of by the default reading.
+     * </p>
+     * @param in The ObjectInputStream serialized reading uses
+     * @throws IOException If it can't read the piece for some reason
+     * @throws ClassNotFoundException If it can't find the class of the field it stood on
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
 
-        } catch (IOException e) {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.isLightTeam = fields.get("isLightTeam", false);
+        this.strength = fields.get("strength", 0);
+        this.maxMovement = fields.get("maxMovement", 1);
+        this.revealedInSave = fields.getObjectStreamClass().getField("revealed") != null && fields.get("revealed", false);
 
-            System.err.println("File not found: " + e.getMessage());
+    }
 
-        }
+    /**
+     * Creates the piece of a given piece code
+     * @param code The code of the piece, as stored in the game state
+     * @return The new piece, of the special type if there's one for its strength
+     */
+    public static Piece of(byte code) {
+
+        boolean isLightTeam = PieceCode.isLightTeam(code);
+        return switch (PieceCode.strength(code)) {
+            case PieceCode.FLAG -> new Flag(isLightTeam);
+            case PieceCode.BOMB -> new Bomb(isLightTeam);
+            case PieceCode.SPY -> new Spy(isLightTeam);
+            case PieceCode.SCOUT -> new Scout(isLightTeam);
+            case PieceCode.MINER -> new Miner(isLightTeam);
+            default -> new Piece(isLightTeam, PieceCode.strength(code));
+        };
 
     }
 
     /**
      * Tries to move to the chosen field
      * <p>
-     *     Does this by finding the list of valid moves for the current piece, testing if the chosen field is in that list, and if so, moving the piece there.
-     * </p>
-     * <p>
-     *     Also tests for conflicts, and if there is one, calls the conflicting piece's steppedOn() method. This might result in the piece not being able to move to the desired spot, or the piece getting removed.
+     *     The board's engine tests if the chosen field is a valid move, and if so, moves the piece there, also resolving any conflict with an enemy piece there.
+     *     This might result in the piece not being able to move to the desired spot, or the piece getting removed.
      * </p>
      * @param chosen The chosen field to move to
      */
     public void move(Field chosen) {
-
-        // makes a list of all the valid moves for the current piece
-        Vector<Field> validMoves = findValidMoves(field.getBoard());
-
-        // breaks execution if the chosen move is invalid, so after this point we can assume it is
-        if (!validMoves.contains(chosen)) { return; }
-
-        // if there's a conflict between the current piece and an enemy one then
-        if (chosen.getPiece() != null) {
-
-            // sets the piece as revealed and then
-            this.revealed = true;
-            Piece conflicting = chosen.getPiece();
-            switch (conflicting.steppedOn(this)) {
-
-                case 0: // either does nothing
-                    return;
-
-                case 1: // or moves the piece because it was stronger than the enemy
-                    chosen.accept(field.remove());
-                    return;
-
-                case 2: // or removes the piece, for example because it was of equal power
-                    field.remove();
-                    return;
-
-            }
-
-        }
-
-        // in case of no conflict, moves the piece to the chosen spot
-        chosen.accept(field.remove());
-
+        field.getBoard().move(field, chosen);
     }
 
     /**
      * Handles being stepped on, that is if a piece tries to move to this piece's location
+     * <p>
+     *     The attack is made by the board like any other move, so it's checked by the board's engine, recorded, and learned from by both teams,
+     *     and the loser is removed from its field.
+     * </p>
      * @param by The piece that is trying to move here
-     * @return A coded signal of what the other piece should do, explained in move()
+     * @return The outcome of the conflict, one of the {@link GameEngine} outcome codes
      */
     public int steppedOn(Piece by) {
-
-        // sets the piece as revealed
-        this.revealed = true;
-
-        // if the enemy piece is stronger, removes this piece and tells them to move here
-        if (strength < by.getStrength()) {
-
-            field.remove();
-            return 1;
-
-        }
-
-        // if the two pieces' strength is equal, removes this one, and tells the other to remove itself too
-        if (strength == by.getStrength()) {
-
-            field.remove();
-            return 2;
-
-        }
-
-        // and if the other piece was weaker, tells them to not move here
-        return 0;
-
+        return field.getBoard().move(by.getField(), field);
     }
 
     /**
@@ -189,12 +157,45 @@ public class Piece implements Serializable {
         return maxMovement;
     }
 
+    /**
+     * Gets the code of the piece, as stored in the game state
+     * @return The hidden piece code of the piece's team and strength
+     */
+    public byte getCode() {
+        return PieceCode.of(isLightTeam, strength);
+    }
+
+    /**
+     * Gets whether the piece is revealed, which is stored in the game state
+     * @return Whether the other team sees what piece it is
+     */
+    public boolean isRevealed() {
+        return field != null && field.getBoard().getState().isRevealed(field.getIndex());
+    }
+
+    /**
+     * Getter for revealedInSave
+     * @return Whether the piece was revealed in the older save it was read from, false for any other piece
+     */
+    public boolean wasRevealedInSave() {
+        return revealedInSave;
+    }
+
     /**
      * Getter for shown
      * @return The piece's image when shown
      */
     public BufferedImage getImg() {
-        return shown;
+        return Sprites.shown(isLightTeam, strength);
+    }
+
+    /**
+     * Gets the image of the piece when shown, scaled to a size
+     * @param pixels The size in pixels of the screen
+     * @return The piece's scaled image if it's ready, or the original one
+     */
+    public BufferedImage getImg(int pixels) {
+        return Sprites.shown(isLightTeam, strength, pixels);
     }
 
     /**
@@ -218,28 +219,28 @@ public class Piece implements Serializable {
      * @param revealed If the piece should be revealed or not
      */
     public void setRevealed(boolean revealed) {
-        this.revealed = revealed;
+        if (field != null) { field.getBoard().getState().setRevealed(field.getIndex(), revealed); }
     }
 
     /**
      * Graphics method for drawing the piece
      * @param g The graphics object doing the drawing
+     * @param x The x pixel position of the field the piece is standing on
+     * @param y The y pixel position of the field the piece is standing on
+     * @param size The size of the field, which the image is drawn to fill
+     * @param pixels The size of the field in pixels of the screen, which the image is already scaled to if it's ready
      */
-    public void draw(Graphics g) {
-
-        // gets the pixel position of the field the piece is standing on, this is where the piece will get drawn
-        int x = field.getX();
-        int y = field.getY();
+    public void draw(Graphics g, int x, int y, int size, int pixels) {
 
-        // if the turn has started, and the piece should be otherwise shown, then draw it so, otherwise draw it hidden
-        boolean shouldShow = (field.getBoard().hasStartedTurn() && (field.getBoard().isLightTurn() == isLightTeam)) || revealed;
-        g.drawImage(shouldShow ? this.shown : this.hidden, x, y, null);
+        // if the board shows the pieces of this team, or the piece is revealed, then draw it so, otherwise draw it hidden
+        boolean shouldShow = field.getBoard().shows(isLightTeam) || isRevealed();
+        g.drawImage(shouldShow ? Sprites.shown(isLightTeam, strength, pixels) : Sprites.hidden(isLightTeam, pixels), x, y, size, size, null);
 
     }
 
     /**
      * Finds all the fields the current piece can validly move to
-     * @param b The board, passes it to its helper method, testForValidMovesInDirection()
+     * @param b The board, whose engine finds the valid squares
      * @return A Vector containing all the valid moves
      */
     public Vector<Field> findValidMoves(Board b) {
@@ -247,78 +248,14 @@ public class Piece implements Serializable {
         // constructs the vector that's going to be filled with the valid moves
         Vector<Field> validMoves = new Vector<>();
 
-        // uses some ~lambda~ to be able to run the tester function in all directions
-        PointShiftFunction xPlus = (x, y, i) -> new Point(x+i,y);
-        PointShiftFunction xMinus = (x, y, i) -> new Point(x-i,y);
-        PointShiftFunction yPlus = (x, y, i) -> new Point(x,y+i);
-        PointShiftFunction yMinus = (x, y, i) -> new Point(x,y-i);
-
-        // runs the tester function in all directions and adds the found fields to the vector
-        validMoves.addAll(findValidMovesInDirection(xPlus, b));
-        validMoves.addAll(findValidMovesInDirection(xMinus, b));
-        validMoves.addAll(findValidMovesInDirection(yPlus, b));
-        validMoves.addAll(findValidMovesInDirection(yMinus, b));
-
-        // returns with all the valid moves
-        return validMoves;
-
-    }
-
-    /**
-     * Finds all valid fields in the direction specified
-     * @param direction The lambda function that shifts the starting point in the right direction
-     * @param b The board, used to get the field in a certain point
-     * @return A vector containing the valid fields in the given direction
-     */
-    private Vector<Field> findValidMovesInDirection(PointShiftFunction direction, Board b) {
-
-        // constructs a vector to be filled with valid moves
-        Vector<Field> validMovesInThisDirection = new Vector<>();
-
-        // for all the fields in a given direction up until distance == maxMovement
-        for (int i = 1; i <= maxMovement; i++) {
-
-            // finds the coordinates of the tested field using the given lambda function
-            Point tested = new Point(direction.shiftPoint(field.getPos().x,field.getPos().y,i));
-
-            // and if the tested field would be a valid move then
-            if (b.canStepHere(tested, isLightTeam)) {
-
-                // adds the field to the list
-                validMovesInThisDirection.add(b.getBoard()[tested.y][tested.x]);
-
-                // and if there's an enemy on the tested field, it stops testing
-                if (!b.getBoard()[tested.y][tested.x].isEmpty()) {
-                    return validMovesInThisDirection;
-                }
-
-            // and if the tested field is invalid, it stops testing as well
-            } else {
-                return validMovesInThisDirection;
-            }
-
+        // and adds the field of every valid square to it
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = b.getEngine().legalMoves(b.getState(), field.getIndex(), moves);
+        for (int i = 0; i < count; i++) {
+            validMoves.add(b.getBoard()[moves[i] / 10][moves[i] % 10]);
         }
 
-        // otherwise just returns after reaching the max movement distance
-        return validMovesInThisDirection;
-
-    }
-
-    /**
-     * BufferedImages aren't serializable, so this reads them from resources again when loading a game
-     * @param in The ObjectInputStream serialized reading uses
-     * @throws IOException If it can't read the images for some reason
-     * @throws ClassNotFoundException If it can't get the class of the piece
-     */
-    @Serial
-    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-
-        // calls the default reader
-        in.defaultReadObject();
-
-        // and extends it with the two images
-        this.shown = ImageIO.read(Objects.requireNonNull(getClass().getResource("/" + (isLightTeam ? "lgt-" : "drk-") + strength + ".png")));
-        this.hidden = ImageIO.read(Objects.requireNonNull(getClass().getResource("/" + (isLightTeam ? "lgt-" : "drk-") + "unknown.png")));
+        return validMoves;
 
     }
 
@@ -1,10 +1,18 @@
 package pieces;
 
+import java.io.Serial;
+
 /**
  * Special piece, doesn't have a movement cap
  */
 public class Scout extends Piece {
 
+    /**
+     * Makes sure serialization doesn't break, kept at the value of older versions so their saves can still be imported
+     */
+    @Serial
+    private static final long serialVersionUID = 6867899639500698176L;
+
     /**
      * Constructs a scout, makes sure it can move as much as the board is large
      * @param isLightTeam Whether the new scout is on the light team or not
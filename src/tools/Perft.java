@@ -0,0 +1,228 @@
+package tools;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.PieceCode;
+import engine.StrategoEngine;
+import helper.FileIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts every sequence of valid moves from a position up to a given depth, to check and time the move generation
+ * <p>
+ *     The counts only depend on the rules, so any change to them shows up as a different count, and the time it takes is a repeatable measure of how fast
+ *     the rules are. Everything is searched as if all the pieces were known, and taking a flag ends the sequence.
+ *     The moves of the first position can be split among several threads, each counting on its own copy.
+ * </p>
+ * <p>
+ *     Usage: {@code java tools.Perft [depth] [--threads N] [--load savefile]}, starting from the default layout if no save is given.
+ * </p>
+ */
+public class Perft {
+
+    /**
+     * The rules the moves are made by
+     */
+    private static final GameEngine ENGINE = new StrategoEngine();
+
+    /**
+     * Only static helpers, no instances
+     */
+    private Perft() {}
+
+    /**
+     * Runs the counts from the command line, printing the count, time, and speed of every depth
+     * @param args The depth and the options, see the class description
+     * @throws IOException If it can't read the savefile
+     * @throws ClassNotFoundException If the savefile is an older one, and it can't find its classes
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+
+        int depth = 4;
+        int threads = 1;
+        GameState start = null;
+
+        for (int i = 0; i < args.length; i++) {
+
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--load" -> start = FileIO.read(new File(args[++i]));
+                default -> depth = Integer.parseInt(args[i]);
+            }
+
+        }
+
+        // starts from the default layout, with both setups finished
+        if (start == null) {
+            start = ENGINE.newGame();
+            ENGINE.endSetup(start);
+            ENGINE.endSetup(start);
+        }
+        if (start.getGameStage() != 0) {
+            System.err.println("The game has to be in the playing stage");
+            System.exit(1);
+        }
+
+        for (int d = 1; d <= depth; d++) {
+
+            long time = System.nanoTime();
+            long nodes = count(start, d, threads);
+            time = System.nanoTime() - time;
+
+            System.out.printf("depth %2d  %,18d nodes  %10.3f s  %,14.0f nodes/s%n", d, nodes, time / 1e9, nodes * 1e9 / Math.max(1, time));
+
+        }
+
+    }
+
+    /**
+     * Counts the sequences of valid moves of a given length, along with the ones cut short by taking a flag
+     * @param state The position to start from, which isn't changed
+     * @param depth The number of moves
+     * @param threads How many threads to split the moves of the first position among
+     * @return The number of sequences
+     */
+    public static long count(GameState state, int depth, int threads) {
+
+        if (depth == 0) { return 1; }
+
+        GameState s = new GameState(state);
+        if (threads <= 1) { return count(s, depth, new int[depth][MoveGenerator.MAX_ALL_MOVES]); }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Split(s, depth));
+        } finally {
+            pool.shutdown();
+        }
+
+    }
+
+    /**
+     * Counts the sequences from a position on a single thread
+     * @param s The position, which is changed while counting but restored by the end
+     * @param depth The number of moves left
+     * @param moves A buffer for the moves of every remaining depth
+     * @return The number of sequences
+     */
+    private static long count(GameState s, int depth, int[][] moves) {
+
+        int[] buffer = moves[depth - 1];
+        int count = ENGINE.allLegalMoves(s, buffer);
+        if (depth == 1) { return count; }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+
+            int from = buffer[i] >> 8;
+            int to = buffer[i] & 0xFF;
+            byte attacker = s.get(from);
+            byte defender = s.get(to);
+
+            // taking the flag ends the game
+            if (defender != PieceCode.EMPTY && PieceCode.strength(defender) == PieceCode.FLAG) { nodes++; continue; }
+
+            // makes the move, counts from there, and takes it back
+            boolean lightTurn = s.isLightTurn();
+            ENGINE.applyMove(s, from, to);
+            nodes += count(s, depth - 1, moves);
+            s.set(from, attacker);
+            s.set(to, defender);
+            s.setLightTurn(lightTurn);
+
+        }
+        return nodes;
+
+    }
+
+    /**
+     * Counts the sequences of every move of the first position as a separate task
+     */
+    private static class Split extends RecursiveTask<Long> {
+
+        /**
+         * Makes sure serialization doesn't break
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The position, owned by this task
+         */
+        private final GameState s;
+
+        /**
+         * The number of moves to count
+         */
+        private final int depth;
+
+        /**
+         * The move to make first, or -1 to split the position into one task per move
+         */
+        private final int move;
+
+        /**
+         * Constructs the task splitting a position
+         * @param s The position, owned by the task
+         * @param depth The number of moves to count
+         */
+        Split(GameState s, int depth) {
+            this(s, depth, -1);
+        }
+
+        /**
+         * Constructs a task
+         * @param s The position, owned by the task
+         * @param depth The number of moves to count
+         * @param move The move to make first, or -1 to split the position into one task per move
+         */
+        Split(GameState s, int depth, int move) {
+
+            this.s = s;
+            this.depth = depth;
+            this.move = move;
+
+        }
+
+        /**
+         * Counts the sequences
+         * @return The number of sequences
+         */
+        @Override
+        protected Long compute() {
+
+            // counts the sequences after a single move
+            if (move >= 0) {
+
+                byte defender = s.get(move & 0xFF);
+                if (defender != PieceCode.EMPTY && PieceCode.strength(defender) == PieceCode.FLAG) { return 1L; }
+
+                ENGINE.applyMove(s, move >> 8, move & 0xFF);
+                return depth == 1 ? 1L : count(s, depth - 1, new int[depth - 1][MoveGenerator.MAX_ALL_MOVES]);
+
+            }
+
+            // or splits the position into a task for every move
+            int[] moves = new int[MoveGenerator.MAX_ALL_MOVES];
+            int count = ENGINE.allLegalMoves(s, moves);
+
+            Split[] tasks = new Split[count];
+            for (int i = 0; i < count; i++) { tasks[i] = new Split(new GameState(s), depth, moves[i]); }
+            invokeAll(tasks);
+
+            long nodes = 0;
+            for (Split task : tasks) { nodes += task.join(); }
+            return nodes;
+
+        }
+
+    }
+
+
+}
@@ -0,0 +1,454 @@
+package tools;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.MoveGenerator;
+import engine.StrategoEngine;
+import net.GameClient;
+import net.GameServer;
+import net.Protocol;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Plays many games at once on a {@link GameServer} over localhost, and reports how long the moves took to come back, and how much the server had to work
+ * <p>
+ *     Every game is joined by two clients, all of them before any move is made, so the server really has all of the games at once.
+ *     The games are split among some threads, and each thread takes turns making a random valid move in each of its games, timing from sending the move
+ *     until the move comes back, which is the round trip a player feels.
+ * </p>
+ * <p>
+ *     Some spectators can watch the first game from the neutral view too, like a final shown to a room, and what they were sent is compared to
+ *     what full states after every move would have been.
+ * </p>
+ * <p>
+ *     Without a host, a server is started right here, and the time its thread spent working is measured too, which gives how many moves, and so how many
+ *     games, a single core can keep up with.
+ * </p>
+ * <p>
+ *     Usage: {@code java tools.ServerLoad [--games N] [--threads N] [--moves N] [--seed N] [--viewers N] [--host H] [--port N]}
+ * </p>
+ */
+public class ServerLoad {
+
+    /**
+     * How often a player moves in a game between people, in seconds, for estimating how many games a core keeps up with
+     */
+    private static final double SECONDS_PER_MOVE = 2;
+
+    /**
+     * The rules the clients find their moves with
+     */
+    private static final GameEngine ENGINE = new StrategoEngine();
+
+    /**
+     * Only static helpers, no instances
+     */
+    private ServerLoad() {}
+
+    /**
+     * Runs the load from the command line
+     * @param args The options, see the class description
+     * @throws IOException If it can't start the server, or connect to it
+     * @throws InterruptedException If interrupted while waiting for the games, or the spectators
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int moves = 200;
+        long seed = System.nanoTime();
+        int viewers = 0;
+        String host = null;
+        int port = GameServer.DEFAULT_PORT;
+
+        for (int i = 0; i < args.length; i++) {
+
+            switch (args[i]) {
+                case "--games" -> games = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--moves" -> moves = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--viewers" -> viewers = Integer.parseInt(args[++i]);
+                case "--host" -> host = args[++i];
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+
+        }
+
+        // starts a server here if there's no other one to use
+        GameServer server = null;
+        Thread serverThread = null;
+        if (host == null) {
+            server = new GameServer(0);
+            serverThread = new Thread(server, "server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+
+        // every thread plays its share of the games
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            int count = games / threads + (i < games % threads ? 1 : 0);
+            workers[i] = new Worker(host, port, i * (games / threads + 1), count, moves, seed + i);
+        }
+
+        // the spectators watch the first game, once it's there
+        Viewer[] watching = new Viewer[games > 0 ? viewers : 0];
+        for (int i = 0; i < watching.length; i++) {
+            watching[i] = new Viewer(host, port, 0);
+            watching[i].start();
+        }
+
+        ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+        long serverCpu = (serverThread != null) ? cpu.getThreadCpuTime(serverThread.getId()) : 0;
+        long time = System.nanoTime();
+
+        for (Worker w : workers) { w.start(); }
+        for (Worker w : workers) { w.join(); }
+        for (Viewer v : watching) { v.join(); }
+
+        time = System.nanoTime() - time;
+        if (serverThread != null) { serverCpu = cpu.getThreadCpuTime(serverThread.getId()) - serverCpu; }
+
+        // puts together the round trips of all the threads
+        int total = 0;
+        for (Worker w : workers) {
+            if (w.failure != null) { throw w.failure; }
+            total += w.count;
+        }
+        long[] trips = new long[total];
+        int at = 0;
+        for (Worker w : workers) {
+            System.arraycopy(w.trips, 0, trips, at, w.count);
+            at += w.count;
+        }
+        Arrays.sort(trips);
+
+        System.out.printf("%d games, %d moves in %.2f s, %.0f moves/s%n", games, total, time / 1e9, total * 1e9 / time);
+        if (total > 0) {
+            System.out.printf("round trip: median %.1f us, 90%% %.1f us, 99%% %.1f us, max %.1f us%n",
+                    trips[total / 2] / 1e3, trips[(int) (total * 0.9)] / 1e3, trips[(int) (total * 0.99)] / 1e3, trips[total - 1] / 1e3);
+        }
+        if (watching.length > 0) {
+
+            // every spectator got the same, as they all see the game from the same view
+            Viewer v = watching[0];
+            if (v.failure != null) { throw v.failure; }
+            System.out.printf("%d spectators: %d moves and %d states each, %d bytes, instead of %d bytes as full states%n", watching.length, v.deltas, v.states,
+                    v.deltas * Protocol.length(Protocol.DELTA) + v.states * Protocol.STATE_LENGTH, (v.deltas + v.states) * Protocol.STATE_LENGTH);
+
+        }
+        if (server != null && total > 0) {
+
+            // setting up and joining are counted too, so it's a little more than the moves alone
+            double perMove = (double) serverCpu / total;
+            System.out.printf("server: %.1f us of CPU per move, %.0f moves per core-second, %.0f games per core at a move every %.0f s%n",
+                    perMove / 1e3, 1e9 / perMove, 1e9 / perMove * SECONDS_PER_MOVE, SECONDS_PER_MOVE);
+            server.close();
+
+        }
+
+    }
+
+    /**
+     * Plays a share of the games, taking turns between them
+     */
+    private static class Worker extends Thread {
+
+        /**
+         * The Light player of every game
+         */
+        private final GameClient[] lights;
+
+        /**
+         * The Dark player of every game
+         */
+        private final GameClient[] darks;
+
+        /**
+         * How many moves every game lasts at most
+         */
+        private final int moves;
+
+        /**
+         * The source of the random moves
+         */
+        private final SplittableRandom random;
+
+        /**
+         * The round trip of every move, in nanoseconds
+         */
+        private long[] trips;
+
+        /**
+         * How many moves were made
+         */
+        private int count;
+
+        /**
+         * What went wrong, if anything
+         */
+        private IOException failure;
+
+        /**
+         * Connects the players of the games
+         * @param host The host of the server
+         * @param port The port of the server
+         * @param firstId The id of the first game
+         * @param games How many games to play
+         * @param moves How many moves every game lasts at most
+         * @param seed The seed of the random moves
+         * @throws IOException If it can't connect
+         */
+        Worker(String host, int port, int firstId, int games, int moves, long seed) throws IOException {
+
+            super("load-" + firstId);
+            this.lights = new GameClient[games];
+            this.darks = new GameClient[games];
+            this.moves = moves;
+            this.random = new SplittableRandom(seed);
+            this.trips = new long[1024];
+
+            for (int i = 0; i < games; i++) {
+                lights[i] = new GameClient(host, port);
+                darks[i] = new GameClient(host, port);
+            }
+            for (int i = 0; i < games; i++) {
+                lights[i].join(firstId + i);
+                darks[i].join(firstId + i);
+            }
+
+        }
+
+        /**
+         * Sets up all the games, then plays them, and leaves
+         */
+        @Override
+        public void run() {
+
+            try {
+
+                // waits until both players are there, which of them plays Light depending on whose join the server saw first
+                for (int i = 0; i < lights.length; i++) {
+
+                    waitForFull(lights[i]);
+                    waitForFull(darks[i]);
+                    if (!lights[i].isLight()) {
+                        GameClient swap = lights[i];
+                        lights[i] = darks[i];
+                        darks[i] = swap;
+                    }
+
+                    // and keeps the default setups
+                    lights[i].endSetup();
+                    expect(lights[i], Protocol.STATE, 1);
+                    expect(darks[i], Protocol.STATE, 1);
+                    darks[i].endSetup();
+                    expect(lights[i], Protocol.STATE, 1);
+                    expect(darks[i], Protocol.STATE, 1);
+
+                }
+
+                GameState[] states = new GameState[lights.length];
+                for (int i = 0; i < lights.length; i++) { states[i] = lights[i].getState(); }
+
+                // takes turns between the games, a move in each at a time, until they're all over
+                int[] buffer = new int[MoveGenerator.MAX_ALL_MOVES];
+                for (int ply = 0; ply < moves; ply++) {
+
+                    for (int i = 0; i < lights.length; i++) {
+
+                        GameState s = states[i];
+                        if (s == null) { continue; }
+
+                        GameClient mover = s.isLightTurn() ? lights[i] : darks[i];
+                        GameClient other = s.isLightTurn() ? darks[i] : lights[i];
+                        int count = ENGINE.allLegalMoves(s, buffer);
+                        if (count == 0) { states[i] = null; continue; }
+
+                        int move = buffer[random.nextInt(count)];
+                        long time = System.nanoTime();
+                        mover.move(move >> 8, move & 0xFF);
+                        expectMove(mover);
+                        addTrip(System.nanoTime() - time);
+                        expectMove(other);
+
+                        // the next player moves from what they see
+                        GameState next = other.getState();
+                        states[i] = next.getGameStage() == 0 ? next : null;
+
+                    }
+
+                }
+
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+
+                for (int i = 0; i < lights.length; i++) {
+                    try {
+                        lights[i].close();
+                        darks[i].close();
+                    } catch (IOException ignored) {
+                        // leaving anyway
+                    }
+                }
+
+            }
+
+        }
+
+        /**
+         * Reads a number of messages of a type
+         * @param c The client to read from
+         * @param type The type of the messages
+         * @param times How many of them to read
+         * @throws IOException If it can't read, or the server sent anything else
+         */
+        private static void expect(GameClient c, int type, int times) throws IOException {
+
+            for (int i = 0; i < times; i++) {
+                int got = c.read();
+                if (got != type) { throw new IOException("Expected message " + type + " from the server, got " + got); }
+            }
+
+        }
+
+        /**
+         * Reads a move, which is a state instead if it ended the game
+         * @param c The client to read from
+         * @throws IOException If it can't read, or the server sent anything else
+         */
+        private static void expectMove(GameClient c) throws IOException {
+
+            int got = c.read();
+            if (got != Protocol.DELTA && got != Protocol.STATE) { throw new IOException("Expected a move from the server, got " + got); }
+
+        }
+
+        /**
+         * Reads messages until a state with both players there
+         * @param c The client to read from
+         * @throws IOException If it can't read, or the server refused something
+         */
+        private static void waitForFull(GameClient c) throws IOException {
+
+            int got;
+            do {
+                got = c.read();
+                if (got == Protocol.REJECTED) { throw new IOException("Refused by the server"); }
+            } while (got != Protocol.STATE || !c.isFull());
+
+        }
+
+        /**
+         * Keeps the round trip of a move
+         * @param nanos The round trip, in nanoseconds
+         */
+        private void addTrip(long nanos) {
+
+            if (count == trips.length) { trips = Arrays.copyOf(trips, count * 2); }
+            trips[count++] = nanos;
+
+        }
+
+    }
+
+    /**
+     * A spectator of a game, counting what it's sent until the game is over
+     */
+    private static class Viewer extends Thread {
+
+        /**
+         * The host of the server
+         */
+        private final String host;
+
+        /**
+         * The port of the server
+         */
+        private final int port;
+
+        /**
+         * The id of the game to watch
+         */
+        private final int gameId;
+
+        /**
+         * How many moves were sent
+         */
+        private long deltas;
+
+        /**
+         * How many whole states were sent
+         */
+        private long states;
+
+        /**
+         * What went wrong, if anything
+         */
+        private IOException failure;
+
+        /**
+         * Constructs a spectator, which connects once started
+         * @param host The host of the server
+         * @param port The port of the server
+         * @param gameId The id of the game to watch
+         */
+        Viewer(String host, int port, int gameId) {
+
+            super("viewer");
+            this.host = host;
+            this.port = port;
+            this.gameId = gameId;
+            setDaemon(true);
+
+        }
+
+        /**
+         * Watches the game until it's over, asking again while it isn't there yet
+         */
+        @Override
+        public void run() {
+
+            try (GameClient c = new GameClient(host, port)) {
+
+                int got;
+                do {
+                    c.watch(gameId, Protocol.VIEW_ALL);
+                    got = c.read();
+                    if (got == Protocol.REJECTED) { Thread.sleep(10); }
+                } while (got == Protocol.REJECTED);
+
+                // the game ends at the latest when its players leave
+                while (true) {
+
+                    got = c.read();
+                    if (got == Protocol.DELTA) { deltas++; }
+                    else if (got == Protocol.STATE) {
+                        states++;
+                        if (c.getState().getGameStage() == 1) { break; }
+                    }
+
+                }
+
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+        }
+
+    }
+
+
+}
@@ -0,0 +1,137 @@
+package tools;
+
+import ai.SetupEvaluator;
+import ai.SetupGenerator;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Searches for good setups, by scoring many of them with a {@link SetupEvaluator} against a pool of setups like players make, on every core
+ * <p>
+ *     The first round scores a batch of new candidates. Every later round keeps the best ones so far, and fills the batch up again with setups like them,
+ *     each with two pieces swapped, so the search climbs towards better setups for as long as it's left running.
+ * </p>
+ * <p>
+ *     The best setups are written to a file, one per line with its score, after every round, so stopping the search early still leaves the best ones
+ *     found. The game window auto-sets up with the setups in {@code setups.txt} in its working directory.
+ * </p>
+ * <p>
+ *     Usage: {@code java tools.SetupSearch [--candidates N] [--pool N] [--games N] [--rounds N] [--keep N] [--player P] [--max-plies N] [--threads N]
+ *     [--seed N] [--random] [--out FILE]}
+ * </p>
+ */
+public class SetupSearch {
+
+    /**
+     * Only static helpers, no instances
+     */
+    private SetupSearch() {}
+
+    /**
+     * Runs the search from the command line
+     * @param args The options, see the class description
+     * @throws InterruptedException If interrupted while waiting for the games to finish
+     * @throws FileNotFoundException If it can't write the setups
+     */
+    public static void main(String[] args) throws InterruptedException, FileNotFoundException {
+
+        int candidates = 200;
+        int poolSize = 20;
+        int games = 2;
+        int rounds = 1;
+        int keep = 10;
+        String player = "heuristic";
+        int maxPlies = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        boolean random = false;
+        String out = "setups.txt";
+
+        for (int i = 0; i < args.length; i++) {
+
+            switch (args[i]) {
+                case "--candidates" -> candidates = Integer.parseInt(args[++i]);
+                case "--pool" -> poolSize = Integer.parseInt(args[++i]);
+                case "--games" -> games = Integer.parseInt(args[++i]);
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--keep" -> keep = Integer.parseInt(args[++i]);
+                case "--player" -> player = args[++i];
+                case "--max-plies" -> maxPlies = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--random" -> random = true;
+                case "--out" -> out = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+
+        }
+        keep = Math.min(keep, candidates);
+
+        // the pool is the kind of setups people make, and stays the same, so the scores of every round compare
+        SetupGenerator generator = new SetupGenerator(seed);
+        List<byte[]> pool = new ArrayList<>();
+        for (int i = 0; i < poolSize; i++) { pool.add(generator.biased()); }
+
+        List<byte[]> batch = new ArrayList<>();
+        for (int i = 0; i < candidates; i++) { batch.add(random ? generator.random() : generator.biased()); }
+
+        SetupEvaluator evaluator = new SetupEvaluator(Tournament.player(player), games, maxPlies, threads, seed);
+        System.out.println("Searching " + candidates + " setups a round against " + poolSize + " with " + player + ", " + games + " games each, on " + threads + " threads, seed " + seed);
+
+        byte[][] best = new byte[0][];
+        double[] bestScores = new double[0];
+
+        for (int round = 1; round <= rounds; round++) {
+
+            long start = System.nanoTime();
+            double[] scores = evaluator.evaluate(batch, pool);
+
+            // the best ones are kept, the kept ones of earlier rounds being scored again along with the new ones
+            Integer[] order = new Integer[batch.size()];
+            for (int i = 0; i < order.length; i++) { order[i] = i; }
+            Arrays.sort(order, Comparator.comparingDouble(i -> -scores[i]));
+
+            best = new byte[keep][];
+            bestScores = new double[keep];
+            for (int i = 0; i < keep; i++) {
+                best[i] = batch.get(order[i]);
+                bestScores[i] = scores[order[i]];
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: best %.3f, %d-th best %.3f, %.1f s%n", round, bestScores[0], keep, bestScores[keep - 1], seconds);
+            write(out, best, bestScores);
+
+            // the next batch is the best ones, and setups like them
+            batch.clear();
+            batch.addAll(Arrays.asList(best));
+            for (int i = keep; i < candidates; i++) { batch.add(generator.mutate(best[i % keep])); }
+
+        }
+
+        System.out.println("Best: " + SetupGenerator.format(best[0]) + String.format(" %.3f", bestScores[0]) + ", written to " + out);
+
+    }
+
+    /**
+     * Writes setups to a file, one per line with its score
+     * @param file The file
+     * @param setups The setups, best first
+     * @param scores The score of every setup
+     * @throws FileNotFoundException If it can't write the file
+     */
+    private static void write(String file, byte[][] setups, double[] scores) throws FileNotFoundException {
+
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int i = 0; i < setups.length; i++) { out.printf("%s %.3f%n", SetupGenerator.format(setups[i]), scores[i]); }
+        }
+
+    }
+
+
+}
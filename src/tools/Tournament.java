@@ -0,0 +1,321 @@
+package tools;
+
+import ai.AlphaBetaPlayer;
+import ai.HeuristicPlayer;
+import ai.IsmctsPlayer;
+import ai.Player;
+import ai.RandomPlayer;
+import ai.SetupGenerator;
+import engine.GameEngine;
+import engine.GameState;
+import engine.StrategoEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+
+/**
+ * Plays many games between two computer players without any windows, and reports how they did
+ * <p>
+ *     The games are played right on a {@link GameState} by a {@link GameEngine}, so nothing of Swing is needed, and are spread over as many threads as there are cores.
+ *     Every thread makes its own pair of players once, and reuses them for all of its games. The players take turns playing Light, and a game that reaches
+ *     the move limit is a draw.
+ * </p>
+ * <p>
+ *     Every game starts the players over from a seed of its own, so the same seed plays the same games whatever the number of threads,
+ *     as long as the searching players aren't cut off by time.
+ * </p>
+ * <p>
+ *     Usage: {@code java tools.Tournament <player> <player> [--games N] [--threads N] [--max-plies N] [--seed N] [--random-setup]},
+ *     where a player is {@code random}, {@code heuristic}, {@code alphabeta[:milliseconds[:depth]]}, or {@code ismcts[:milliseconds[:playouts]]}.
+ *     The searching players use a single thread each, as the games already keep every core busy.
+ * </p>
+ */
+public class Tournament {
+
+    /**
+     * The outcome of a game where the first player won
+     */
+    private static final int FIRST_WINS = 0;
+
+    /**
+     * The outcome of a game where the second player won
+     */
+    private static final int SECOND_WINS = 1;
+
+    /**
+     * The outcome of a game that reached the move limit
+     */
+    private static final int DRAW = 2;
+
+    /**
+     * The rules the games are played by
+     */
+    private final GameEngine engine;
+
+    /**
+     * Makes the first player, given a seed
+     */
+    private final LongFunction<Player> first;
+
+    /**
+     * Makes the second player, given a seed
+     */
+    private final LongFunction<Player> second;
+
+    /**
+     * How many games to play
+     */
+    private final int games;
+
+    /**
+     * How many threads to play on
+     */
+    private final int threads;
+
+    /**
+     * How many moves a game can last before it's a draw
+     */
+    private final int maxPlies;
+
+    /**
+     * The seed of everything random
+     */
+    private final long seed;
+
+    /**
+     * Whether to shuffle the pieces of both players before every game, instead of using the default layout
+     */
+    private final boolean randomSetup;
+
+    /**
+     * The next game to be played
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * The number of games of every outcome
+     */
+    private final AtomicLongArray outcomes = new AtomicLongArray(3);
+
+    /**
+     * The number of games won by the first and the second player as Light
+     */
+    private final AtomicLongArray winsAsLight = new AtomicLongArray(2);
+
+    /**
+     * The total number of moves of the games that somebody won
+     */
+    private final AtomicLong decidedPlies = new AtomicLong();
+
+    /**
+     * The shortest game that somebody won, in moves
+     */
+    private final AtomicLong shortest = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * The longest game that somebody won, in moves
+     */
+    private final AtomicLong longest = new AtomicLong();
+
+    /**
+     * Constructs a tournament
+     * @param first Makes the first player, given a seed
+     * @param second Makes the second player, given a seed
+     * @param games How many games to play
+     * @param threads How many threads to play on
+     * @param maxPlies How many moves a game can last before it's a draw
+     * @param seed The seed of everything random
+     * @param randomSetup Whether to shuffle the pieces of both players before every game
+     */
+    public Tournament(LongFunction<Player> first, LongFunction<Player> second, int games, int threads, int maxPlies, long seed, boolean randomSetup) {
+
+        this.engine = new StrategoEngine();
+        this.first = first;
+        this.second = second;
+        this.games = games;
+        this.threads = Math.max(1, threads);
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+        this.randomSetup = randomSetup;
+
+    }
+
+    /**
+     * Runs the tournament from the command line
+     * @param args The players and the options, see the class description
+     * @throws InterruptedException If interrupted while waiting for the games to finish
+     */
+    public static void main(String[] args) throws InterruptedException {
+
+        List<String> players = new ArrayList<>();
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxPlies = 2000;
+        long seed = System.nanoTime();
+        boolean randomSetup = false;
+
+        try {
+
+            for (int i = 0; i < args.length; i++) {
+
+                switch (args[i]) {
+                    case "--games" -> games = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--max-plies" -> maxPlies = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--random-setup" -> randomSetup = true;
+                    default -> players.add(args[i]);
+                }
+
+            }
+            if (players.size() != 2) { throw new IllegalArgumentException("Need exactly two players"); }
+
+            Tournament t = new Tournament(player(players.get(0)), player(players.get(1)), games, threads, maxPlies, seed, randomSetup);
+            System.out.println("Playing " + games + " games of " + players.get(0) + " against " + players.get(1) + " on " + t.threads + " threads, seed " + seed);
+
+            long start = System.nanoTime();
+            t.run();
+            t.report(players.get(0), players.get(1), System.nanoTime() - start);
+
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java tools.Tournament <player> <player> [--games N] [--threads N] [--max-plies N] [--seed N] [--random-setup]");
+            System.err.println("Players: random, heuristic, alphabeta[:milliseconds[:depth]], ismcts[:milliseconds[:playouts]]");
+            System.exit(1);
+
+        }
+
+    }
+
+    /**
+     * Makes a maker of players from its description
+     * @param spec The description, for example {@code alphabeta:50:4}
+     * @return Makes the player, given a seed
+     * @throws IllegalArgumentException If there's no such player
+     */
+    public static LongFunction<Player> player(String spec) {
+
+        String[] parts = spec.split(":");
+        long time = parts.length > 1 ? Long.parseLong(parts[1]) : 100;
+
+        return switch (parts[0]) {
+            case "random" -> RandomPlayer::new;
+            case "heuristic" -> HeuristicPlayer::new;
+            case "alphabeta" -> {
+                int depth = parts.length > 2 ? Integer.parseInt(parts[2]) : AlphaBetaPlayer.MAX_DEPTH;
+                // two players a thread on every core, so each gets a 1 MB table instead of 16 MB
+                yield s -> new AlphaBetaPlayer(time, depth, 8, 1, 16, s);
+            }
+            case "ismcts" -> {
+                long playouts = parts.length > 2 ? Long.parseLong(parts[2]) : Long.MAX_VALUE;
+                yield s -> new IsmctsPlayer(time, playouts, 1, s);
+            }
+            default -> throw new IllegalArgumentException("Unknown player: " + spec);
+        };
+
+    }
+
+    /**
+     * Plays all the games, spread over the threads, and waits for them to finish
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void run() throws InterruptedException {
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+
+            long workerSeed = seed + i;
+            workers[i] = new Thread(() -> {
+
+                // every thread has its own players, reused for all its games
+                Player a = first.apply(workerSeed * 2);
+                Player b = second.apply(workerSeed * 2 + 1);
+
+                for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) { play(game, a, b); }
+
+            }, "tournament-" + i);
+            workers[i].start();
+
+        }
+        for (Thread worker : workers) { worker.join(); }
+
+    }
+
+    /**
+     * Plays a single game, and adds its result to the totals
+     * @param game The number of the game, the first player plays Light in the even ones
+     * @param a The first player
+     * @param b The second player
+     */
+    private void play(int game, Player a, Player b) {
+
+        // everything about the game comes from its own seed, so it's the same whichever thread plays it
+        long gameSeed = seed ^ (game * 0x9E3779B97F4A7C15L);
+        a.newGame(gameSeed + 1);
+        b.newGame(gameSeed + 2);
+
+        GameState s = engine.newGame();
+        if (randomSetup) {
+            SetupGenerator setups = new SetupGenerator(gameSeed);
+            SetupGenerator.apply(s, true, setups.random());
+            SetupGenerator.apply(s, false, setups.random());
+        }
+        engine.endSetup(s);
+        engine.endSetup(s);
+
+        boolean firstIsLight = game % 2 == 0;
+        int plies = Player.playOut(engine, s, firstIsLight ? a : b, firstIsLight ? b : a, maxPlies);
+
+        if (s.getGameStage() != 1) {
+            outcomes.incrementAndGet(DRAW);
+            return;
+        }
+
+        boolean firstWon = s.hasLightWon() == firstIsLight;
+        outcomes.incrementAndGet(firstWon ? FIRST_WINS : SECOND_WINS);
+        if (s.hasLightWon()) { winsAsLight.incrementAndGet(firstWon ? 0 : 1); }
+
+        decidedPlies.addAndGet(plies);
+        shortest.accumulateAndGet(plies, Math::min);
+        longest.accumulateAndGet(plies, Math::max);
+
+    }
+
+    /**
+     * Prints the results
+     * @param firstName The description of the first player
+     * @param secondName The description of the second player
+     * @param nanos How long the games took, in nanoseconds
+     */
+    private void report(String firstName, String secondName, long nanos) {
+
+        long played = outcomes.get(FIRST_WINS) + outcomes.get(SECOND_WINS) + outcomes.get(DRAW);
+        long decided = played - outcomes.get(DRAW);
+        double seconds = nanos / 1e9;
+
+        System.out.printf("%-24s wins %7d  %6.2f%%  (%d as Light)%n", firstName, outcomes.get(FIRST_WINS), 100.0 * outcomes.get(FIRST_WINS) / played, winsAsLight.get(0));
+        System.out.printf("%-24s wins %7d  %6.2f%%  (%d as Light)%n", secondName, outcomes.get(SECOND_WINS), 100.0 * outcomes.get(SECOND_WINS) / played, winsAsLight.get(1));
+        System.out.printf("%-24s      %7d  %6.2f%%  (reached %d moves)%n", "draws", outcomes.get(DRAW), 100.0 * outcomes.get(DRAW) / played, maxPlies);
+
+        if (decided > 0) {
+            System.out.printf("game length: average %.1f, shortest %d, longest %d moves%n", (double) decidedPlies.get() / decided, shortest.get(), longest.get());
+        }
+        System.out.printf("%d games in %.2f s, %.1f games/s%n", played, seconds, played / seconds);
+
+    }
+
+    /**
+     * Gets the number of games of every outcome, for checking the results
+     * @return The wins of the first player, the wins of the second player, and the draws
+     */
+    public long[] getOutcomes() {
+        return new long[] {outcomes.get(FIRST_WINS), outcomes.get(SECOND_WINS), outcomes.get(DRAW)};
+    }
+
+
+}